@@ -0,0 +1,142 @@
+package com.mycompany.app;
+
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.cloudwatch.model.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Creates one alarm per instance and metric with bounded concurrent PutMetricAlarm calls.
+ * Alarms that already exist with the same settings are left alone, so re-running a batch is cheap.
+ */
+final class AlarmBatchProvisioner {
+
+    // DescribeAlarms accepts at most 100 alarm names per call
+    private static final int MAX_NAMES_PER_DESCRIBE = 100;
+
+    private final CloudWatchClient cloudWatch;
+    private final String alarmActionArn;
+    private final int maxConcurrentPuts;
+
+    AlarmBatchProvisioner(CloudWatchClient cloudWatch, String alarmActionArn, int maxConcurrentPuts) {
+        this.cloudWatch = cloudWatch;
+        this.alarmActionArn = alarmActionArn;
+        this.maxConcurrentPuts = maxConcurrentPuts;
+    }
+
+    List<AlarmResult> provision(String alarmPrefix, List<String> instanceIds, Map<String, Double> thresholds) {
+        List<PutMetricAlarmRequest> requests = new ArrayList<>();
+        for (String instanceId : instanceIds) {
+            for (Map.Entry<String, Double> metric : thresholds.entrySet()) {
+                String alarmName = alarmPrefix + "-" + instanceId + "-" + metric.getKey();
+                requests.add(alarmRequest(alarmName, instanceId, metric.getKey(), metric.getValue()));
+            }
+        }
+        Map<String, MetricAlarm> existing = describeExisting(requests);
+
+        Semaphore permits = new Semaphore(maxConcurrentPuts);
+        List<Future<AlarmResult>> futures = new ArrayList<>(requests.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (PutMetricAlarmRequest request : requests) {
+                MetricAlarm current = existing.get(request.alarmName());
+                if (current != null && sameSettings(current, request)) {
+                    futures.add(CompletableFuture.completedFuture(result(request, Status.UNCHANGED, null)));
+                    continue;
+                }
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        cloudWatch.putMetricAlarm(request);
+                        return result(request, current == null ? Status.CREATED : Status.UPDATED, null);
+                    } catch (Exception e) {
+                        return result(request, Status.FAILED, e.getMessage());
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        }
+
+        List<AlarmResult> results = new ArrayList<>(futures.size());
+        for (Future<AlarmResult> future : futures) {
+            results.add(future.resultNow());
+        }
+        return results;
+    }
+
+    PutMetricAlarmRequest alarmRequest(String alarmName, String instanceId, String metricName, double threshold) {
+        return PutMetricAlarmRequest.builder()
+                .alarmName(alarmName)
+                .comparisonOperator(ComparisonOperator.GREATER_THAN_THRESHOLD)
+                .threshold(threshold)
+                .period(300)  // 5-minute evaluation period
+                .evaluationPeriods(1)
+                .statistic(Statistic.AVERAGE)
+                .actionsEnabled(true)
+                .alarmActions(alarmActionArn)
+                .namespace("AWS/EC2")
+                .metricName(metricName)
+                .dimensions(Dimension.builder()
+                        .name("InstanceId")
+                        .value(instanceId)
+                        .build())
+                .build();
+    }
+
+    private Map<String, MetricAlarm> describeExisting(List<PutMetricAlarmRequest> requests) {
+        Map<String, MetricAlarm> existing = new HashMap<>();
+        List<String> names = requests.stream().map(PutMetricAlarmRequest::alarmName).toList();
+        for (int from = 0; from < names.size(); from += MAX_NAMES_PER_DESCRIBE) {
+            List<String> chunk = names.subList(from, Math.min(from + MAX_NAMES_PER_DESCRIBE, names.size()));
+            try {
+                cloudWatch.describeAlarmsPaginator(DescribeAlarmsRequest.builder().alarmNames(chunk).build())
+                        .metricAlarms()
+                        .forEach(alarm -> existing.put(alarm.alarmName(), alarm));
+            } catch (Exception e) {
+                // Without the current state every alarm is simply put again
+                e.printStackTrace();
+            }
+        }
+        return existing;
+    }
+
+    private static boolean sameSettings(MetricAlarm alarm, PutMetricAlarmRequest request) {
+        return Objects.equals(alarm.comparisonOperator(), request.comparisonOperator())
+                && Objects.equals(alarm.threshold(), request.threshold())
+                && Objects.equals(alarm.period(), request.period())
+                && Objects.equals(alarm.evaluationPeriods(), request.evaluationPeriods())
+                && Objects.equals(alarm.statistic(), request.statistic())
+                && Objects.equals(alarm.actionsEnabled(), request.actionsEnabled())
+                && Objects.equals(alarm.namespace(), request.namespace())
+                && Objects.equals(alarm.metricName(), request.metricName())
+                && Objects.equals(new HashSet<>(alarm.alarmActions()), new HashSet<>(request.alarmActions()))
+                && Objects.equals(new HashSet<>(alarm.dimensions()), new HashSet<>(request.dimensions()));
+    }
+
+    private static AlarmResult result(PutMetricAlarmRequest request, Status status, String error) {
+        return new AlarmResult(request.alarmName(), request.dimensions().getFirst().value(), request.metricName(),
+                request.threshold(), status, error);
+    }
+
+    enum Status {
+        CREATED,
+        UPDATED,
+        UNCHANGED,
+        FAILED
+    }
+
+    record AlarmResult(String alarmName, String instanceId, String metricName, double threshold,
+                       Status status, String error) {
+
+        String toJson() {
+            return "{\"alarmName\":" + LambdaHandler.jsonString(alarmName)
+                    + ",\"instanceId\":" + LambdaHandler.jsonString(instanceId)
+                    + ",\"metricName\":" + LambdaHandler.jsonString(metricName)
+                    + ",\"threshold\":" + threshold
+                    + ",\"status\":\"" + status + "\""
+                    + (error == null ? "" : ",\"error\":" + LambdaHandler.jsonString(error))
+                    + "}";
+        }
+    }
+}
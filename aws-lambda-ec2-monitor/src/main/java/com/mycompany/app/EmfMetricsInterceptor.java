@@ -0,0 +1,75 @@
+package com.mycompany.app;
+
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.interceptor.*;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prints one CloudWatch Embedded Metric Format line per AWS call, so Lambda publishes latency,
+ * retries, throttles and errors per service and operation without any extra API calls.
+ */
+public class EmfMetricsInterceptor implements ExecutionInterceptor {
+
+    private static final String NAMESPACE = "Ec2Monitor/AwsCalls";
+    private static final ExecutionAttribute<Long> START_NANOS = new ExecutionAttribute<>("Ec2MonitorStartNanos");
+    private static final ExecutionAttribute<AtomicInteger> ATTEMPTS = new ExecutionAttribute<>("Ec2MonitorAttempts");
+    private static final ExecutionAttribute<Integer> THROTTLED = new ExecutionAttribute<>("Ec2MonitorThrottled");
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(START_NANOS, System.nanoTime());
+        executionAttributes.putAttribute(ATTEMPTS, new AtomicInteger());
+        executionAttributes.putAttribute(THROTTLED, 0);
+    }
+
+    @Override
+    public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+        executionAttributes.getAttribute(ATTEMPTS).incrementAndGet();
+    }
+
+    @Override
+    public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+        int status = context.httpResponse().statusCode();
+        if (status == 429 || status == 503) {
+            executionAttributes.putAttribute(THROTTLED, executionAttributes.getAttribute(THROTTLED) + 1);
+        }
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        emit(executionAttributes, executionAttributes.getAttribute(THROTTLED), 0);
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        int throttled = executionAttributes.getAttribute(THROTTLED) == null ? 0 : executionAttributes.getAttribute(THROTTLED);
+        if (throttled == 0 && context.exception() instanceof AwsServiceException e && e.isThrottlingException()) {
+            throttled = 1;
+        }
+        emit(executionAttributes, throttled, 1);
+    }
+
+    private void emit(ExecutionAttributes executionAttributes, int throttled, int errors) {
+        Long start = executionAttributes.getAttribute(START_NANOS);
+        if (start == null) {
+            return;
+        }
+        double latencyMillis = (System.nanoTime() - start) / 1_000_000.0;
+        int retries = Math.max(0, executionAttributes.getAttribute(ATTEMPTS).get() - 1);
+        String service = executionAttributes.getAttribute(SdkExecutionAttribute.SERVICE_NAME);
+        String operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+
+        System.out.println("{\"_aws\":{\"Timestamp\":" + System.currentTimeMillis()
+                + ",\"CloudWatchMetrics\":[{\"Namespace\":\"" + NAMESPACE + "\""
+                + ",\"Dimensions\":[[\"Service\",\"Operation\"]]"
+                + ",\"Metrics\":[{\"Name\":\"Latency\",\"Unit\":\"Milliseconds\"},"
+                + "{\"Name\":\"Retries\",\"Unit\":\"Count\"},"
+                + "{\"Name\":\"Throttles\",\"Unit\":\"Count\"},"
+                + "{\"Name\":\"Errors\",\"Unit\":\"Count\"}]}]},"
+                + "\"Service\":\"" + service + "\",\"Operation\":\"" + operation + "\","
+                + "\"Latency\":" + String.format(Locale.ROOT, "%.3f", latencyMillis)
+                + ",\"Retries\":" + retries + ",\"Throttles\":" + throttled + ",\"Errors\":" + errors + "}");
+    }
+}
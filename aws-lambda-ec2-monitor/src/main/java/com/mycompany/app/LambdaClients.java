@@ -0,0 +1,42 @@
+package com.mycompany.app;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProviderChain;
+import software.amazon.awssdk.auth.credentials.ContainerCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
+import software.amazon.awssdk.awscore.client.builder.AwsSyncClientBuilder;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.Region;
+
+/**
+ * Builds the SDK clients with everything the default chains would otherwise discover at cold start:
+ * the region and credentials come straight from the Lambda environment and all clients share one
+ * lightweight URL connection HTTP client.
+ */
+final class LambdaClients {
+
+    private static final SdkHttpClient HTTP_CLIENT = UrlConnectionHttpClient.create();
+
+    private static final Region REGION = Region.of(System.getenv().getOrDefault("AWS_REGION", "us-east-1"));
+
+    // SnapStart functions get the execution role's credentials from the container endpoint in
+    // AWS_CONTAINER_CREDENTIALS_FULL_URI, refreshed after restore; others have them as environment variables
+    private static final AwsCredentialsProvider CREDENTIALS = AwsCredentialsProviderChain.builder()
+            .credentialsProviders(ContainerCredentialsProvider.builder().build(),
+                    EnvironmentVariableCredentialsProvider.create())
+            .build();
+
+    private LambdaClients() {
+    }
+
+    static <B extends AwsClientBuilder<B, C> & AwsSyncClientBuilder<B, C>, C> C build(B builder) {
+        return builder
+                .region(REGION)
+                .credentialsProvider(CREDENTIALS)
+                .httpClient(HTTP_CLIENT)
+                .overrideConfiguration(c -> c.addExecutionInterceptor(new EmfMetricsInterceptor()))
+                .build();
+    }
+}
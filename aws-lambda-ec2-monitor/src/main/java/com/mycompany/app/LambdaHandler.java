@@ -7,19 +7,56 @@ import software.amazon.awssdk.services.cloudwatch.model.*;
 import software.amazon.awssdk.services.ec2.Ec2Client;
 import software.amazon.awssdk.services.sns.SnsClient;
 import software.amazon.awssdk.services.sns.model.PublishRequest;
-import com.fasterxml.jackson.databind.*;
+import org.crac.Core;
+import org.crac.Resource;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
-public class LambdaHandler implements RequestHandler<Map<String, Object>, Map<String, Object>> {
+public class LambdaHandler implements RequestHandler<Map<String, Object>, Map<String, Object>>, Resource {
 
-    private static final String SNS_TOPIC_ARN = "xxxxx";  // Replace with your actual SNS Topic ARN
+    // Set SNS_TOPIC_ARN on the function, or replace the placeholder with your actual SNS Topic ARN
+    private static final String SNS_TOPIC_ARN = System.getenv().getOrDefault("SNS_TOPIC_ARN", "xxxxx");
     private static final String PHONE_NUMBER = "xxxxxx"; // Replace with the user's phone number
 
-    private static final CloudWatchClient cloudWatch = CloudWatchClient.create();
-    private static final SnsClient snsClient = SnsClient.create();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private static final CloudWatchClient cloudWatch = LambdaClients.build(CloudWatchClient.builder());
+    private static final SnsClient snsClient = LambdaClients.build(SnsClient.builder());
+
+    // PutMetricAlarm has a low per-account rate, so a batch only keeps a few calls in flight
+    private static final AlarmBatchProvisioner alarmBatchProvisioner = new AlarmBatchProvisioner(cloudWatch, SNS_TOPIC_ARN,
+            Integer.parseInt(System.getenv().getOrDefault("ALARM_PUT_CONCURRENCY", "5")));
+
+    public LambdaHandler() {
+        // SnapStart calls beforeCheckpoint once init is done, before the snapshot is taken
+        Core.getGlobalContext().register(this);
+    }
+
+    @Override
+    public void beforeCheckpoint(org.crac.Context<? extends Resource> context) {
+        // Load and JIT the request marshalling, signing, HTTP and response paths so restored
+        // environments do not pay for them on the first invoke. Failures only mean less priming.
+        try {
+            cloudWatch.describeAlarms(DescribeAlarmsRequest.builder().maxRecords(1).build());
+        } catch (Exception e) {
+            System.out.println("Priming CloudWatch failed: " + e.getMessage());
+        }
+        try {
+            // ListTopics needs no ARN, so priming does not depend on the topic being configured
+            snsClient.listTopics();
+        } catch (Exception e) {
+            System.out.println("Priming SNS failed: " + e.getMessage());
+        }
+        generateResponse(200, "priming");
+    }
+
+    @Override
+    public void afterRestore(org.crac.Context<? extends Resource> context) {
+    }
 
     @Override
     public Map<String, Object> handleRequest(Map<String, Object> event, Context context) {
@@ -27,6 +64,10 @@ public class LambdaHandler implements RequestHandler<Map<String, Object>, Map<St
 
         Map<String, String> queryParams = (Map<String, String>) event.get("queryStringParameters");
 
+        if (queryParams.get("instanceIds") != null) {
+            return handleBatch(queryParams);
+        }
+
         String instanceId = queryParams.get("instanceId");
         String alarmName = queryParams.get("alarmName");
         double threshold = Double.parseDouble(queryParams.get("threshold"));
@@ -53,25 +94,76 @@ public class LambdaHandler implements RequestHandler<Map<String, Object>, Map<St
     }
 
 
+    /**
+     * Batch mode: instanceIds=i-1,i-2 and metrics=CPUUtilization:80,NetworkIn:5000000 create one alarm
+     * per instance and metric, named alarmName-instanceId-metric. When metrics is omitted, threshold
+     * applies to CPUUtilization. A single SMS summarises the whole batch.
+     */
+    private Map<String, Object> handleBatch(Map<String, String> queryParams) {
+        String alarmPrefix = queryParams.get("alarmName");
+        if (alarmPrefix == null || alarmPrefix.isEmpty()) {
+            return generateResponse(400, "Error: Alarm name must be provided.");
+        }
+        List<String> instanceIds = new ArrayList<>();
+        for (String instanceId : queryParams.get("instanceIds").split(",")) {
+            if (!instanceId.isBlank() && !instanceIds.contains(instanceId.trim())) {
+                instanceIds.add(instanceId.trim());
+            }
+        }
+        if (instanceIds.isEmpty()) {
+            return generateResponse(400, "Error: EC2 instance IDs must be provided.");
+        }
+
+        Map<String, Double> thresholds = new LinkedHashMap<>();
+        try {
+            String metrics = queryParams.get("metrics");
+            if (metrics == null || metrics.isBlank()) {
+                thresholds.put("CPUUtilization", Double.parseDouble(queryParams.get("threshold")));
+            } else {
+                for (String metric : metrics.split(",")) {
+                    String[] parts = metric.trim().split(":");
+                    thresholds.put(parts[0], Double.parseDouble(parts[1]));
+                }
+            }
+        } catch (RuntimeException e) {
+            return generateResponse(400, "Error: metrics must look like CPUUtilization:80,NetworkIn:5000000 "
+                    + "or a threshold must be given.");
+        }
+
+        List<AlarmBatchProvisioner.AlarmResult> results = alarmBatchProvisioner.provision(alarmPrefix, instanceIds, thresholds);
+        Map<AlarmBatchProvisioner.Status, Long> counts = new EnumMap<>(AlarmBatchProvisioner.Status.class);
+        for (AlarmBatchProvisioner.AlarmResult result : results) {
+            counts.merge(result.status(), 1L, Long::sum);
+        }
+
+        boolean notified = false;
+        if (counts.getOrDefault(AlarmBatchProvisioner.Status.UNCHANGED, 0L) < results.size()) {
+            try {
+                snsClient.publish(PublishRequest.builder()
+                        .message("Alarm provisioning for " + instanceIds.size() + " EC2 instances ("
+                                + String.join(", ", thresholds.keySet()) + "): " + counts + ".")
+                        .phoneNumber(PHONE_NUMBER)
+                        .build());
+                notified = true;
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        String body = "{\"summary\":{" + counts.entrySet().stream()
+                .map(count -> "\"" + count.getKey() + "\":" + count.getValue())
+                .collect(Collectors.joining(",")) + "}"
+                + ",\"notified\":" + notified
+                + ",\"alarms\":[" + results.stream()
+                .map(AlarmBatchProvisioner.AlarmResult::toJson)
+                .collect(Collectors.joining(",")) + "]}";
+        // 207 tells the caller to look at the individual results
+        return generateJsonResponse(counts.containsKey(AlarmBatchProvisioner.Status.FAILED) ? 207 : 200, body);
+    }
+
     private void createCPUAlarm(String instanceId, String alarmName, double threshold) {
 
-        // Define the alarm
-        PutMetricAlarmRequest request = PutMetricAlarmRequest.builder()
-                .alarmName(alarmName)
-                .comparisonOperator(ComparisonOperator.GREATER_THAN_THRESHOLD)
-                .threshold(threshold)
-                .period(300)  // 5-minute evaluation period
-                .evaluationPeriods(1)
-                .statistic(Statistic.AVERAGE)
-                .actionsEnabled(true)
-                .alarmActions(SNS_TOPIC_ARN)  // SNS Topic ARN for the action (sending SMS)
-                .namespace("AWS/EC2")  // Namespace for EC2 metrics
-                .metricName("CPUUtilization")  // Metric name
-                .dimensions(Dimension.builder()  // Set dimension for the EC2 instance
-                        .name("InstanceId")
-                        .value(instanceId)
-                        .build())
-                .build();
+        PutMetricAlarmRequest request = alarmBatchProvisioner.alarmRequest(alarmName, instanceId, "CPUUtilization", threshold);
 
         // Create the alarm
         cloudWatch.putMetricAlarm(request);
@@ -93,6 +185,10 @@ public class LambdaHandler implements RequestHandler<Map<String, Object>, Map<St
     }
 
     private Map<String, Object> generateResponse(int statusCode, String message) {
+        return generateJsonResponse(statusCode, "{\"message\":" + jsonString(message) + "}");
+    }
+
+    private Map<String, Object> generateJsonResponse(int statusCode, String body) {
         Map<String, Object> response = new HashMap<>();
         response.put("statusCode", statusCode);
 
@@ -100,21 +196,31 @@ public class LambdaHandler implements RequestHandler<Map<String, Object>, Map<St
         headers.put("Content-Type", "application/json");
         response.put("headers", headers);
 
-        try {
-            response.put("body", objectMapper.writeValueAsString(new Message(message)));
-        } catch (Exception e) {
-            response.put("body", "{\"message\":\"Serialization error\"}");
-        }
+        response.put("body", body);
 
         return response;
     }
 
-    // Helper class for the response body
-    public static class Message {
-        public String message;
-
-        public Message(String message) {
-            this.message = message;
+    // The body is a single string field, which does not justify loading Jackson at cold start
+    static String jsonString(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
         }
+        return json.append('"').toString();
     }
 }
\ No newline at end of file
@@ -2,23 +2,29 @@ package com.mycompany.app;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
+import org.crac.Core;
+import org.crac.Resource;
 import software.amazon.awssdk.services.ec2.Ec2Client;
 import software.amazon.awssdk.services.ec2.model.DescribeInstancesRequest;
-import software.amazon.awssdk.services.ec2.model.DescribeInstancesResponse;
 
 import java.util.List;
 import java.util.stream.Collectors;
 
-public class LambdaHandlerGetEc2Instances implements RequestHandler<Object, List<String>> {
+public class LambdaHandlerGetEc2Instances implements RequestHandler<Object, List<String>>, Resource {
 
-    private static final Ec2Client ec2Client = Ec2Client.create();
+    private static final Ec2Client ec2Client = LambdaClients.build(Ec2Client.builder());
+
+    public LambdaHandlerGetEc2Instances() {
+        // SnapStart calls beforeCheckpoint once init is done, before the snapshot is taken
+        Core.getGlobalContext().register(this);
+    }
 
     @Override
     public List<String> handleRequest(Object object, Context context) {
-        DescribeInstancesRequest request = DescribeInstancesRequest.builder().build();
-        DescribeInstancesResponse response = ec2Client.describeInstances(request);
+        DescribeInstancesRequest request = DescribeInstancesRequest.builder().maxResults(1000).build();
 
-        return response.reservations().stream()
+        // The paginator follows nextToken so large accounts are not truncated to the first page
+        return ec2Client.describeInstancesPaginator(request).reservations().stream()
                 .flatMap(reservation -> reservation.instances().stream())
                 .map(instance -> "Instance ID: " + instance.instanceId() +
                         ", status:" + instance.state().name() +
@@ -27,4 +33,18 @@ public class LambdaHandlerGetEc2Instances implements RequestHandler<Object, List
                         ", publicDnsName:" + instance.publicDnsName())
                 .collect(Collectors.toList());
     }
+
+    @Override
+    public void beforeCheckpoint(org.crac.Context<? extends Resource> context) {
+        // One small page exercises marshalling, signing, HTTP and unmarshalling without listing the whole account
+        try {
+            ec2Client.describeInstances(DescribeInstancesRequest.builder().maxResults(5).build());
+        } catch (Exception e) {
+            System.out.println("Priming EC2 failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void afterRestore(org.crac.Context<? extends Resource> context) {
+    }
 }
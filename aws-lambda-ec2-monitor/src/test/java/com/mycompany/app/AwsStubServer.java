@@ -0,0 +1,65 @@
+package com.mycompany.app;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal AWS query-protocol endpoint (EC2, CloudWatch and SNS) returning empty successful responses,
+ * so the SDK clients can be pointed at it with AWS_ENDPOINT_URL.
+ */
+final class AwsStubServer implements AutoCloseable {
+
+    private static final String EC2_NAMESPACE = "http://ec2.amazonaws.com/doc/2016-11-15/";
+
+    private final HttpServer server;
+
+    AwsStubServer() throws IOException {
+        // Without TCP_NODELAY small responses can wait on delayed ACKs and add ~40 ms per call
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+    }
+
+    String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        String action = "Unknown";
+        for (String parameter : body.split("&")) {
+            if (parameter.startsWith("Action=")) {
+                action = URLDecoder.decode(parameter.substring("Action=".length()), StandardCharsets.UTF_8);
+            }
+        }
+        String xml;
+        if (body.contains("Version=2016-11-15")) {
+            xml = "<" + action + "Response xmlns=\"" + EC2_NAMESPACE + "\"><requestId>stub</requestId></"
+                    + action + "Response>";
+        } else {
+            String result = action.equals("Publish") ? "<MessageId>stub</MessageId>" : "";
+            xml = "<" + action + "Response><" + action + "Result>" + result + "</" + action + "Result>"
+                    + "<ResponseMetadata><RequestId>stub</RequestId></ResponseMetadata></" + action + "Response>";
+        }
+        byte[] response = xml.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/xml");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
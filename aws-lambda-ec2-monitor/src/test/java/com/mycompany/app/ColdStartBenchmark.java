@@ -0,0 +1,84 @@
+package com.mycompany.app;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Repeatable cold-start benchmark for the Lambda handlers. Every sample is a new JVM running
+ * {@link ColdStartProbe} against a local {@link AwsStubServer}, so no AWS account is needed and the
+ * numbers only reflect class loading, client construction and the SDK request path.
+ * <pre>
+ * mvn -Pcold-start-benchmark test-compile exec:exec
+ * </pre>
+ * Set -Dsamples=N to change the number of JVMs started per handler and mode (default 10).
+ */
+public class ColdStartBenchmark {
+
+    private static final List<String> HANDLERS = List.of(
+            LambdaHandlerGetEc2Instances.class.getName(),
+            LambdaHandler.class.getName());
+
+    public static void main(String[] args) throws Exception {
+        int samples = Integer.getInteger("samples", 10);
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String classpath = System.getProperty("java.class.path");
+
+        try (AwsStubServer stub = new AwsStubServer()) {
+            System.out.printf("%-30s %-8s %12s %12s %12s%n", "handler", "mode", "init p50", "first p50", "warm p50");
+            for (String handler : HANDLERS) {
+                for (String mode : List.of("cold", "primed")) {
+                    long[][] results = new long[3][samples];
+                    for (int i = 0; i < samples; i++) {
+                        long[] sample = run(java, classpath, handler, mode, stub.endpoint());
+                        for (int metric = 0; metric < 3; metric++) {
+                            results[metric][i] = sample[metric];
+                        }
+                    }
+                    System.out.printf("%-30s %-8s %9.1f ms %9.1f ms %9.1f ms%n",
+                            handler.substring(handler.lastIndexOf('.') + 1), mode,
+                            median(results[0]), median(results[1]), median(results[2]));
+                }
+            }
+        }
+    }
+
+    private static long[] run(String java, String classpath, String handler, String mode, String endpoint)
+            throws Exception {
+        // Lambda's defaults: a small heap and tiered compilation stopped at C1
+        ProcessBuilder builder = new ProcessBuilder(java, "-Xmx512m", "-XX:+TieredCompilation",
+                "-XX:TieredStopAtLevel=1", "-cp", classpath, ColdStartProbe.class.getName(), handler, mode);
+        builder.environment().put("AWS_ENDPOINT_URL", endpoint);
+        builder.environment().put("AWS_REGION", "us-east-1");
+        builder.environment().put("AWS_ACCESS_KEY_ID", "stub");
+        builder.environment().put("AWS_SECRET_ACCESS_KEY", "stub");
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+
+        List<String> output = new ArrayList<>();
+        long[] result = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("RESULT ")) {
+                    result = Arrays.stream(line.substring(7).split(" ")).mapToLong(Long::parseLong).toArray();
+                } else {
+                    output.add(line);
+                }
+            }
+        }
+        if (process.waitFor() != 0 || result == null) {
+            throw new IllegalStateException("Probe failed for " + handler + ":\n" + String.join("\n", output));
+        }
+        return result;
+    }
+
+    private static double median(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,42 @@
+package com.mycompany.app;
+
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import org.crac.Resource;
+
+import java.util.Map;
+
+/**
+ * Runs in a fresh JVM started by {@link ColdStartBenchmark} and prints one line of timings:
+ * handler init (static initializers and constructor), the first invoke and a second, warm invoke.
+ * With "primed" the SnapStart beforeCheckpoint hook runs between init and the first invoke,
+ * which is what a restored snapshot has already done.
+ */
+public class ColdStartProbe {
+
+    @SuppressWarnings("unchecked")
+    public static void main(String[] args) throws Exception {
+        String handlerClass = args[0];
+        boolean primed = args.length > 1 && args[1].equals("primed");
+        Object event = handlerClass.endsWith("GetEc2Instances") ? null : Map.of("queryStringParameters",
+                Map.of("instanceId", "i-0123456789abcdef0", "alarmName", "cold-start", "threshold", "80"));
+
+        long initStart = System.nanoTime();
+        RequestHandler<Object, Object> handler = (RequestHandler<Object, Object>) Class.forName(handlerClass)
+                .getDeclaredConstructor().newInstance();
+        long initNanos = System.nanoTime() - initStart;
+
+        if (primed) {
+            ((Resource) handler).beforeCheckpoint(null);
+        }
+
+        long firstStart = System.nanoTime();
+        handler.handleRequest(event, null);
+        long firstNanos = System.nanoTime() - firstStart;
+
+        long secondStart = System.nanoTime();
+        handler.handleRequest(event, null);
+        long secondNanos = System.nanoTime() - secondStart;
+
+        System.out.printf("RESULT %d %d %d%n", initNanos, firstNanos, secondNanos);
+    }
+}
@@ -0,0 +1,55 @@
+package aws.ec2connect.benchmark;
+
+import aws.ec2connect.dto.AlarmState;
+import aws.ec2connect.dto.FieldSelection;
+import aws.ec2connect.index.AlarmIndex;
+import aws.ec2connect.service.AlarmIndexService;
+import aws.ec2connect.service.EC2Service;
+import org.openjdk.jmh.annotations.*;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.ec2.model.Instance;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the alarm index from paged DescribeAlarms responses (two alarms per instance) and
+ * answering a 100-instance alarm lookup from it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AlarmBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int fleetSize;
+
+    private AlarmIndexService alarmIndexService;
+    private EC2Service ec2Service;
+    private List<String> lookupIds;
+
+    @Setup
+    public void setUp() {
+        List<Instance> instances = Fixtures.instances(fleetSize);
+        CloudWatchClient cloudWatchClient = Fixtures.cloudWatchClient(Fixtures.alarms(instances));
+        alarmIndexService = new AlarmIndexService(cloudWatchClient);
+        ec2Service = Fixtures.ec2Service(Fixtures.ec2Client(instances, Fixtures.instanceTypes()), cloudWatchClient,
+                Fixtures.pricingService(Fixtures.pricingClient(List.of()), Fixtures.priceCache()));
+        ec2Service.getAlarmsForInstance(instances.getFirst().instanceId(), FieldSelection.ALL);
+        lookupIds = instances.stream()
+                .limit(100)
+                .map(Instance::instanceId)
+                .toList();
+    }
+
+    @Benchmark
+    public AlarmIndex fullSync() {
+        return alarmIndexService.fullSync();
+    }
+
+    @Benchmark
+    public Map<String, List<AlarmState>> lookup100Instances() {
+        return ec2Service.getAlarmsForInstances(lookupIds, FieldSelection.ALL);
+    }
+}
@@ -0,0 +1,223 @@
+package aws.ec2connect.benchmark;
+
+import aws.ec2connect.InMemoryEc2Client;
+import aws.ec2connect.InMemoryPricingClient;
+import aws.ec2connect.cache.PriceCache;
+import aws.ec2connect.client.RequestCoalescer;
+import aws.ec2connect.service.*;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.cloudwatch.model.DescribeAlarmsRequest;
+import software.amazon.awssdk.services.cloudwatch.model.DescribeAlarmsResponse;
+import software.amazon.awssdk.services.cloudwatch.model.MetricAlarm;
+import software.amazon.awssdk.services.cloudwatch.model.StateValue;
+import software.amazon.awssdk.services.cloudwatch.model.Dimension;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.*;
+import software.amazon.awssdk.services.pricing.PricingAsyncClient;
+import software.amazon.awssdk.services.pricing.PricingClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Deterministic SDK responses shaped like recorded ones, and services wired to in-memory clients that
+ * page through them the way the real APIs do. Nothing here touches the network.
+ */
+final class Fixtures {
+
+    static final String[] FAMILIES = {"t3", "t3a", "t4g", "m5", "m5a", "m6i", "m6g", "m7i", "m7g", "c5", "c6i", "c6g",
+            "c7i", "c7g", "r5", "r6i", "r6g", "r7i", "x2idn", "i4i", "g5", "p4d", "inf2", "trn1", "hpc7g"};
+    static final String[] SIZES = {"nano", "micro", "small", "medium", "large", "xlarge", "2xlarge", "4xlarge",
+            "8xlarge", "12xlarge", "16xlarge", "24xlarge", "32xlarge", "48xlarge", "metal"};
+    static final String LOCATION = "US East (N. Virginia)";
+
+    private static final String PRICE_ITEM = resource("/benchmark/get-products-price-item.json");
+    private static final String[] STATES = {"running", "running", "running", "stopped", "pending"};
+
+    private Fixtures() {
+    }
+
+    static List<Instance> instances(int count) {
+        Random random = new Random(42);
+        List<Instance> instances = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String instanceType = FAMILIES[random.nextInt(FAMILIES.length)] + "." + SIZES[4 + random.nextInt(4)];
+            String privateIp = "10." + (i >> 16 & 255) + "." + (i >> 8 & 255) + "." + (i & 255);
+            instances.add(Instance.builder()
+                    .instanceId(String.format("i-%017x", i))
+                    .state(InstanceState.builder().name(STATES[random.nextInt(STATES.length)]).build())
+                    .instanceType(instanceType)
+                    .platformDetails(random.nextInt(10) == 0 ? "Windows" : "Linux/UNIX")
+                    .imageId(String.format("ami-%017x", random.nextInt(64)))
+                    .placement(Placement.builder().availabilityZone("us-east-1" + (char) ('a' + random.nextInt(6))).build())
+                    .privateIpAddress(privateIp)
+                    .publicIpAddress(random.nextBoolean() ? "54." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256) : null)
+                    .publicDnsName("ec2-" + privateIp.replace('.', '-') + ".compute-1.amazonaws.com")
+                    .vpcId(String.format("vpc-%08x", random.nextInt(8)))
+                    .subnetId(String.format("subnet-%08x", random.nextInt(32)))
+                    .securityGroups(GroupIdentifier.builder().groupId(String.format("sg-%08x", random.nextInt(200))).groupName("app").build(),
+                            GroupIdentifier.builder().groupId("sg-00000001").groupName("default").build())
+                    .tags(Tag.builder().key("Name").value("node-" + i).build(),
+                            Tag.builder().key("team").value("team-" + random.nextInt(20)).build(),
+                            Tag.builder().key("env").value(random.nextBoolean() ? "prod" : "staging").build())
+                    .launchTime(Instant.parse("2025-01-01T00:00:00Z").plusSeconds(random.nextInt(10_000_000)))
+                    .build());
+        }
+        return instances;
+    }
+
+    static List<InstanceTypeInfo> instanceTypes() {
+        List<InstanceTypeInfo> types = new ArrayList<>();
+        for (String family : FAMILIES) {
+            for (int size = 0; size < SIZES.length; size++) {
+                int vCpus = Math.max(1, 1 << Math.max(0, size - 3));
+                types.add(InstanceTypeInfo.builder()
+                        .instanceType(family + "." + SIZES[size])
+                        .vCpuInfo(VCpuInfo.builder().defaultVCpus(vCpus).build())
+                        .memoryInfo(MemoryInfo.builder().sizeInMiB(vCpus * 4096L).build())
+                        .build());
+            }
+        }
+        return types;
+    }
+
+    static List<MetricAlarm> alarms(List<Instance> instances) {
+        List<MetricAlarm> alarms = new ArrayList<>(instances.size() * 2);
+        for (Instance instance : instances) {
+            for (String metric : new String[]{"CPUUtilization", "StatusCheckFailed"}) {
+                alarms.add(MetricAlarm.builder()
+                        .alarmName(instance.instanceId() + "-" + metric)
+                        .stateValue(StateValue.OK)
+                        .stateUpdatedTimestamp(Instant.parse("2025-04-01T00:00:00Z"))
+                        .namespace("AWS/EC2")
+                        .metricName(metric)
+                        .dimensions(Dimension.builder().name("InstanceId").value(instance.instanceId()).build())
+                        .threshold(80.0)
+                        .build());
+            }
+        }
+        return alarms;
+    }
+
+    static String priceItem(String instanceType) {
+        return PRICE_ITEM.replace("m5.large", instanceType);
+    }
+
+    /**
+     * An EC2 offer file (index.json) in the published layout: every type in every location, operating
+     * system and tenancy, plus a reserved term per product that the loader has to skip.
+     */
+    static byte[] offerFile(int locations) {
+        String[] operatingSystems = {"Linux", "Windows", "RHEL", "SUSE"};
+        String[] tenancies = {"Shared", "Dedicated", "Host"};
+        List<InstanceTypeInfo> types = instanceTypes();
+        StringBuilder products = new StringBuilder();
+        StringBuilder onDemand = new StringBuilder();
+        StringBuilder reserved = new StringBuilder();
+        int sku = 0;
+        for (int location = 0; location < locations; location++) {
+            for (InstanceTypeInfo type : types) {
+                for (String operatingSystem : operatingSystems) {
+                    for (String tenancy : tenancies) {
+                        String id = String.format("SKU%013d", sku++);
+                        String separator = sku == 1 ? "" : ",";
+                        products.append(separator).append('"').append(id).append("\":{\"sku\":\"").append(id)
+                                .append("\",\"productFamily\":\"Compute Instance\",\"attributes\":{\"servicecode\":\"AmazonEC2\",")
+                                .append("\"location\":\"Region ").append(location).append("\",\"locationType\":\"AWS Region\",")
+                                .append("\"instanceType\":\"").append(type.instanceTypeAsString()).append("\",")
+                                .append("\"vcpu\":\"").append(type.vCpuInfo().defaultVCpus()).append("\",")
+                                .append("\"tenancy\":\"").append(tenancy).append("\",\"operatingSystem\":\"").append(operatingSystem)
+                                .append("\",\"licenseModel\":\"No License required\",\"capacitystatus\":\"Used\",")
+                                .append("\"preInstalledSw\":\"NA\",\"usagetype\":\"BoxUsage:").append(type.instanceTypeAsString())
+                                .append("\",\"operation\":\"RunInstances\",\"regionCode\":\"region-").append(location).append("\"}}");
+                        String price = String.format(Locale.ROOT, "%.10f", (sku % 5000) / 1000.0);
+                        onDemand.append(separator).append('"').append(id).append("\":{\"").append(id)
+                                .append(".JRTCKXETXF\":{\"offerTermCode\":\"JRTCKXETXF\",\"sku\":\"").append(id)
+                                .append("\",\"effectiveDate\":\"2025-04-01T00:00:00Z\",\"priceDimensions\":{\"").append(id)
+                                .append(".JRTCKXETXF.6YS6EN2CT7\":{\"rateCode\":\"").append(id)
+                                .append(".JRTCKXETXF.6YS6EN2CT7\",\"description\":\"On Demand\",\"beginRange\":\"0\",")
+                                .append("\"endRange\":\"Inf\",\"unit\":\"Hrs\",\"pricePerUnit\":{\"USD\":\"").append(price)
+                                .append("\"},\"appliesTo\":[]}},\"termAttributes\":{}}}");
+                        reserved.append(separator).append('"').append(id).append("\":{\"").append(id)
+                                .append(".4NA7Y494T4\":{\"priceDimensions\":{\"").append(id)
+                                .append(".4NA7Y494T4.6YS6EN2CT7\":{\"unit\":\"Hrs\",\"pricePerUnit\":{\"USD\":\"0.01\"}}},")
+                                .append("\"termAttributes\":{\"LeaseContractLength\":\"1yr\"}}}");
+                    }
+                }
+            }
+        }
+        return ("{\"formatVersion\":\"v1.0\",\"offerCode\":\"AmazonEC2\",\"version\":\"20250415203427\","
+                + "\"products\":{" + products + "},\"terms\":{\"OnDemand\":{" + onDemand + "},\"Reserved\":{"
+                + reserved + "}}}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    static Ec2Client ec2Client(List<Instance> instances, List<InstanceTypeInfo> instanceTypes) {
+        return new InMemoryEc2Client(instances, instanceTypes);
+    }
+
+    static CloudWatchClient cloudWatchClient(List<MetricAlarm> alarms) {
+        return new CloudWatchClient() {
+            @Override
+            public DescribeAlarmsResponse describeAlarms(DescribeAlarmsRequest request) {
+                int from = request.nextToken() == null ? 0 : Integer.parseInt(request.nextToken());
+                int to = Math.min(from + 100, alarms.size());
+                return DescribeAlarmsResponse.builder()
+                        .metricAlarms(alarms.subList(from, to))
+                        .nextToken(to < alarms.size() ? String.valueOf(to) : null)
+                        .build();
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    static PricingClient pricingClient(List<String> instanceTypes) {
+        return new InMemoryPricingClient(instanceTypes, Fixtures::priceItem);
+    }
+
+    static PricingService pricingService(PricingClient pricingClient, PriceCache priceCache) {
+        return new PricingService(pricingClient, new DefaultListableBeanFactory().getBeanProvider(PricingAsyncClient.class),
+                priceCache, priceListLoader(pricingClient), false, LOCATION);
+    }
+
+    static PriceListLoader priceListLoader(PricingClient pricingClient) {
+        return new PriceListLoader(pricingClient, false, PriceListLoader.SOURCE_GET_PRODUCTS, "", LOCATION,
+                Duration.ofSeconds(10), Duration.ofMinutes(10));
+    }
+
+    static PriceCache priceCache() {
+        return new PriceCache(4096, Duration.ofHours(12), Duration.ofHours(1));
+    }
+
+    static EC2Service ec2Service(Ec2Client ec2Client, CloudWatchClient cloudWatchClient, PricingService pricingService) {
+        return new EC2Service(ec2Client, pricingService, new InstanceTypeCatalog(ec2Client),
+                new InventorySnapshotService(ec2Client, Duration.ofDays(1), false, Duration.ofMinutes(15)),
+                new AlarmIndexService(cloudWatchClient),
+                new SecurityGroupIndexService(ec2Client),
+                new ImageCatalogService(ec2Client, "rhel:309956199498:RHEL-*"),
+                new DefaultListableBeanFactory().getBeanProvider(InventoryHistoryService.class),
+                new MetricsService(cloudWatchClient, new RequestCoalescer(), Duration.ofMinutes(5), Duration.ofMinutes(1)),
+                8, Duration.ofSeconds(10), 1000);
+    }
+
+    private static String resource(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream(name)) {
+            return new String(Objects.requireNonNull(in, name).readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
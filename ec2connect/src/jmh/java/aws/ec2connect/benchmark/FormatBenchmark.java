@@ -0,0 +1,92 @@
+package aws.ec2connect.benchmark;
+
+import aws.ec2connect.dto.FieldSelection;
+import aws.ec2connect.dto.InstanceInfo;
+import aws.ec2connect.service.InventorySnapshotService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.luben.zstd.ZstdOutputStream;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.Instance;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cost and size of the /ec2 payload per encoding and content coding, streamed the way the converters and
+ * compression filters do it: the mapper writes straight into the compressor. Payload sizes are printed once
+ * per trial, e.g.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="FormatBenchmark -p fields=summary,all"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FormatBenchmark {
+
+    @Param({"10000"})
+    public int fleetSize;
+
+    @Param({"summary"})
+    public String fields;
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    @Param({"identity", "gzip", "zstd"})
+    public String coding;
+
+    private List<InstanceInfo> payload;
+    private ObjectMapper mapper;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Instance> instances = Fixtures.instances(fleetSize);
+        Ec2Client ec2Client = Fixtures.ec2Client(instances, Fixtures.instanceTypes());
+        InventorySnapshotService inventorySnapshotService =
+                new InventorySnapshotService(ec2Client, Duration.ofDays(1), false, Duration.ofMinutes(15));
+        FieldSelection selection = fields.equals("all")
+                ? FieldSelection.ALL
+                : FieldSelection.parse(null, InstanceInfo.class, InstanceInfo.SUMMARY_FIELDS);
+        payload = Fixtures.ec2Service(ec2Client, Fixtures.cloudWatchClient(List.of()),
+                        Fixtures.pricingService(Fixtures.pricingClient(List.of()), Fixtures.priceCache()))
+                .getInstances(inventorySnapshotService.refresh(), selection);
+        mapper = switch (format) {
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+        out = new ByteArrayOutputStream(1 << 20);
+
+        int plainJson = Jackson2ObjectMapperBuilder.json().build().writeValueAsBytes(payload).length;
+        int size = encode();
+        System.out.printf("%n%s/%s, %d instances (%s fields): %,d bytes, %.1f%% of plain JSON%n",
+                format, coding, fleetSize, fields, size, 100.0 * size / plainJson);
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        out.reset();
+        try (OutputStream target = coded(out)) {
+            mapper.writeValue(target, payload);
+        }
+        return out.size();
+    }
+
+    // Level 3 for zstd and the default deflate level for gzip, as the server uses them
+    private OutputStream coded(OutputStream target) throws IOException {
+        return switch (coding) {
+            case "gzip" -> new GZIPOutputStream(target, 8192);
+            case "zstd" -> new ZstdOutputStream(target, 3);
+            default -> target;
+        };
+    }
+}
@@ -0,0 +1,75 @@
+package aws.ec2connect.benchmark;
+
+import aws.ec2connect.dto.FieldSelection;
+import aws.ec2connect.dto.InstanceInfo;
+import aws.ec2connect.service.EC2Service;
+import aws.ec2connect.service.InventorySnapshotService;
+import aws.ec2connect.service.InventorySnapshotService.InventorySnapshot;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.Instance;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /ec2/instances without the network: snapshot refresh from paged DescribeInstances responses,
+ * mapping to InstanceInfo with the default and full field selections, and JSON serialization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class InventoryBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int fleetSize;
+
+    private InventorySnapshotService inventorySnapshotService;
+    private EC2Service ec2Service;
+    private InventorySnapshot snapshot;
+    private FieldSelection summaryFields;
+    private List<InstanceInfo> summaries;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        List<Instance> instances = Fixtures.instances(fleetSize);
+        Ec2Client ec2Client = Fixtures.ec2Client(instances, Fixtures.instanceTypes());
+        inventorySnapshotService = new InventorySnapshotService(ec2Client, Duration.ofDays(1), false, Duration.ofMinutes(15));
+        ec2Service = Fixtures.ec2Service(ec2Client, Fixtures.cloudWatchClient(List.of()),
+                Fixtures.pricingService(Fixtures.pricingClient(List.of()), Fixtures.priceCache()));
+        snapshot = inventorySnapshotService.refresh();
+        summaryFields = FieldSelection.parse(null, InstanceInfo.class, InstanceInfo.SUMMARY_FIELDS);
+        summaries = ec2Service.getInstances(snapshot, summaryFields);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Benchmark
+    public InventorySnapshot refreshSnapshot() {
+        return inventorySnapshotService.refresh();
+    }
+
+    @Benchmark
+    public List<InstanceInfo> mapSummaryFields() {
+        return ec2Service.getInstances(snapshot, summaryFields);
+    }
+
+    @Benchmark
+    public List<InstanceInfo> mapAllFields() {
+        return ec2Service.getInstances(snapshot, FieldSelection.ALL);
+    }
+
+    @Benchmark
+    public byte[] serializeSummaries() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(summaries);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerializeSummaries() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ec2Service.getInstances(snapshot, summaryFields));
+    }
+}
@@ -0,0 +1,104 @@
+package aws.ec2connect.benchmark;
+
+import aws.ec2connect.cache.PriceCache;
+import aws.ec2connect.dto.FieldSelection;
+import aws.ec2connect.dto.InstanceTypeOffer;
+import aws.ec2connect.index.InstanceTypeIndex;
+import aws.ec2connect.index.PriceMatrix;
+import aws.ec2connect.service.EC2Service;
+import aws.ec2connect.service.InstanceTypeCatalog;
+import aws.ec2connect.service.PriceListLoader;
+import aws.ec2connect.service.PricingService;
+import org.openjdk.jmh.annotations.*;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.InstanceTypeInfo;
+import software.amazon.awssdk.services.pricing.PricingClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Price parsing from GetProducts price items and offer files, the instance type catalog, and the
+ * /ec2/instanceTypes path with a warm price cache. None of these depend on the fleet size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PricingBenchmark {
+
+    private List<String> instanceTypeNames;
+    private PriceCache priceCache;
+    private PricingService pricingService;
+    private PriceListLoader priceListLoader;
+    private PriceMatrix priceMatrix;
+    private byte[] offerFile;
+    private InstanceTypeCatalog instanceTypeCatalog;
+    private EC2Service ec2Service;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<InstanceTypeInfo> instanceTypes = Fixtures.instanceTypes();
+        instanceTypeNames = instanceTypes.stream().map(InstanceTypeInfo::instanceTypeAsString).toList();
+        Ec2Client ec2Client = Fixtures.ec2Client(List.of(), instanceTypes);
+        priceCache = Fixtures.priceCache();
+        PricingClient pricingClient = Fixtures.pricingClient(instanceTypeNames);
+        pricingService = Fixtures.pricingService(pricingClient, priceCache);
+        priceListLoader = Fixtures.priceListLoader(pricingClient);
+        offerFile = Fixtures.offerFile(20);
+        priceMatrix = priceListLoader.loadOfferFile(new ByteArrayInputStream(offerFile), "benchmark");
+        instanceTypeCatalog = new InstanceTypeCatalog(ec2Client);
+        ec2Service = Fixtures.ec2Service(ec2Client, Fixtures.cloudWatchClient(List.of()), pricingService);
+        pricingService.prefetch(Fixtures.LOCATION, PricingService.DEFAULT_OPERATING_SYSTEM);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ec2Service.shutdown();
+    }
+
+    /** One price item parsed per call; the cache is bypassed by clearing it. */
+    @Benchmark
+    public String parseSinglePrice() {
+        priceCache.clear();
+        String instanceType = instanceTypeNames.get(next++ % instanceTypeNames.size());
+        return pricingService.getPriceForInstanceType(instanceType, Fixtures.LOCATION);
+    }
+
+    /** Every price item for the location, paged 100 at a time. */
+    @Benchmark
+    public int prefetchAllPrices() {
+        return pricingService.prefetch(Fixtures.LOCATION, PricingService.DEFAULT_OPERATING_SYSTEM);
+    }
+
+    /** The same pages as prefetchAllPrices, streamed into a price matrix instead of parsed into trees. */
+    @Benchmark
+    public PriceMatrix loadMatrixFromGetProducts() throws IOException {
+        return priceListLoader.loadFromGetProducts(List.of(Fixtures.LOCATION));
+    }
+
+    /** A 20-location offer file, about 90k products with on-demand and reserved terms. */
+    @Benchmark
+    public PriceMatrix loadMatrixFromOfferFile() throws IOException {
+        return priceListLoader.loadOfferFile(new ByteArrayInputStream(offerFile), "benchmark");
+    }
+
+    @Benchmark
+    public float matrixLookup() {
+        String instanceType = instanceTypeNames.get(next++ % instanceTypeNames.size());
+        return priceMatrix.price(instanceType, "Region 7", "Windows", "Dedicated");
+    }
+
+    @Benchmark
+    public InstanceTypeIndex buildInstanceTypeIndex() {
+        instanceTypeCatalog.refresh();
+        return instanceTypeCatalog.index();
+    }
+
+    @Benchmark
+    public List<InstanceTypeOffer> searchInstanceTypesWarmCache() {
+        return ec2Service.getInstanceTypes("m5", FieldSelection.ALL);
+    }
+}
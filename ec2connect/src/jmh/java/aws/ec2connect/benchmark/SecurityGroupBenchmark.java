@@ -0,0 +1,63 @@
+package aws.ec2connect.benchmark;
+
+import aws.ec2connect.index.SecurityGroupIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the security group exposure index and answering the /ec2/sc/exposure and /ec2/sc/reachable queries.
+ * Every group has four rules: SSH from a /24, HTTPS from anywhere, a port range from a /16 and an IPv6 rule.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SecurityGroupBenchmark {
+
+    @Param({"1000", "10000", "25000"})
+    public int groups;
+
+    private SecurityGroupIndex index;
+
+    @Setup
+    public void setUp() {
+        index = build();
+    }
+
+    @Benchmark
+    public SecurityGroupIndex buildIndex() {
+        return build();
+    }
+
+    @Benchmark
+    public List<SecurityGroupIndex.Match> sshOpenToTheWorld() {
+        return index.findCovering("0.0.0.0/0", 22, "tcp");
+    }
+
+    @Benchmark
+    public List<SecurityGroupIndex.Match> reachablePostgres() {
+        return index.findReachable("10.42.7.19", 5432, "tcp");
+    }
+
+    @Benchmark
+    public List<SecurityGroupIndex.Match> overlappingPrivateRange() {
+        return index.findOverlapping("10.42.0.0/16", 22, "tcp");
+    }
+
+    private SecurityGroupIndex build() {
+        Random random = new Random(42);
+        SecurityGroupIndex.Builder builder = SecurityGroupIndex.builder();
+        for (int g = 0; g < groups; g++) {
+            builder.addGroup(String.format("sg-%017x", g), "group-" + g, String.format("vpc-%08x", g % 16));
+            builder.addRule("tcp", 22, 22, "10." + random.nextInt(256) + "." + random.nextInt(256) + ".0/24");
+            builder.addRule("tcp", 443, 443, random.nextInt(20) == 0 ? "0.0.0.0/0" : "172.16." + random.nextInt(256) + ".0/24");
+            int from = random.nextInt(60000);
+            builder.addRule("tcp", from, from + random.nextInt(2000), "10." + random.nextInt(256) + ".0.0/16");
+            builder.addRule("-1", null, null, String.format("2600:1f18:%x::/48", random.nextInt(65536)));
+        }
+        return builder.build(Instant.now());
+    }
+}
@@ -2,8 +2,10 @@ package aws.ec2connect;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class Ec2connectApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,117 @@
+package aws.ec2connect.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class PriceCache {
+
+    public static final String NOT_AVAILABLE = "N/A";
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+
+    // Access-ordered so the eldest entry is always the least recently used one
+    private final LinkedHashMap<PriceKey, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public PriceCache(@Value("${ec2connect.pricing.cache.max-entries:4096}") int maxEntries,
+                      @Value("${ec2connect.pricing.cache.ttl:PT12H}") Duration ttl,
+                      @Value("${ec2connect.pricing.cache.negative-ttl:PT1H}") Duration negativeTtl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.entries = new LinkedHashMap<>(Math.min(maxEntries, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PriceKey, Entry> eldest) {
+                if (size() > PriceCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached price, {@link #NOT_AVAILABLE} for a cached negative result,
+     * or null when the key is absent or expired.
+     */
+    public String get(PriceKey key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() <= 0) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        if (NOT_AVAILABLE.equals(entry.price)) {
+            negativeHits.increment();
+        }
+        return entry.price;
+    }
+
+    public void put(PriceKey key, String price) {
+        Entry entry = newEntry(price);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    public void putAll(Map<PriceKey, String> prices) {
+        synchronized (entries) {
+            for (Map.Entry<PriceKey, String> price : prices.entrySet()) {
+                entries.put(price.getKey(), newEntry(price.getValue()));
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public Stats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        return new Stats(size, maxEntries, hitCount, negativeHits.sum(), missCount, evictions.sum(),
+                total == 0 ? 0.0 : (double) hitCount / total);
+    }
+
+    private Entry newEntry(String price) {
+        long ttl = NOT_AVAILABLE.equals(price) ? negativeTtlNanos : ttlNanos;
+        return new Entry(price, System.nanoTime() + ttl);
+    }
+
+    private record Entry(String price, long expiresAt) {
+    }
+
+    public record PriceKey(String instanceType, String location, String operatingSystem) {
+    }
+
+    public record Stats(int size, int maxEntries, long hits, long negativeHits, long misses,
+                        long evictions, double hitRatio) {
+    }
+}
@@ -0,0 +1,162 @@
+package aws.ec2connect.client;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token buckets per AWS service, region and operation whose rate follows AIMD: it grows by a fixed step for every
+ * successful call and is halved when AWS throttles. Background callers only get a token when no interactive
+ * caller is waiting on the same bucket. Regions have their own buckets, as AWS throttles each region separately.
+ */
+public class AdaptiveRateLimiter {
+
+    private final double initialRate;
+    private final double minRate;
+    private final double maxRate;
+    private final double increaseStep;
+    private final double burst;
+    private final long maxWaitNanos;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public AdaptiveRateLimiter(double initialRate, double minRate, double maxRate, double increaseStep,
+                               double burst, Duration maxWait, MeterRegistry meterRegistry) {
+        this.initialRate = initialRate;
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.increaseStep = increaseStep;
+        this.burst = burst;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Blocks until a token is available. Returns false if none became available within the maximum wait.
+     */
+    public boolean acquire(String service, String region, String operation, RequestPriority priority)
+            throws InterruptedException {
+        Bucket bucket = bucket(service, region, operation);
+        long start = System.nanoTime();
+        boolean acquired = bucket.acquire(priority, start + maxWaitNanos);
+        Timer.builder("aws.ratelimit.wait")
+                .tags("service", service, "region", region, "operation", operation, "priority", priority.name())
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return acquired;
+    }
+
+    public void onSuccess(String service, String region, String operation) {
+        bucket(service, region, operation).adjust(false);
+    }
+
+    public void onThrottle(String service, String region, String operation) {
+        bucket(service, region, operation).adjust(true);
+    }
+
+    public Map<String, Stats> stats() {
+        Map<String, Stats> stats = new TreeMap<>();
+        buckets.forEach((key, bucket) -> stats.put(key, bucket.stats()));
+        return stats;
+    }
+
+    private Bucket bucket(String service, String region, String operation) {
+        return buckets.computeIfAbsent(service + "." + region + "." + operation, key -> {
+            Bucket bucket = new Bucket();
+            for (RequestPriority priority : RequestPriority.values()) {
+                Gauge.builder("aws.ratelimit.queue", bucket, b -> b.waiting[priority.ordinal()])
+                        .tags("service", service, "region", region, "operation", operation, "priority", priority.name())
+                        .register(meterRegistry);
+            }
+            Gauge.builder("aws.ratelimit.rate", bucket, b -> b.rate)
+                    .tags("service", service, "region", region, "operation", operation)
+                    .register(meterRegistry);
+            return bucket;
+        });
+    }
+
+    private final class Bucket {
+
+        // A lock rather than synchronized so waiting virtual threads do not pin their carrier
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition tokenReleased = lock.newCondition();
+        private final int[] waiting = new int[RequestPriority.values().length];
+        private volatile double rate = initialRate;
+        private double tokens = Math.min(burst, initialRate);
+        private long refilledAt = System.nanoTime();
+        private long throttles;
+
+        boolean acquire(RequestPriority priority, long deadline) throws InterruptedException {
+            lock.lock();
+            try {
+                waiting[priority.ordinal()]++;
+                try {
+                    while (true) {
+                        refill();
+                        boolean yieldToInteractive = priority == RequestPriority.BACKGROUND
+                                && waiting[RequestPriority.INTERACTIVE.ordinal()] > 0;
+                        if (tokens >= 1 && !yieldToInteractive) {
+                            tokens -= 1;
+                            return true;
+                        }
+                        long now = System.nanoTime();
+                        if (now >= deadline) {
+                            return false;
+                        }
+                        long untilToken = (long) ((1 - Math.min(tokens, 1)) / rate * 1_000_000_000L);
+                        tokenReleased.awaitNanos(Math.max(1_000_000L, Math.min(untilToken, deadline - now)));
+                    }
+                } finally {
+                    waiting[priority.ordinal()]--;
+                    // Let the next waiter re-check, e.g. a background caller that was yielding to us
+                    tokenReleased.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void adjust(boolean throttled) {
+            lock.lock();
+            try {
+                refill();
+                if (throttled) {
+                    throttles++;
+                    rate = Math.max(minRate, rate / 2);
+                    tokens = Math.min(tokens, 0);
+                } else {
+                    rate = Math.min(maxRate, rate + increaseStep);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Stats stats() {
+            lock.lock();
+            try {
+                return new Stats(rate, waiting[RequestPriority.INTERACTIVE.ordinal()],
+                        waiting[RequestPriority.BACKGROUND.ordinal()], throttles);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(Math.max(burst, 1), tokens + (now - refilledAt) / 1_000_000_000.0 * rate);
+            refilledAt = now;
+        }
+    }
+
+    public record Stats(double ratePerSecond, int interactiveWaiting, int backgroundWaiting, long throttles) {
+    }
+}
@@ -0,0 +1,109 @@
+package aws.ec2connect.client;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Collects the AWS calls made while serving one HTTP request. The trace is bound to the request thread only;
+ * tasks the request hands to an executor carry it along when submitted through {@link #wrap(Callable)}.
+ */
+public final class AwsCallTrace {
+
+    private static final ThreadLocal<AwsCallTrace> CURRENT = new ThreadLocal<>();
+
+    private final ConcurrentLinkedQueue<Call> calls = new ConcurrentLinkedQueue<>();
+
+    public static AwsCallTrace current() {
+        return CURRENT.get();
+    }
+
+    public static AwsCallTrace begin() {
+        AwsCallTrace trace = new AwsCallTrace();
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Binds the caller's trace, if any, to the thread that runs the task, and unbinds it when the task ends.
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        AwsCallTrace trace = CURRENT.get();
+        if (trace == null) {
+            return task;
+        }
+        return () -> {
+            AwsCallTrace previous = CURRENT.get();
+            CURRENT.set(trace);
+            try {
+                return task.call();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    public static Runnable wrap(Runnable task) {
+        AwsCallTrace trace = CURRENT.get();
+        if (trace == null) {
+            return task;
+        }
+        return () -> {
+            AwsCallTrace previous = CURRENT.get();
+            CURRENT.set(trace);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    private static void restore(AwsCallTrace previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    void record(String service, String operation, long durationNanos, int attempts) {
+        calls.add(new Call(service, operation, durationNanos, attempts));
+    }
+
+    public int callCount() {
+        return calls.size();
+    }
+
+    /**
+     * Formats the calls as a Server-Timing header value, one entry per operation with the summed duration.
+     */
+    public String toServerTiming() {
+        Map<String, long[]> byOperation = new TreeMap<>();
+        for (Call call : calls) {
+            long[] totals = byOperation.computeIfAbsent(call.service() + "." + call.operation(), k -> new long[3]);
+            totals[0]++;
+            totals[1] += call.durationNanos();
+            totals[2] += call.attempts();
+        }
+        StringBuilder header = new StringBuilder();
+        byOperation.forEach((operation, totals) -> {
+            if (!header.isEmpty()) {
+                header.append(", ");
+            }
+            header.append(operation)
+                    .append(";dur=").append(String.format(Locale.ROOT, "%.1f", totals[1] / 1_000_000.0))
+                    .append(";desc=\"calls=").append(totals[0]).append(" attempts=").append(totals[2]).append('"');
+        });
+        return header.toString();
+    }
+
+    private record Call(String service, String operation, long durationNanos, int attempts) {
+    }
+}
@@ -0,0 +1,35 @@
+package aws.ec2connect.client;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds the AWS calls made for a request as Server-Timing and X-Aws-Calls headers, just before the body is written.
+ */
+@ControllerAdvice
+public class AwsCallTraceAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest
+                && servletRequest.getServletRequest().getAttribute(AwsCallTraceFilter.TRACE_ATTRIBUTE) instanceof AwsCallTrace trace
+                && trace.callCount() > 0) {
+            response.getHeaders().add("Server-Timing", trace.toServerTiming());
+            response.getHeaders().add("X-Aws-Calls", String.valueOf(trace.callCount()));
+        }
+        return body;
+    }
+}
@@ -0,0 +1,31 @@
+package aws.ec2connect.client;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Opens an {@link AwsCallTrace} for every HTTP request. The trace is also stored as a request attribute
+ * so async handlers, which complete on another thread, can still report it.
+ */
+@Component
+public class AwsCallTraceFilter extends OncePerRequestFilter {
+
+    public static final String TRACE_ATTRIBUTE = AwsCallTrace.class.getName();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        request.setAttribute(TRACE_ATTRIBUTE, AwsCallTrace.begin());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            AwsCallTrace.end();
+        }
+    }
+}
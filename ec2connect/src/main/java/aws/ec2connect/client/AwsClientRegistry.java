@@ -0,0 +1,54 @@
+package aws.ec2connect.client;
+
+import software.amazon.awssdk.core.SdkClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Builds EC2 and CloudWatch clients per region on first use. The factories supplied by AwsConfig share
+ * one HTTP client and credentials provider, so an extra region only adds a lightweight client object.
+ */
+public class AwsClientRegistry implements AutoCloseable {
+
+    private final List<Region> regions;
+    private final Function<Region, Ec2Client> ec2Factory;
+    private final Function<Region, CloudWatchClient> cloudWatchFactory;
+    private final Map<Region, Ec2Client> ec2Clients = new ConcurrentHashMap<>();
+    private final Map<Region, CloudWatchClient> cloudWatchClients = new ConcurrentHashMap<>();
+
+    public AwsClientRegistry(List<Region> regions,
+                             Function<Region, Ec2Client> ec2Factory,
+                             Function<Region, CloudWatchClient> cloudWatchFactory) {
+        this.regions = List.copyOf(regions);
+        this.ec2Factory = ec2Factory;
+        this.cloudWatchFactory = cloudWatchFactory;
+    }
+
+    /**
+     * The regions configured with ec2connect.aws.regions, in configuration order.
+     */
+    public List<Region> regions() {
+        return regions;
+    }
+
+    public Ec2Client ec2(Region region) {
+        return ec2Clients.computeIfAbsent(region, ec2Factory);
+    }
+
+    public CloudWatchClient cloudWatch(Region region) {
+        return cloudWatchClients.computeIfAbsent(region, cloudWatchFactory);
+    }
+
+    @Override
+    public void close() {
+        // Closing a client leaves the shared HTTP client open; the Spring context closes that one
+        ec2Clients.values().forEach(SdkClient::close);
+        cloudWatchClients.values().forEach(SdkClient::close);
+    }
+}
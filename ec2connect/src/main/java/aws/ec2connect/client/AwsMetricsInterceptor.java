@@ -0,0 +1,142 @@
+package aws.ec2connect.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.awscore.AwsExecutionAttribute;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.interceptor.*;
+import software.amazon.awssdk.regions.Region;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records latency, retries, throttling, errors and response sizes per AWS service, region and operation,
+ * and adds each call to the {@link AwsCallTrace} of the HTTP request that triggered it.
+ */
+public class AwsMetricsInterceptor implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Long> START_NANOS = new ExecutionAttribute<>("Ec2ConnectStartNanos");
+    private static final ExecutionAttribute<AtomicInteger> ATTEMPTS = new ExecutionAttribute<>("Ec2ConnectAttempts");
+    private static final ExecutionAttribute<AwsCallTrace> TRACE = new ExecutionAttribute<>("Ec2ConnectTrace");
+
+    private final MeterRegistry meterRegistry;
+
+    public AwsMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(START_NANOS, System.nanoTime());
+        executionAttributes.putAttribute(ATTEMPTS, new AtomicInteger());
+        // Runs on the calling thread, also for async clients, so the request's trace is captured here
+        AwsCallTrace trace = AwsCallTrace.current();
+        if (trace != null) {
+            executionAttributes.putAttribute(TRACE, trace);
+        }
+    }
+
+    @Override
+    public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+        executionAttributes.getAttribute(ATTEMPTS).incrementAndGet();
+    }
+
+    @Override
+    public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+        int status = context.httpResponse().statusCode();
+        if (status == 429 || status == 503) {
+            counter("aws.client.throttled", executionAttributes).increment();
+        }
+        context.httpResponse().firstMatchingHeader("Content-Length").ifPresent(length -> {
+            try {
+                DistributionSummary.builder("aws.client.response.size")
+                        .baseUnit("bytes")
+                        .tags("service", service(executionAttributes), "region", region(executionAttributes),
+                                "operation", operation(executionAttributes))
+                        .register(meterRegistry)
+                        .record(Long.parseLong(length));
+            } catch (NumberFormatException ignored) {
+                // A malformed header only costs us one sample
+            }
+        });
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        complete(executionAttributes, "success");
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        Throwable exception = context.exception();
+        String errorCode = exception.getClass().getSimpleName();
+        if (exception instanceof AwsServiceException serviceException) {
+            if (serviceException.awsErrorDetails() != null && serviceException.awsErrorDetails().errorCode() != null) {
+                errorCode = serviceException.awsErrorDetails().errorCode();
+            }
+            // Query-protocol services such as CloudWatch signal throttling with a 400, which afterTransmission cannot see
+            int status = serviceException.statusCode();
+            if (serviceException.isThrottlingException() && status != 429 && status != 503) {
+                counter("aws.client.throttled", executionAttributes).increment();
+            }
+        }
+        Counter.builder("aws.client.errors")
+                .tags("service", service(executionAttributes), "region", region(executionAttributes),
+                        "operation", operation(executionAttributes), "error", errorCode)
+                .register(meterRegistry)
+                .increment();
+        complete(executionAttributes, "error");
+    }
+
+    private void complete(ExecutionAttributes executionAttributes, String outcome) {
+        Long start = executionAttributes.getAttribute(START_NANOS);
+        if (start == null) {
+            return;
+        }
+        long duration = System.nanoTime() - start;
+        int attempts = executionAttributes.getAttribute(ATTEMPTS).get();
+        String service = service(executionAttributes);
+        String region = region(executionAttributes);
+        String operation = operation(executionAttributes);
+
+        Timer.builder("aws.client.calls")
+                .tags("service", service, "region", region, "operation", operation, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(duration, TimeUnit.NANOSECONDS);
+        if (attempts > 1) {
+            DistributionSummary.builder("aws.client.retries")
+                    .tags("service", service, "region", region, "operation", operation)
+                    .register(meterRegistry)
+                    .record(attempts - 1);
+        }
+
+        AwsCallTrace trace = executionAttributes.getAttribute(TRACE);
+        if (trace != null) {
+            trace.record(service, operation, duration, attempts);
+        }
+    }
+
+    private Counter counter(String name, ExecutionAttributes executionAttributes) {
+        return Counter.builder(name)
+                .tags("service", service(executionAttributes), "region", region(executionAttributes),
+                        "operation", operation(executionAttributes))
+                .register(meterRegistry);
+    }
+
+    private static String service(ExecutionAttributes executionAttributes) {
+        return executionAttributes.getAttribute(SdkExecutionAttribute.SERVICE_NAME);
+    }
+
+    private static String region(ExecutionAttributes executionAttributes) {
+        Region region = executionAttributes.getAttribute(AwsExecutionAttribute.AWS_REGION);
+        return region == null ? "global" : region.id();
+    }
+
+    private static String operation(ExecutionAttributes executionAttributes) {
+        return executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+    }
+}
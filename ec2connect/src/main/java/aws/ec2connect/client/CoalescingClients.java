@@ -0,0 +1,59 @@
+package aws.ec2connect.client;
+
+import software.amazon.awssdk.core.SdkRequest;
+
+import java.lang.reflect.*;
+
+/**
+ * Wraps an SDK client interface so its read operations (describe*, get*, list*) go through a {@link RequestCoalescer}.
+ * Paginators are rebuilt on top of the wrapper so each page request is coalesced as well.
+ * Every other method is passed straight to the wrapped client.
+ */
+public final class CoalescingClients {
+
+    private CoalescingClients() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T wrap(Class<T> clientInterface, T client, String serviceName, RequestCoalescer coalescer) {
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (args != null && args.length == 1 && args[0] instanceof SdkRequest request) {
+                    if (method.getName().endsWith("Paginator")) {
+                        // Paginator iterables take (client, firstRequest); handing them the proxy routes each page through here
+                        Constructor<?> constructor = method.getReturnType().getConstructor(clientInterface, method.getParameterTypes()[0]);
+                        return constructor.newInstance(proxy, request);
+                    }
+                    if (isReadOperation(method.getName())) {
+                        String operation = serviceName + "." + method.getName();
+                        return coalescer.execute(operation, request, () -> invokeClient(client, method, args));
+                    }
+                }
+                return invokeClient(client, method, args);
+            }
+        };
+        return (T) Proxy.newProxyInstance(clientInterface.getClassLoader(), new Class<?>[]{clientInterface}, handler);
+    }
+
+    private static boolean isReadOperation(String methodName) {
+        return methodName.startsWith("describe") || methodName.startsWith("get") || methodName.startsWith("list");
+    }
+
+    private static Object invokeClient(Object client, Method method, Object[] args) {
+        try {
+            return method.invoke(client, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new UndeclaredThrowableException(cause);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
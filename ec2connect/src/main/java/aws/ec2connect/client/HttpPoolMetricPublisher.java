@@ -0,0 +1,91 @@
+package aws.ec2connect.client;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Turns the connection pool figures the SDK reports with every request attempt into Micrometer meters:
+ * gauges for the leased, available, pending and maximum connections of each HTTP client, and a timer for
+ * the time spent waiting to acquire a connection. Call latency, retries and errors are already recorded
+ * by {@link AwsMetricsInterceptor}.
+ */
+public class HttpPoolMetricPublisher implements MetricPublisher {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, PoolGauges> pools = new ConcurrentHashMap<>();
+    private final Map<String, Timer> acquireTimers = new ConcurrentHashMap<>();
+
+    public HttpPoolMetricPublisher(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void publish(MetricCollection apiCall) {
+        for (MetricCollection attempt : apiCall.children()) {
+            for (MetricCollection http : attempt.children()) {
+                String client = first(http, HttpMetric.HTTP_CLIENT_NAME);
+                if (client == null) {
+                    continue;
+                }
+                PoolGauges gauges = pools.computeIfAbsent(client, this::registerGauges);
+                set(gauges.leased, first(http, HttpMetric.LEASED_CONCURRENCY));
+                set(gauges.available, first(http, HttpMetric.AVAILABLE_CONCURRENCY));
+                set(gauges.pending, first(http, HttpMetric.PENDING_CONCURRENCY_ACQUIRES));
+                set(gauges.max, first(http, HttpMetric.MAX_CONCURRENCY));
+                Duration acquire = first(http, HttpMetric.CONCURRENCY_ACQUIRE_DURATION);
+                if (acquire != null) {
+                    acquireTimers.computeIfAbsent(client, name -> Timer.builder("aws.http.pool.acquire")
+                                    .description("Time spent waiting for a pooled connection")
+                                    .tags("client", name)
+                                    .publishPercentileHistogram()
+                                    .register(meterRegistry))
+                            .record(acquire);
+                }
+            }
+        }
+    }
+
+    private PoolGauges registerGauges(String client) {
+        PoolGauges gauges = new PoolGauges(new AtomicInteger(), new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+        gauge("aws.http.pool.leased", client, gauges.leased);
+        gauge("aws.http.pool.available", client, gauges.available);
+        gauge("aws.http.pool.pending", client, gauges.pending);
+        gauge("aws.http.pool.max", client, gauges.max);
+        return gauges;
+    }
+
+    private void gauge(String name, String client, AtomicInteger value) {
+        Gauge.builder(name, value, AtomicInteger::get)
+                .tags("client", client)
+                .register(meterRegistry);
+    }
+
+    private static void set(AtomicInteger gauge, Integer value) {
+        if (value != null) {
+            gauge.set(value);
+        }
+    }
+
+    private static <T> T first(MetricCollection collection, SdkMetric<T> metric) {
+        List<T> values = collection.metricValues(metric);
+        return values.isEmpty() ? null : values.getFirst();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private record PoolGauges(AtomicInteger leased, AtomicInteger available, AtomicInteger pending, AtomicInteger max) {
+    }
+}
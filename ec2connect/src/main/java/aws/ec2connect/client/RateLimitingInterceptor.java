@@ -0,0 +1,80 @@
+package aws.ec2connect.client;
+
+import software.amazon.awssdk.awscore.AwsExecutionAttribute;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.interceptor.*;
+import software.amazon.awssdk.regions.Region;
+
+/**
+ * Takes a token from the {@link AdaptiveRateLimiter} before every attempt, including retries,
+ * and feeds throttling responses back into it. Only registered on the blocking clients, which share it across
+ * regions, so each call is keyed by the region of the client that makes it.
+ */
+public class RateLimitingInterceptor implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<RequestPriority> PRIORITY = new ExecutionAttribute<>("Ec2ConnectPriority");
+    private static final ExecutionAttribute<Boolean> THROTTLED = new ExecutionAttribute<>("Ec2ConnectThrottled");
+
+    private final AdaptiveRateLimiter rateLimiter;
+
+    public RateLimitingInterceptor(AdaptiveRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(PRIORITY, RequestPriority.current());
+    }
+
+    @Override
+    public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+        try {
+            if (!rateLimiter.acquire(service(executionAttributes), region(executionAttributes),
+                    operation(executionAttributes), executionAttributes.getAttribute(PRIORITY))) {
+                throw SdkClientException.create("Client-side rate limit wait exceeded for "
+                        + service(executionAttributes) + "." + operation(executionAttributes)
+                        + " in " + region(executionAttributes));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw SdkClientException.create("Interrupted while waiting for the client-side rate limiter", e);
+        }
+    }
+
+    @Override
+    public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+        int status = context.httpResponse().statusCode();
+        if (status == 429 || status == 503) {
+            executionAttributes.putAttribute(THROTTLED, true);
+            rateLimiter.onThrottle(service(executionAttributes), region(executionAttributes), operation(executionAttributes));
+        }
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        rateLimiter.onSuccess(service(executionAttributes), region(executionAttributes), operation(executionAttributes));
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        // Throttling returned as a 400 (CloudWatch's "Throttling") is only visible once the error is unmarshalled
+        if (context.exception() instanceof AwsServiceException e && e.isThrottlingException()
+                && !Boolean.TRUE.equals(executionAttributes.getAttribute(THROTTLED))) {
+            rateLimiter.onThrottle(service(executionAttributes), region(executionAttributes), operation(executionAttributes));
+        }
+    }
+
+    private static String service(ExecutionAttributes executionAttributes) {
+        return executionAttributes.getAttribute(SdkExecutionAttribute.SERVICE_NAME);
+    }
+
+    private static String region(ExecutionAttributes executionAttributes) {
+        Region region = executionAttributes.getAttribute(AwsExecutionAttribute.AWS_REGION);
+        return region == null ? "global" : region.id();
+    }
+
+    private static String operation(ExecutionAttributes executionAttributes) {
+        return executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+    }
+}
@@ -0,0 +1,80 @@
+package aws.ec2connect.client;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution: concurrent calls with an equal operation and request share one in-flight call.
+ * The first caller runs it, later callers wait for and receive the same result or exception.
+ * Nothing is cached once the call completes.
+ */
+public class RequestCoalescer {
+
+    private final Map<CallKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, Object request, Supplier<T> call) {
+        CallKey key = new CallKey(operation, request);
+        Counters operationCounters = counters.computeIfAbsent(operation, k -> new Counters());
+        operationCounters.requests.increment();
+
+        CompletableFuture<Object> leader = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, leader);
+        if (existing != null) {
+            operationCounters.deduplicated.increment();
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                throw rethrow(e.getCause());
+            }
+        }
+
+        try {
+            T result = call.get();
+            inFlight.remove(key, leader);
+            leader.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, leader);
+            leader.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public Map<String, Stats> stats() {
+        Map<String, Stats> stats = new TreeMap<>();
+        counters.forEach((operation, c) -> stats.put(operation, new Stats(c.requests.sum(), c.deduplicated.sum())));
+        return stats;
+    }
+
+    public long deduplicatedCount() {
+        return counters.values().stream().mapToLong(c -> c.deduplicated.sum()).sum();
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new CompletionException(cause);
+    }
+
+    private record CallKey(String operation, Object request) {
+    }
+
+    private static final class Counters {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder deduplicated = new LongAdder();
+    }
+
+    public record Stats(long requests, long deduplicated) {
+    }
+}
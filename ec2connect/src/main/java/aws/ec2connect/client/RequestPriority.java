@@ -0,0 +1,65 @@
+package aws.ec2connect.client;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Priority class used by the {@link AdaptiveRateLimiter}. Threads run as {@link #INTERACTIVE} unless they opened
+ * a {@link #background()} scope or run a task submitted through {@link #wrap(Callable)} from inside one.
+ */
+public enum RequestPriority {
+
+    INTERACTIVE,
+    BACKGROUND;
+
+    private static final ThreadLocal<RequestPriority> CURRENT = new ThreadLocal<>();
+
+    public static RequestPriority current() {
+        RequestPriority priority = CURRENT.get();
+        return priority == null ? INTERACTIVE : priority;
+    }
+
+    /**
+     * Marks AWS calls made by this thread as background work until the scope is closed.
+     */
+    public static Scope background() {
+        return enter(BACKGROUND);
+    }
+
+    /**
+     * Runs the task at the caller's priority, whichever thread picks it up.
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        RequestPriority priority = current();
+        return () -> {
+            try (Scope ignored = enter(priority)) {
+                return task.call();
+            }
+        };
+    }
+
+    public static Runnable wrap(Runnable task) {
+        RequestPriority priority = current();
+        return () -> {
+            try (Scope ignored = enter(priority)) {
+                task.run();
+            }
+        };
+    }
+
+    private static Scope enter(RequestPriority priority) {
+        RequestPriority previous = CURRENT.get();
+        CURRENT.set(priority);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
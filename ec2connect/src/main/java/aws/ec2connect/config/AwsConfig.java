@@ -1,14 +1,45 @@
 package aws.ec2connect.config;
 
+import aws.ec2connect.client.AdaptiveRateLimiter;
+import aws.ec2connect.client.AwsClientRegistry;
+import aws.ec2connect.client.AwsMetricsInterceptor;
+import aws.ec2connect.client.CoalescingClients;
+import aws.ec2connect.client.HttpPoolMetricPublisher;
+import aws.ec2connect.client.RateLimitingInterceptor;
+import aws.ec2connect.client.RequestCoalescer;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
+import software.amazon.awssdk.core.SdkClient;
+import software.amazon.awssdk.core.client.builder.SdkClientBuilder;
+import software.amazon.awssdk.core.client.builder.SdkSyncClientBuilder;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.metrics.MetricPublisher;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchAsyncClient;
+import software.amazon.awssdk.services.ec2.Ec2AsyncClient;
 import software.amazon.awssdk.services.ec2.Ec2Client;
 import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.pricing.PricingAsyncClient;
 import software.amazon.awssdk.services.pricing.PricingClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 
 @Configuration
 public class AwsConfig {
@@ -19,30 +50,262 @@ public class AwsConfig {
 
     private final String region = "xxxxxxxx";
 
+    @Value("${ec2connect.aws.coalescing.enabled:true}")
+    private boolean coalescingEnabled;
+
+    @Value("${ec2connect.aws.rate-limit.enabled:true}")
+    private boolean rateLimitEnabled;
+
+    @Value("${ec2connect.aws.endpoint-override:}")
+    private String endpointOverride;
+
+    @Bean
+    public RequestCoalescer requestCoalescer() {
+        return new RequestCoalescer();
+    }
+
+    @Bean
+    public AwsMetricsInterceptor awsMetricsInterceptor(MeterRegistry meterRegistry) {
+        return new AwsMetricsInterceptor(meterRegistry);
+    }
+
+    @Bean
+    public HttpPoolMetricPublisher httpPoolMetricPublisher(MeterRegistry meterRegistry) {
+        return new HttpPoolMetricPublisher(meterRegistry);
+    }
+
+    @Bean
+    public AdaptiveRateLimiter adaptiveRateLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${ec2connect.aws.rate-limit.initial-rate:10}") double initialRate,
+            @Value("${ec2connect.aws.rate-limit.min-rate:1}") double minRate,
+            @Value("${ec2connect.aws.rate-limit.max-rate:50}") double maxRate,
+            @Value("${ec2connect.aws.rate-limit.increase-step:0.5}") double increaseStep,
+            @Value("${ec2connect.aws.rate-limit.burst:10}") double burst,
+            @Value("${ec2connect.aws.rate-limit.max-wait:PT30S}") Duration maxWait) {
+        return new AdaptiveRateLimiter(initialRate, minRate, maxRate, increaseStep, burst, maxWait, meterRegistry);
+    }
+
+    @Bean
+    public RateLimitingInterceptor rateLimitingInterceptor(AdaptiveRateLimiter adaptiveRateLimiter) {
+        return new RateLimitingInterceptor(adaptiveRateLimiter);
+    }
+
+    @Bean
+    public AwsCredentialsProvider awsCredentialsProvider() {
+        return StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKeyId, secretAccessKey));
+    }
+
+    /**
+     * One connection pool shared by every blocking client, whatever its service or region. Connections are kept
+     * alive between calls and TLS sessions are resumed from the JSSE session cache of the shared socket factory,
+     * so a new connection to a known endpoint skips the full handshake. With spring.threads.virtual.enabled the
+     * pool size, rather than Tomcat's thread count, bounds concurrent AWS calls; watch aws.http.pool.pending.
+     * The Apache pool waits for a free connection inside a synchronized block, which pins the carrier thread,
+     * so size max-connections above the expected concurrency before enabling virtual threads.
+     */
+    @Bean(destroyMethod = "close")
+    public SdkHttpClient sdkHttpClient(@Value("${ec2connect.aws.http.max-connections:100}") int maxConnections,
+                                       @Value("${ec2connect.aws.http.connection-timeout:PT2S}") Duration connectionTimeout,
+                                       @Value("${ec2connect.aws.http.socket-timeout:PT30S}") Duration socketTimeout,
+                                       @Value("${ec2connect.aws.http.connection-acquisition-timeout:PT10S}") Duration acquisitionTimeout,
+                                       @Value("${ec2connect.aws.http.connection-max-idle-time:PT60S}") Duration maxIdleTime,
+                                       @Value("${ec2connect.aws.http.connection-time-to-live:PT0S}") Duration timeToLive,
+                                       @Value("${ec2connect.aws.http.tcp-keep-alive:true}") boolean tcpKeepAlive) {
+        ApacheHttpClient.Builder builder = ApacheHttpClient.builder()
+                .maxConnections(maxConnections)
+                .connectionTimeout(connectionTimeout)
+                .socketTimeout(socketTimeout)
+                .connectionAcquisitionTimeout(acquisitionTimeout)
+                .connectionMaxIdleTime(maxIdleTime)
+                .useIdleConnectionReaper(true)
+                .tcpKeepAlive(tcpKeepAlive);
+        // Zero keeps connections until they go idle; a positive value also recycles busy ones, e.g. after DNS changes
+        if (!timeToLive.isZero()) {
+            builder.connectionTimeToLive(timeToLive);
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public Ec2Client ec2Client(SdkHttpClient sdkHttpClient, AwsCredentialsProvider awsCredentialsProvider,
+                               RequestCoalescer requestCoalescer, AwsMetricsInterceptor awsMetricsInterceptor,
+                               RateLimitingInterceptor rateLimitingInterceptor,
+                               HttpPoolMetricPublisher httpPoolMetricPublisher) {
+        Ec2Client client = syncClient(Ec2Client.builder(), Region.of(region), sdkHttpClient, awsCredentialsProvider,
+                syncOverrides(awsMetricsInterceptor, rateLimitingInterceptor, httpPoolMetricPublisher))
+                .build();
+        return coalescing(Ec2Client.class, client, client.serviceName(), requestCoalescer);
+    }
+
+    @Bean
+    public PricingClient pricingClient(SdkHttpClient sdkHttpClient, AwsCredentialsProvider awsCredentialsProvider,
+                                       RequestCoalescer requestCoalescer, AwsMetricsInterceptor awsMetricsInterceptor,
+                                       RateLimitingInterceptor rateLimitingInterceptor,
+                                       HttpPoolMetricPublisher httpPoolMetricPublisher) {
+        PricingClient client = syncClient(PricingClient.builder(), Region.of(region), sdkHttpClient, awsCredentialsProvider,
+                syncOverrides(awsMetricsInterceptor, rateLimitingInterceptor, httpPoolMetricPublisher))
+                .build();
+        return coalescing(PricingClient.class, client, client.serviceName(), requestCoalescer);
+    }
+
+    @Bean
+    public CloudWatchClient cloudWatchClient(SdkHttpClient sdkHttpClient, AwsCredentialsProvider awsCredentialsProvider,
+                                             RequestCoalescer requestCoalescer, AwsMetricsInterceptor awsMetricsInterceptor,
+                                             RateLimitingInterceptor rateLimitingInterceptor,
+                                             HttpPoolMetricPublisher httpPoolMetricPublisher) {
+        CloudWatchClient client = syncClient(CloudWatchClient.builder(), Region.of(region), sdkHttpClient, awsCredentialsProvider,
+                syncOverrides(awsMetricsInterceptor, rateLimitingInterceptor, httpPoolMetricPublisher))
+                .build();
+        return coalescing(CloudWatchClient.class, client, client.serviceName(), requestCoalescer);
+    }
+
+    // Receives the EC2 state-change events when ec2connect.events.source=sqs; not coalesced, since receives consume messages
+    @Bean
+    @ConditionalOnProperty(name = "ec2connect.events.source", havingValue = "sqs")
+    public SqsClient sqsClient(SdkHttpClient sdkHttpClient, AwsCredentialsProvider awsCredentialsProvider,
+                               AwsMetricsInterceptor awsMetricsInterceptor, HttpPoolMetricPublisher httpPoolMetricPublisher) {
+        return syncClient(SqsClient.builder(), Region.of(region), sdkHttpClient, awsCredentialsProvider,
+                overrides(httpPoolMetricPublisher, awsMetricsInterceptor))
+                .build();
+    }
+
+    /**
+     * Per-region EC2 and CloudWatch clients for the fleet endpoints. ec2connect.aws.regions lists the regions
+     * to cover; when it is empty only the default region is used.
+     */
+    @Bean(destroyMethod = "close")
+    public AwsClientRegistry awsClientRegistry(SdkHttpClient sdkHttpClient, AwsCredentialsProvider awsCredentialsProvider,
+                                               RequestCoalescer requestCoalescer, AwsMetricsInterceptor awsMetricsInterceptor,
+                                               RateLimitingInterceptor rateLimitingInterceptor,
+                                               HttpPoolMetricPublisher httpPoolMetricPublisher,
+                                               @Value("${ec2connect.aws.regions:}") String regions) {
+        List<Region> configured = Arrays.stream(regions.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .map(Region::of)
+                .toList();
+        ClientOverrideConfiguration overrides = syncOverrides(awsMetricsInterceptor, rateLimitingInterceptor, httpPoolMetricPublisher);
+        // The region is part of the coalescing key, so the same call in two regions is never shared
+        return new AwsClientRegistry(configured.isEmpty() ? List.of(Region.of(region)) : configured,
+                fleetRegion -> {
+                    Ec2Client client = syncClient(Ec2Client.builder(), fleetRegion, sdkHttpClient, awsCredentialsProvider, overrides)
+                            .build();
+                    return coalescing(Ec2Client.class, client, client.serviceName() + "@" + fleetRegion, requestCoalescer);
+                },
+                fleetRegion -> {
+                    CloudWatchClient client = syncClient(CloudWatchClient.builder(), fleetRegion, sdkHttpClient, awsCredentialsProvider, overrides)
+                            .build();
+                    return coalescing(CloudWatchClient.class, client, client.serviceName() + "@" + fleetRegion, requestCoalescer);
+                });
+    }
+
+    // Region, credentials, the shared connection pool, overrides and the endpoint override, the same for every blocking client
+    private <B extends AwsClientBuilder<B, ?> & SdkSyncClientBuilder<B, ?>> B syncClient(
+            B builder, Region clientRegion, SdkHttpClient sdkHttpClient, AwsCredentialsProvider awsCredentialsProvider,
+            ClientOverrideConfiguration overrides) {
+        return endpoint(builder)
+                .region(clientRegion)
+                .credentialsProvider(awsCredentialsProvider)
+                .httpClient(sdkHttpClient)
+                .overrideConfiguration(overrides);
+    }
+
+    // The rate limiter blocks while waiting for a token, so it is only installed on the blocking clients
+    private ClientOverrideConfiguration syncOverrides(AwsMetricsInterceptor awsMetricsInterceptor,
+                                                      RateLimitingInterceptor rateLimitingInterceptor,
+                                                      MetricPublisher metricPublisher) {
+        return rateLimitEnabled
+                ? overrides(metricPublisher, rateLimitingInterceptor, awsMetricsInterceptor)
+                : overrides(metricPublisher, awsMetricsInterceptor);
+    }
+
+    private static ClientOverrideConfiguration overrides(MetricPublisher metricPublisher, ExecutionInterceptor... interceptors) {
+        ClientOverrideConfiguration.Builder builder = ClientOverrideConfiguration.builder()
+                .addMetricPublisher(metricPublisher);
+        for (ExecutionInterceptor interceptor : interceptors) {
+            builder.addExecutionInterceptor(interceptor);
+        }
+        return builder.build();
+    }
+
+    // Sends every client to one endpoint, such as the local stub used by the load tests
+    private <B extends SdkClientBuilder<B, ?>> B endpoint(B builder) {
+        if (!endpointOverride.isBlank()) {
+            builder.endpointOverride(URI.create(endpointOverride));
+        }
+        return builder;
+    }
+
+    // Identical concurrent read calls share one in-flight request
+    private <T extends SdkClient> T coalescing(Class<T> clientInterface, T client, String name,
+                                               RequestCoalescer requestCoalescer) {
+        if (!coalescingEnabled) {
+            return client;
+        }
+        return CoalescingClients.wrap(clientInterface, client, name, requestCoalescer);
+    }
+
+    // Non-blocking clients used by the /ec2/async endpoints when ec2connect.aws.async.enabled=true
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "ec2connect.aws.async.enabled", havingValue = "true")
+    public SdkAsyncHttpClient sdkAsyncHttpClient(@Value("${ec2connect.aws.http.max-connections:100}") int maxConnections,
+                                                 @Value("${ec2connect.aws.http.connection-timeout:PT2S}") Duration connectionTimeout,
+                                                 @Value("${ec2connect.aws.http.socket-timeout:PT30S}") Duration socketTimeout,
+                                                 @Value("${ec2connect.aws.http.connection-acquisition-timeout:PT10S}") Duration acquisitionTimeout,
+                                                 @Value("${ec2connect.aws.http.connection-max-idle-time:PT60S}") Duration maxIdleTime,
+                                                 @Value("${ec2connect.aws.http.tcp-keep-alive:true}") boolean tcpKeepAlive) {
+        return NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(maxConnections)
+                .connectionTimeout(connectionTimeout)
+                .readTimeout(socketTimeout)
+                .writeTimeout(socketTimeout)
+                .connectionAcquisitionTimeout(acquisitionTimeout)
+                .connectionMaxIdleTime(maxIdleTime)
+                .tcpKeepAlive(tcpKeepAlive)
+                .build();
+    }
+
     @Bean
-    public Ec2Client ec2Client() {
-        AwsBasicCredentials awsCredentials = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
-        return Ec2Client.builder()
+    @ConditionalOnProperty(name = "ec2connect.aws.async.enabled", havingValue = "true")
+    public Ec2AsyncClient ec2AsyncClient(SdkAsyncHttpClient sdkAsyncHttpClient,
+                                         AwsCredentialsProvider awsCredentialsProvider,
+                                         AwsMetricsInterceptor awsMetricsInterceptor,
+                                         HttpPoolMetricPublisher httpPoolMetricPublisher) {
+        return endpoint(Ec2AsyncClient.builder())
                 .region(Region.of(region))
-                .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
+                .credentialsProvider(awsCredentialsProvider)
+                .overrideConfiguration(overrides(httpPoolMetricPublisher, awsMetricsInterceptor))
+                .httpClient(sdkAsyncHttpClient)
                 .build();
     }
 
     @Bean
-    public PricingClient pricingClient() {
-        AwsBasicCredentials awsCredentials = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
-        return PricingClient.builder()
+    @ConditionalOnProperty(name = "ec2connect.aws.async.enabled", havingValue = "true")
+    public PricingAsyncClient pricingAsyncClient(SdkAsyncHttpClient sdkAsyncHttpClient,
+                                                 AwsCredentialsProvider awsCredentialsProvider,
+                                                 AwsMetricsInterceptor awsMetricsInterceptor,
+                                                 HttpPoolMetricPublisher httpPoolMetricPublisher) {
+        return endpoint(PricingAsyncClient.builder())
                 .region(Region.of(region))
-                .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
+                .credentialsProvider(awsCredentialsProvider)
+                .overrideConfiguration(overrides(httpPoolMetricPublisher, awsMetricsInterceptor))
+                .httpClient(sdkAsyncHttpClient)
                 .build();
     }
 
     @Bean
-    public CloudWatchClient cloudWatchClient  () {
-        AwsBasicCredentials awsCredentials = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
-        return CloudWatchClient.builder()
+    @ConditionalOnProperty(name = "ec2connect.aws.async.enabled", havingValue = "true")
+    public CloudWatchAsyncClient cloudWatchAsyncClient(SdkAsyncHttpClient sdkAsyncHttpClient,
+                                                       AwsCredentialsProvider awsCredentialsProvider,
+                                                       AwsMetricsInterceptor awsMetricsInterceptor,
+                                                       HttpPoolMetricPublisher httpPoolMetricPublisher) {
+        return endpoint(CloudWatchAsyncClient.builder())
                 .region(Region.of(region))
-                .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
+                .credentialsProvider(awsCredentialsProvider)
+                .overrideConfiguration(overrides(httpPoolMetricPublisher, awsMetricsInterceptor))
+                .httpClient(sdkAsyncHttpClient)
                 .build();
     }
 }
@@ -0,0 +1,40 @@
+package aws.ec2connect.config;
+
+import aws.ec2connect.events.FileInstanceEventSource;
+import aws.ec2connect.events.InMemoryInstanceEventSource;
+import aws.ec2connect.events.InstanceEventSource;
+import aws.ec2connect.events.SqsInstanceEventSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.services.sqs.SqsClient;
+
+import java.nio.file.Path;
+
+/**
+ * The queue the instance state-change events are read from, chosen by ec2connect.events.source:
+ * sqs in production, memory or file when running locally.
+ */
+@Configuration
+public class EventsConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "ec2connect.events.source", havingValue = "sqs")
+    public InstanceEventSource sqsInstanceEventSource(SqsClient sqsClient,
+                                                      @Value("${ec2connect.events.sqs.queue-url}") String queueUrl) {
+        return new SqsInstanceEventSource(sqsClient, queueUrl);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "ec2connect.events.source", havingValue = "file")
+    public InstanceEventSource fileInstanceEventSource(@Value("${ec2connect.events.file.path}") Path path) {
+        return new FileInstanceEventSource(path);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "ec2connect.events.source", havingValue = "memory", matchIfMissing = true)
+    public InstanceEventSource inMemoryInstanceEventSource() {
+        return new InMemoryInstanceEventSource();
+    }
+}
@@ -0,0 +1,37 @@
+package aws.ec2connect.config;
+
+import aws.ec2connect.client.RequestCoalescer;
+import aws.ec2connect.service.PricingService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Publishes the counters behind /ec2/stats through Micrometer so they sit next to the AWS client metrics.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder pricingCacheMetrics(PricingService pricingService) {
+        return registry -> {
+            Gauge.builder("ec2connect.pricing.cache.size", pricingService, p -> p.cacheStats().size())
+                    .register(registry);
+            FunctionCounter.builder("ec2connect.pricing.cache.hits", pricingService, p -> p.cacheStats().hits())
+                    .register(registry);
+            FunctionCounter.builder("ec2connect.pricing.cache.misses", pricingService, p -> p.cacheStats().misses())
+                    .register(registry);
+            FunctionCounter.builder("ec2connect.pricing.cache.evictions", pricingService, p -> p.cacheStats().evictions())
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder coalescingMetrics(RequestCoalescer requestCoalescer) {
+        return registry -> FunctionCounter.builder("ec2connect.aws.coalesced", requestCoalescer,
+                        RequestCoalescer::deduplicatedCount)
+                .register(registry);
+    }
+}
@@ -0,0 +1,87 @@
+package aws.ec2connect.controller;
+
+import aws.ec2connect.dto.AlarmState;
+import aws.ec2connect.dto.FieldSelection;
+import aws.ec2connect.dto.ImageInfo;
+import aws.ec2connect.dto.InstanceInfo;
+import aws.ec2connect.dto.InstanceTypeOffer;
+import aws.ec2connect.dto.SecurityGroup;
+import aws.ec2connect.service.AsyncEC2Service;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Mirrors the read and start/stop endpoints of {@link Ec2Controller} under /ec2/async.
+ * Handlers return CompletableFutures, so the servlet thread is released while the AWS call is in flight.
+ */
+@RestController
+@RequestMapping("/ec2/async")
+@ConditionalOnProperty(name = "ec2connect.aws.async.enabled", havingValue = "true")
+public class AsyncEc2Controller {
+
+    private final AsyncEC2Service asyncEc2Service;
+
+    public AsyncEc2Controller(AsyncEC2Service asyncEc2Service) {
+        this.asyncEc2Service = asyncEc2Service;
+    }
+
+    @GetMapping
+    public CompletableFuture<ResponseEntity<List<InstanceInfo>>> listInstances(@RequestParam(required = false) String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, InstanceInfo.class, InstanceInfo.SUMMARY_FIELDS);
+        return asyncEc2Service.getInstances(selection).thenApply(ResponseEntity::ok);
+    }
+
+    @GetMapping("/{instanceId}")
+    public CompletableFuture<ResponseEntity<InstanceInfo>> instanceDetails(@PathVariable String instanceId,
+                                                                           @RequestParam(required = false) String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, InstanceInfo.class);
+        return asyncEc2Service.getInstanceDetails(instanceId, selection).thenApply(ResponseEntity::ok);
+    }
+
+    @PostMapping("/stop")
+    public CompletableFuture<ResponseEntity<String>> stopInstances(@RequestParam String instanceId) {
+        return asyncEc2Service.stopInstance(instanceId).thenApply(ResponseEntity::ok);
+    }
+
+    @PostMapping("/start")
+    public CompletableFuture<ResponseEntity<String>> startInstances(@RequestParam String instanceId) {
+        return asyncEc2Service.startInstance(instanceId).thenApply(ResponseEntity::ok);
+    }
+
+    @GetMapping("/sc/{groupId}")
+    public CompletableFuture<ResponseEntity<List<SecurityGroup>>> getSecurityGroupDetails(@PathVariable String groupId,
+                                                                                          @RequestParam(required = false) String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, SecurityGroup.class);
+        return asyncEc2Service.getSecurityGroupRules(groupId, selection).thenApply(ResponseEntity::ok);
+    }
+
+    @GetMapping("/sc")
+    public CompletableFuture<ResponseEntity<List<SecurityGroup>>> getSecurityGroups(@RequestParam(required = false) String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, SecurityGroup.class, SecurityGroup.SUMMARY_FIELDS);
+        return asyncEc2Service.getAllSecurityGroups(selection).thenApply(ResponseEntity::ok);
+    }
+
+    @GetMapping("/types/{instanceTypeName}")
+    public CompletableFuture<ResponseEntity<List<InstanceTypeOffer>>> getInstanceTypes(@PathVariable String instanceTypeName,
+                                                                                       @RequestParam(required = false) String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, InstanceTypeOffer.class);
+        return asyncEc2Service.getInstanceTypes(instanceTypeName, selection).thenApply(ResponseEntity::ok);
+    }
+
+    @GetMapping("/imagesRH")
+    public CompletableFuture<ResponseEntity<List<ImageInfo>>> getImagesForRedHat(@RequestParam(required = false) String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, ImageInfo.class);
+        return asyncEc2Service.getImagesForRedHat(selection).thenApply(ResponseEntity::ok);
+    }
+
+    @GetMapping("/alarms/{instanceId}")
+    public CompletableFuture<ResponseEntity<List<AlarmState>>> getAlarms(@PathVariable String instanceId,
+                                                                         @RequestParam(required = false) String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, AlarmState.class);
+        return asyncEc2Service.getAlarmsForInstance(instanceId, selection).thenApply(ResponseEntity::ok);
+    }
+}
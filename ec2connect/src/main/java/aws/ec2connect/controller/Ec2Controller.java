@@ -1,31 +1,117 @@
 package aws.ec2connect.controller;
 
+import aws.ec2connect.dto.AlarmState;
+import aws.ec2connect.dto.BatchInstanceRequest;
+import aws.ec2connect.dto.FieldSelection;
+import aws.ec2connect.dto.ImageInfo;
+import aws.ec2connect.dto.ImagePage;
+import aws.ec2connect.dto.InstanceActionResult;
+import aws.ec2connect.dto.InstanceInfo;
+import aws.ec2connect.dto.InstanceMetrics;
+import aws.ec2connect.dto.InstancePrice;
+import aws.ec2connect.dto.InstanceTypeOffer;
 import aws.ec2connect.dto.SecurityGroup;
+import aws.ec2connect.index.ImageCatalog;
+import aws.ec2connect.index.SecurityGroupIndex;
 import aws.ec2connect.service.EC2Service;
+import aws.ec2connect.service.InstanceBatchService;
+import aws.ec2connect.service.InstanceStreamService;
+import aws.ec2connect.service.PricingService;
+import aws.ec2connect.service.InventorySnapshotService.InventorySnapshot;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import software.amazon.awssdk.services.ec2.model.InstanceTypeInfo;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import software.amazon.awssdk.core.exception.SdkException;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/ec2")
 public class Ec2Controller {
 
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
     private final EC2Service ec2Service;
+    private final InstanceStreamService instanceStreamService;
+    private final InstanceBatchService instanceBatchService;
 
-    public Ec2Controller(EC2Service ec2Service) {
+    public Ec2Controller(EC2Service ec2Service,
+                         InstanceStreamService instanceStreamService,
+                         InstanceBatchService instanceBatchService) {
         this.ec2Service = ec2Service;
+        this.instanceStreamService = instanceStreamService;
+        this.instanceBatchService = instanceBatchService;
     }
 
     @GetMapping
-    public ResponseEntity<List<String>> listInstances() {
-        return ResponseEntity.ok(ec2Service.getInstances());
+    public ResponseEntity<List<InstanceInfo>> listInstances(@RequestParam(required = false) String fields,
+                                                            WebRequest webRequest) {
+        FieldSelection selection = FieldSelection.parse(fields, InstanceInfo.class, InstanceInfo.SUMMARY_FIELDS);
+        InventorySnapshot snapshot;
+        try {
+            snapshot = ec2Service.getInventorySnapshot();
+        } catch (SdkException e) {
+            // No snapshot at all and AWS is failing; fall back to the history database when it is enabled
+            return ResponseEntity.ok()
+                    .header("X-Data-Source", "history")
+                    .body(ec2Service.getInstancesFromHistory(selection, e));
+        }
+        // Answers 304 Not Modified when the client already holds this inventory version
+        if (webRequest.checkNotModified(snapshot.eTag())) {
+            return null;
+        }
+        return ResponseEntity.ok(ec2Service.getInstances(snapshot, selection));
     }
 
     @GetMapping("/{instanceId}")
-    public ResponseEntity<String> instanceDetails(@PathVariable String instanceId){
-        return ResponseEntity.ok(ec2Service.getInstanceDetails(instanceId));
+    public ResponseEntity<InstanceInfo> instanceDetails(@PathVariable String instanceId,
+                                                        @RequestParam(required = false) String fields,
+                                                        WebRequest webRequest){
+        FieldSelection selection = FieldSelection.parse(fields, InstanceInfo.class);
+        InventorySnapshot snapshot = ec2Service.getInventorySnapshot();
+        if (webRequest.checkNotModified(snapshot.eTag())) {
+            return null;
+        }
+        return ResponseEntity.ok(ec2Service.getInstanceDetails(snapshot, instanceId, selection));
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamInstances(@RequestParam(defaultValue = "ndjson") String format,
+                                                                 @RequestParam(defaultValue = "1000") int pageSize,
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 @RequestParam(defaultValue = "0") int maxPages,
+                                                                 @RequestParam(required = false) String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, InstanceInfo.class, InstanceInfo.SUMMARY_FIELDS);
+        if (format.equalsIgnoreCase("json")) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> instanceStreamService.writeJsonArray(out, pageSize, cursor, maxPages, selection));
+        }
+        if (format.equalsIgnoreCase("cbor")) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_CBOR)
+                    .body(out -> instanceStreamService.writeCborArray(out, pageSize, cursor, maxPages, selection));
+        }
+        if (format.equalsIgnoreCase("smile")) {
+            return ResponseEntity.ok()
+                    .contentType(SMILE)
+                    .body(out -> instanceStreamService.writeSmileArray(out, pageSize, cursor, maxPages, selection));
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> instanceStreamService.writeNdjson(out, pageSize, cursor, maxPages, selection));
+    }
+
+    @PostMapping("/inventory/refresh")
+    public ResponseEntity<String> refreshInventory() {
+        InventorySnapshot snapshot = ec2Service.refreshInventory();
+        return ResponseEntity.ok().eTag(snapshot.eTag())
+                .body("Inventory version " + snapshot.version() + " with " + snapshot.instances().size() + " instances.");
     }
 
     @PostMapping("/stop")
@@ -38,15 +124,44 @@ public class Ec2Controller {
         return ResponseEntity.ok(ec2Service.startInstance(instanceId));
     }
 
+    @PostMapping("/batch/stop")
+    public ResponseEntity<List<InstanceActionResult>> stopInstances(@RequestBody BatchInstanceRequest request) {
+        return ResponseEntity.ok(instanceBatchService.stopInstances(request));
+    }
+
+    @PostMapping("/batch/start")
+    public ResponseEntity<List<InstanceActionResult>> startInstances(@RequestBody BatchInstanceRequest request) {
+        return ResponseEntity.ok(instanceBatchService.startInstances(request));
+    }
+
+    @GetMapping("/sc/exposure")
+    public ResponseEntity<List<SecurityGroupIndex.Match>> getExposure(@RequestParam(required = false) String cidr,
+                                                                      @RequestParam(required = false) Integer port,
+                                                                      @RequestParam(defaultValue = "tcp") String protocol,
+                                                                      @RequestParam(defaultValue = "covers") String match,
+                                                                      @RequestParam(defaultValue = "1000") int limit) {
+        return ResponseEntity.ok(ec2Service.getExposure(cidr, port, protocol, match, limit));
+    }
+
+    @GetMapping("/sc/reachable")
+    public ResponseEntity<List<SecurityGroupIndex.Match>> getReachable(@RequestParam String ip,
+                                                                       @RequestParam int port,
+                                                                       @RequestParam(defaultValue = "tcp") String protocol) {
+        return ResponseEntity.ok(ec2Service.getReachable(ip, port, protocol));
+    }
+
     @GetMapping("/sc/{groupId}")
-    public ResponseEntity<List<SecurityGroup>> getSecurityGroupDetails(@PathVariable String groupId) {
-        List<SecurityGroup> securityGroups = ec2Service.getSecurityGroupRules(groupId);
+    public ResponseEntity<List<SecurityGroup>> getSecurityGroupDetails(@PathVariable String groupId,
+                                                                       @RequestParam(required = false) String fields) {
+        List<SecurityGroup> securityGroups = ec2Service.getSecurityGroupRules(groupId,
+                FieldSelection.parse(fields, SecurityGroup.class));
         return ResponseEntity.ok(securityGroups);
     }
 
     @GetMapping("/sc")
-    public ResponseEntity<List<String>> getSecurityGroups() {
-        return ResponseEntity.ok(ec2Service.getAllSecurityGroups());
+    public ResponseEntity<List<SecurityGroup>> getSecurityGroups(@RequestParam(required = false) String fields) {
+        return ResponseEntity.ok(ec2Service.getAllSecurityGroups(
+                FieldSelection.parse(fields, SecurityGroup.class, SecurityGroup.SUMMARY_FIELDS)));
     }
 
     @PostMapping("/sc")
@@ -58,25 +173,67 @@ public class Ec2Controller {
     }
 
     @GetMapping("/types/{instanceTypeName}")
-    public ResponseEntity<List<String>> getInstanceTypes(@PathVariable String instanceTypeName) {
-        return ResponseEntity.ok(ec2Service.getInstanceTypes(instanceTypeName));
+    public ResponseEntity<List<InstanceTypeOffer>> getInstanceTypes(@PathVariable String instanceTypeName,
+                                                                    @RequestParam(required = false) String fields) {
+        return ResponseEntity.ok(ec2Service.getInstanceTypes(instanceTypeName,
+                FieldSelection.parse(fields, InstanceTypeOffer.class)));
+    }
+
+    @GetMapping("/prices/{instanceType}")
+    public ResponseEntity<InstancePrice> getOnDemandPrice(@PathVariable String instanceType,
+                                                          @RequestParam(defaultValue = "US East (N. Virginia)") String location,
+                                                          @RequestParam(defaultValue = PricingService.DEFAULT_OPERATING_SYSTEM) String operatingSystem,
+                                                          @RequestParam(defaultValue = PricingService.DEFAULT_TENANCY) String tenancy) {
+        return ResponseEntity.of(ec2Service.getOnDemandPrice(instanceType, location, operatingSystem, tenancy));
     }
 
     @GetMapping("/imagesRH")
-    public ResponseEntity<List<String>> getImagesForRedHat() {
-        return ResponseEntity.ok(ec2Service.getImagesForRedHat());
+    public ResponseEntity<List<ImageInfo>> getImagesForRedHat(@RequestParam(required = false) String fields) {
+        return ResponseEntity.ok(ec2Service.getImagesForRedHat(FieldSelection.parse(fields, ImageInfo.class)));
     }
 
-    @GetMapping("/alarms/{instanceId}")
-    public ResponseEntity<List<String>> getAlarms(@PathVariable String instanceId) {
-        return ResponseEntity.ok(ec2Service.getAlarmsForInstance(instanceId));
+    @GetMapping("/imagesWindows")
+    public ResponseEntity<List<ImageInfo>> getImagesForWindows(@RequestParam(required = false) String fields) {
+        return ResponseEntity.ok(ec2Service.getImagesForWindows(FieldSelection.parse(fields, ImageInfo.class)));
     }
 
-//    @GetMapping("/imagesWindows")
-//    public ResponseEntity<List<String>> getImagesForWindows() {
-//        return ResponseEntity.ok(ec2Service.getImagesForWindows());
-//    }
+    @GetMapping("/images")
+    public ResponseEntity<ImagePage> getImages(@RequestParam(required = false) String source,
+                                               @RequestParam(required = false) String architecture,
+                                               @RequestParam(required = false) String name,
+                                               @RequestParam(defaultValue = "false") boolean latestPerFamily,
+                                               @RequestParam(defaultValue = "newest") String sort,
+                                               @RequestParam(defaultValue = "0") int page,
+                                               @RequestParam(defaultValue = "50") int size,
+                                               @RequestParam(required = false) String fields) {
+        ImageCatalog.Sort order;
+        try {
+            order = ImageCatalog.Sort.valueOf(sort.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("sort must be 'newest', 'oldest' or 'name'");
+        }
+        return ResponseEntity.ok(ec2Service.getImages(source, architecture, name, latestPerFamily, order, page,
+                Math.min(size, 1000), FieldSelection.parse(fields, ImageInfo.class)));
+    }
 
+    @GetMapping("/alarms/{instanceId}")
+    public ResponseEntity<List<AlarmState>> getAlarms(@PathVariable String instanceId,
+                                                      @RequestParam(required = false) String fields) {
+        return ResponseEntity.ok(ec2Service.getAlarmsForInstance(instanceId, FieldSelection.parse(fields, AlarmState.class)));
+    }
 
+    @GetMapping("/alarms")
+    public ResponseEntity<Map<String, List<AlarmState>>> getAlarmsForInstances(@RequestParam List<String> instanceIds,
+                                                                               @RequestParam(required = false) String fields) {
+        return ResponseEntity.ok(ec2Service.getAlarmsForInstances(instanceIds, FieldSelection.parse(fields, AlarmState.class)));
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<InstanceMetrics> getMetrics(@RequestParam(required = false) List<String> instanceIds,
+                                                      @RequestParam(required = false) List<String> metrics,
+                                                      @RequestParam(defaultValue = "PT1H") Duration window,
+                                                      @RequestParam(defaultValue = "300") int resolution) {
+        return ResponseEntity.ok(ec2Service.getMetrics(instanceIds, metrics, window, resolution));
+    }
 
 }
@@ -0,0 +1,45 @@
+package aws.ec2connect.controller;
+
+import aws.ec2connect.dto.AlarmState;
+import aws.ec2connect.dto.FieldSelection;
+import aws.ec2connect.dto.FleetResult;
+import aws.ec2connect.dto.InstanceInfo;
+import aws.ec2connect.dto.SecurityGroup;
+import aws.ec2connect.service.FleetService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Fleet-wide reads across every region in ec2connect.aws.regions, optionally narrowed with {@code regions=}.
+ */
+@RestController
+@RequestMapping("/ec2/fleet")
+public class FleetController {
+
+    private final FleetService fleetService;
+
+    public FleetController(FleetService fleetService) {
+        this.fleetService = fleetService;
+    }
+
+    @GetMapping("/instances")
+    public ResponseEntity<FleetResult<InstanceInfo>> instances(@RequestParam(required = false) String regions,
+                                                               @RequestParam(required = false) String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, InstanceInfo.class, InstanceInfo.SUMMARY_FIELDS);
+        return ResponseEntity.ok(fleetService.instances(fleetService.regions(regions), selection));
+    }
+
+    @GetMapping("/sc")
+    public ResponseEntity<FleetResult<SecurityGroup>> securityGroups(@RequestParam(required = false) String regions,
+                                                                     @RequestParam(required = false) String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, SecurityGroup.class, SecurityGroup.SUMMARY_FIELDS);
+        return ResponseEntity.ok(fleetService.securityGroups(fleetService.regions(regions), selection));
+    }
+
+    @GetMapping("/alarms")
+    public ResponseEntity<FleetResult<AlarmState>> alarms(@RequestParam(required = false) String regions,
+                                                          @RequestParam(required = false) String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, AlarmState.class);
+        return ResponseEntity.ok(fleetService.alarms(fleetService.regions(regions), selection));
+    }
+}
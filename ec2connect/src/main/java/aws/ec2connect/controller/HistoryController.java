@@ -0,0 +1,50 @@
+package aws.ec2connect.controller;
+
+import aws.ec2connect.dto.HistoryEntry;
+import aws.ec2connect.dto.HistoryEntry.Kind;
+import aws.ec2connect.service.InventoryHistoryService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Reads the inventory history stored in MySQL when ec2connect.history.enabled=true.
+ */
+@RestController
+@RequestMapping("/ec2/history")
+@ConditionalOnProperty(name = "ec2connect.history.enabled", havingValue = "true")
+public class HistoryController {
+
+    private static final int MAX_LIMIT = 5000;
+
+    private final InventoryHistoryService inventoryHistoryService;
+
+    public HistoryController(InventoryHistoryService inventoryHistoryService) {
+        this.inventoryHistoryService = inventoryHistoryService;
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<List<HistoryEntry>> changesSince(@RequestParam Instant since,
+                                                           @RequestParam(required = false) Kind kind,
+                                                           @RequestParam(defaultValue = "1000") int limit) {
+        return ResponseEntity.ok(inventoryHistoryService.changesSince(since, kind, clamp(limit)));
+    }
+
+    @GetMapping("/{instanceId}")
+    public ResponseEntity<List<HistoryEntry>> instanceHistory(@PathVariable String instanceId,
+                                                              @RequestParam(required = false) Instant from,
+                                                              @RequestParam(required = false) Instant to,
+                                                              @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(inventoryHistoryService.instanceHistory(instanceId,
+                from == null ? Instant.EPOCH : from,
+                to == null ? Instant.now() : to,
+                clamp(limit)));
+    }
+
+    private static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+}
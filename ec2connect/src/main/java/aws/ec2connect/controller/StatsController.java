@@ -0,0 +1,101 @@
+package aws.ec2connect.controller;
+
+import aws.ec2connect.cache.PriceCache;
+import aws.ec2connect.client.AdaptiveRateLimiter;
+import aws.ec2connect.client.RequestCoalescer;
+import aws.ec2connect.events.InstanceEventIngester;
+import aws.ec2connect.index.AlarmIndex;
+import aws.ec2connect.index.ImageCatalog;
+import aws.ec2connect.index.InstanceTypeIndex;
+import aws.ec2connect.index.PriceMatrix;
+import aws.ec2connect.index.SecurityGroupIndex;
+import aws.ec2connect.service.AlarmIndexService;
+import aws.ec2connect.service.ImageCatalogService;
+import aws.ec2connect.service.InstanceTypeCatalog;
+import aws.ec2connect.service.PricingService;
+import aws.ec2connect.service.SecurityGroupIndexService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/ec2/stats")
+public class StatsController {
+
+    private final PricingService pricingService;
+    private final InstanceTypeCatalog instanceTypeCatalog;
+    private final AlarmIndexService alarmIndexService;
+    private final SecurityGroupIndexService securityGroupIndexService;
+    private final ImageCatalogService imageCatalogService;
+    private final RequestCoalescer requestCoalescer;
+    private final AdaptiveRateLimiter adaptiveRateLimiter;
+    private final ObjectProvider<InstanceEventIngester> instanceEventIngesterProvider;
+
+    public StatsController(PricingService pricingService,
+                           InstanceTypeCatalog instanceTypeCatalog,
+                           AlarmIndexService alarmIndexService,
+                           SecurityGroupIndexService securityGroupIndexService,
+                           ImageCatalogService imageCatalogService,
+                           RequestCoalescer requestCoalescer,
+                           AdaptiveRateLimiter adaptiveRateLimiter,
+                           ObjectProvider<InstanceEventIngester> instanceEventIngesterProvider) {
+        this.pricingService = pricingService;
+        this.instanceTypeCatalog = instanceTypeCatalog;
+        this.alarmIndexService = alarmIndexService;
+        this.securityGroupIndexService = securityGroupIndexService;
+        this.imageCatalogService = imageCatalogService;
+        this.requestCoalescer = requestCoalescer;
+        this.adaptiveRateLimiter = adaptiveRateLimiter;
+        this.instanceEventIngesterProvider = instanceEventIngesterProvider;
+    }
+
+    @GetMapping("/pricing-cache")
+    public ResponseEntity<PriceCache.Stats> getPricingCacheStats() {
+        return ResponseEntity.ok(pricingService.cacheStats());
+    }
+
+    @GetMapping("/price-matrix")
+    public ResponseEntity<PriceMatrix.Stats> getPriceMatrixStats() {
+        return ResponseEntity.ok(pricingService.matrixStats());
+    }
+
+    @GetMapping("/instance-types")
+    public ResponseEntity<InstanceTypeIndex.Stats> getInstanceTypeIndexStats() {
+        return ResponseEntity.ok(instanceTypeCatalog.index().stats());
+    }
+
+    @GetMapping("/alarms")
+    public ResponseEntity<AlarmIndex.Stats> getAlarmIndexStats() {
+        return ResponseEntity.ok(alarmIndexService.index().stats());
+    }
+
+    @GetMapping("/security-groups")
+    public ResponseEntity<SecurityGroupIndex.Stats> getSecurityGroupIndexStats() {
+        return ResponseEntity.ok(securityGroupIndexService.index().stats());
+    }
+
+    @GetMapping("/images")
+    public ResponseEntity<ImageCatalog.Stats> getImageCatalogStats() {
+        return ResponseEntity.ok(imageCatalogService.catalog().stats());
+    }
+
+    // 404 unless ec2connect.events.enabled=true
+    @GetMapping("/events")
+    public ResponseEntity<InstanceEventIngester.Stats> getEventStats() {
+        return ResponseEntity.of(Optional.ofNullable(instanceEventIngesterProvider.getIfAvailable())
+                .map(InstanceEventIngester::stats));
+    }
+
+    @GetMapping("/coalescing")
+    public ResponseEntity<Map<String, RequestCoalescer.Stats>> getCoalescingStats() {
+        return ResponseEntity.ok(requestCoalescer.stats());
+    }
+
+    @GetMapping("/rate-limits")
+    public ResponseEntity<Map<String, AdaptiveRateLimiter.Stats>> getRateLimitStats() {
+        return ResponseEntity.ok(adaptiveRateLimiter.stats());
+    }
+}
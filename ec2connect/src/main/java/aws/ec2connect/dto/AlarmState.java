@@ -0,0 +1,7 @@
+package aws.ec2connect.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AlarmState(String alarmName, String state, String metricName) {
+}
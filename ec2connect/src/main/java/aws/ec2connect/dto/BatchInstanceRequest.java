@@ -0,0 +1,14 @@
+package aws.ec2connect.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Selects instances by explicit IDs, by tags (all must match), or both.
+ */
+public record BatchInstanceRequest(List<String> instanceIds, Map<String, String> tags) {
+
+    public boolean isEmpty() {
+        return (instanceIds == null || instanceIds.isEmpty()) && (tags == null || tags.isEmpty());
+    }
+}
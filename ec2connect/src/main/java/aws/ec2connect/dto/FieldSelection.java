@@ -0,0 +1,56 @@
+package aws.ec2connect.dto;
+
+import java.lang.reflect.RecordComponent;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * The attributes a client asked for with {@code fields=a,b,c}. Mappers only extract selected attributes
+ * from the SDK models; the others stay null and are left out of the JSON.
+ */
+public final class FieldSelection {
+
+    public static final FieldSelection ALL = new FieldSelection(null);
+
+    // null means every field
+    private final Set<String> fields;
+
+    private FieldSelection(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Parses a comma-separated field list for the given DTO type. A blank list selects the defaults,
+     * or every field when no defaults are given. Unknown names are rejected.
+     */
+    public static FieldSelection parse(String fields, Class<? extends Record> type, String... defaults) {
+        if (fields == null || fields.isBlank()) {
+            return defaults.length == 0 ? ALL : new FieldSelection(Set.of(defaults));
+        }
+        Set<String> known = new HashSet<>();
+        for (RecordComponent component : type.getRecordComponents()) {
+            known.add(component.getName());
+        }
+        Set<String> selected = new HashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!known.contains(name)) {
+                throw new IllegalArgumentException("Unknown field '" + name + "' for " + type.getSimpleName()
+                        + ". Known fields: " + new TreeSet<>(known));
+            }
+            selected.add(name);
+        }
+        return new FieldSelection(selected);
+    }
+
+    public boolean includes(String field) {
+        return fields == null || fields.contains(field);
+    }
+
+    public <T> T pick(String field, Supplier<T> value) {
+        return includes(field) ? value.get() : null;
+    }
+}
@@ -0,0 +1,26 @@
+package aws.ec2connect.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Items merged from every region of a fleet query, plus how each region fared.
+ */
+public record FleetResult<T>(List<RegionalItem<T>> items, Map<String, RegionStatus> regions) {
+
+    public record RegionalItem<T>(String region, @JsonUnwrapped T item) {
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record RegionStatus(Status status, long latencyMillis, int count, String error) {
+    }
+
+    public enum Status {
+        OK,
+        FAILED,
+        TIMED_OUT
+    }
+}
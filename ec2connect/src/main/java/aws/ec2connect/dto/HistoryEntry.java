@@ -0,0 +1,26 @@
+package aws.ec2connect.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.Instant;
+
+/**
+ * One stored version of an instance, security group or alarm. The payload is the JSON of the
+ * corresponding DTO and is null for rows that record a deletion.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record HistoryEntry(Kind kind,
+                           String resourceId,
+                           String instanceId,
+                           Instant observedAt,
+                           boolean deleted,
+                           String contentHash,
+                           @JsonRawValue String payload) {
+
+    public enum Kind {
+        INSTANCE,
+        SECURITY_GROUP,
+        ALARM
+    }
+}
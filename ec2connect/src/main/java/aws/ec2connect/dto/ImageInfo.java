@@ -0,0 +1,13 @@
+package aws.ec2connect.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ImageInfo(String imageId,
+                        String name,
+                        String description,
+                        String architecture,
+                        String ownerId,
+                        String creationDate,
+                        String family) {
+}
@@ -0,0 +1,9 @@
+package aws.ec2connect.dto;
+
+import java.util.List;
+
+public record ImagePage(List<ImageInfo> images,
+                        int page,
+                        int size,
+                        int total) {
+}
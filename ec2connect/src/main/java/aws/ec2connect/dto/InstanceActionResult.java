@@ -0,0 +1,9 @@
+package aws.ec2connect.dto;
+
+public record InstanceActionResult(String instanceId, String previousState, String currentState,
+                                   Outcome outcome, String message) {
+
+    public enum Outcome {
+        CHANGED, SKIPPED, NOT_FOUND, FAILED
+    }
+}
@@ -0,0 +1,21 @@
+package aws.ec2connect.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record InstanceInfo(String instanceId,
+                           String state,
+                           String instanceType,
+                           String platform,
+                           String imageId,
+                           String availabilityZone,
+                           String publicIpAddress,
+                           String privateIpAddress,
+                           String vpcId,
+                           List<String> securityGroupIds,
+                           String publicDnsName) {
+
+    public static final String[] SUMMARY_FIELDS = {"instanceId", "state", "instanceType", "platform", "publicDnsName"};
+}
@@ -0,0 +1,26 @@
+package aws.ec2connect.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fleet utilization for a time window. Every series has one value per resolution step from start,
+ * null where CloudWatch had no datapoints.
+ */
+public record InstanceMetrics(Instant start,
+                              Instant end,
+                              int resolutionSeconds,
+                              int apiCalls,
+                              boolean cached,
+                              List<Instance> instances) {
+
+    public record Instance(String instanceId, Map<String, Series> metrics) {
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Series(String statistic, Float latest, Float average, Float max, Float[] values) {
+    }
+}
@@ -0,0 +1,8 @@
+package aws.ec2connect.dto;
+
+public record InstancePrice(String instanceType,
+                            String location,
+                            String operatingSystem,
+                            String tenancy,
+                            double pricePerHourUsd) {
+}
@@ -0,0 +1,12 @@
+package aws.ec2connect.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record InstanceTypeOffer(String instanceType,
+                                Integer vCpus,
+                                Integer memoryMiB,
+                                BigDecimal linuxPricePerHourUsd) {
+}
@@ -1,40 +1,16 @@
 package aws.ec2connect.dto;
 
-import lombok.*;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import java.util.List;
 
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SecurityGroup(String groupId,
+                            String groupName,
+                            String vpcId,
+                            String description,
+                            List<SecurityGroupRule> inboundRules,
+                            List<SecurityGroupRule> outboundRules) {
 
-public class SecurityGroup {
-    private final String groupName;
-    private final List<String> inboundRules;
-    private final List<String> outboundRules;
-
-    public SecurityGroup(String groupName, List<String> inboundRules, List<String> outboundRules) {
-        this.groupName = groupName;
-        this.inboundRules = inboundRules;
-        this.outboundRules = outboundRules;
-    }
-
-    // Getters
-    public String getGroupName() {
-        return groupName;
-    }
-
-    public List<String> getInboundRules() {
-        return inboundRules;
-    }
-
-    public List<String> getOutboundRules() {
-        return outboundRules;
-    }
-
-    @Override
-    public String toString() {
-        return "SecurityGroupInfo{" +
-                "groupName='" + groupName + '\'' +
-                ", inboundRules=" + inboundRules +
-                ", outboundRules=" + outboundRules +
-                '}';
-    }
+    public static final String[] SUMMARY_FIELDS = {"groupId", "groupName", "vpcId", "description"};
 }
@@ -0,0 +1,15 @@
+package aws.ec2connect.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public record SecurityGroupRule(String protocol,
+                                Integer fromPort,
+                                Integer toPort,
+                                List<String> ipv4Ranges,
+                                List<String> ipv6Ranges,
+                                List<String> sourceGroupIds,
+                                List<String> prefixListIds) {
+}
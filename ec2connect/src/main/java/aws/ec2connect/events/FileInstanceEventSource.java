@@ -0,0 +1,89 @@
+package aws.ec2connect.events;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local stand-in for the queue that tails a file with one event JSON per line, starting at its beginning.
+ * A line is only read once it ends with a newline, so events can be appended while the app runs.
+ * Lines longer than 1 MB are skipped.
+ */
+public class FileInstanceEventSource implements InstanceEventSource {
+
+    private static final long POLL_MILLIS = 200;
+    private static final int MAX_LINE_BYTES = 1 << 20;
+
+    private final Path path;
+    private long position;
+    // Set while skipping the rest of a line too long to be an event
+    private boolean skipping;
+
+    public FileInstanceEventSource(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public synchronized List<Message> receive(int maxMessages, Duration wait) throws InterruptedException {
+        long deadline = System.nanoTime() + wait.toNanos();
+        List<Message> messages = readLines(maxMessages);
+        while (messages.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(Math.min(POLL_MILLIS, Math.max(1, (deadline - System.nanoTime()) / 1_000_000)));
+            messages = readLines(maxMessages);
+        }
+        return messages;
+    }
+
+    private List<Message> readLines(int maxMessages) {
+        List<Message> messages = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return messages;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+            if (file.length() < position) {
+                // Truncated or replaced: start over
+                position = 0;
+                skipping = false;
+            }
+            file.seek(position);
+            byte[] rest = new byte[(int) Math.min(file.length() - position, MAX_LINE_BYTES)];
+            file.readFully(rest);
+            int start = 0;
+            for (int i = 0; i < rest.length && messages.size() < maxMessages; i++) {
+                if (rest[i] == '\n') {
+                    String line = new String(rest, start, i - start, StandardCharsets.UTF_8).trim();
+                    if (skipping) {
+                        skipping = false;
+                    } else if (!line.isEmpty()) {
+                        messages.add(new Message(line, null));
+                    }
+                    start = i + 1;
+                }
+            }
+            if (start == 0 && rest.length == MAX_LINE_BYTES) {
+                // A full buffer without a newline would never complete: drop it and the rest of its line
+                skipping = true;
+                start = rest.length;
+            }
+            position += start;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return messages;
+    }
+
+    @Override
+    public void acknowledge(List<Message> messages) {
+    }
+
+    @Override
+    public String name() {
+        return "file:" + path;
+    }
+}
@@ -0,0 +1,45 @@
+package aws.ec2connect.events;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for the queue: events are published in-process and are gone once received.
+ */
+public class InMemoryInstanceEventSource implements InstanceEventSource {
+
+    private final BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+
+    public void publish(String body) {
+        queue.add(body);
+    }
+
+    @Override
+    public List<Message> receive(int maxMessages, Duration wait) throws InterruptedException {
+        List<Message> messages = new ArrayList<>();
+        String first = queue.poll(wait.toNanos(), TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return messages;
+        }
+        messages.add(new Message(first, null));
+        List<String> rest = new ArrayList<>();
+        queue.drainTo(rest, maxMessages - 1);
+        for (String body : rest) {
+            messages.add(new Message(body, null));
+        }
+        return messages;
+    }
+
+    @Override
+    public void acknowledge(List<Message> messages) {
+    }
+
+    @Override
+    public String name() {
+        return "memory";
+    }
+}
@@ -0,0 +1,198 @@
+package aws.ec2connect.events;
+
+import aws.ec2connect.service.InventorySnapshotService;
+import aws.ec2connect.service.InventorySnapshotService.StateChanges;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Consumes EC2 state-change events and applies them to the inventory snapshot in batches.
+ * A batch closes after batch-size messages or batch-window, whichever comes first, and is reduced to the
+ * newest event per instance; the snapshot drops events no newer than what it already reflects, which also
+ * discards redelivered duplicates. Messages are acknowledged once their batch has been applied, or after
+ * max-attempts failed tries, in which case a reconciliation sweep is requested to recover the lost states.
+ */
+@Service
+@ConditionalOnProperty(name = "ec2connect.events.enabled", havingValue = "true")
+public class InstanceEventIngester {
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    private final InstanceEventSource source;
+    private final InventorySnapshotService inventorySnapshotService;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final Duration batchWindow;
+    private final int maxAttempts;
+    private volatile Thread worker;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong ignored = new AtomicLong();
+    private final AtomicLong superseded = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+    private final AtomicLong changed = new AtomicLong();
+    private final AtomicLong unknown = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile Instant lastEventTime;
+    private volatile Instant lastAppliedAt;
+
+    public InstanceEventIngester(InstanceEventSource source,
+                                 InventorySnapshotService inventorySnapshotService,
+                                 ObjectMapper objectMapper,
+                                 @Value("${ec2connect.events.batch-size:100}") int batchSize,
+                                 @Value("${ec2connect.events.batch-window:PT1S}") Duration batchWindow,
+                                 @Value("${ec2connect.events.max-attempts:5}") int maxAttempts) {
+        this.source = source;
+        this.inventorySnapshotService = inventorySnapshotService;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.batchWindow = batchWindow;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        worker = Thread.ofVirtual().name("instance-events").start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread current = worker;
+        worker = null;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    private void run() {
+        while (worker != null) {
+            try {
+                List<InstanceEventSource.Message> messages = receiveBatch();
+                if (messages.isEmpty()) {
+                    continue;
+                }
+                applyWithRetries(messages);
+                source.acknowledge(messages);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                e.printStackTrace();
+                try {
+                    Thread.sleep(RETRY_DELAY);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // A batch that fails to apply is retried as is rather than received again, up to maxAttempts tries;
+    // after that it is given up on and the next sweep restores whatever states it carried
+    void applyWithRetries(List<InstanceEventSource.Message> messages) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                apply(messages);
+                return;
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+                e.printStackTrace();
+                if (attempt >= maxAttempts) {
+                    dropped.addAndGet(messages.size());
+                    inventorySnapshotService.requestReconcile();
+                    return;
+                }
+                Thread.sleep(RETRY_DELAY);
+            }
+        }
+    }
+
+    private List<InstanceEventSource.Message> receiveBatch() throws InterruptedException {
+        // Block for the first message with a long poll, then top the batch up until the window closes
+        List<InstanceEventSource.Message> batch = new ArrayList<>(source.receive(batchSize, Duration.ofSeconds(20)));
+        long deadline = System.nanoTime() + batchWindow.toNanos();
+        while (!batch.isEmpty() && batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            batch.addAll(source.receive(batchSize - batch.size(), Duration.ofNanos(remaining)));
+        }
+        received.addAndGet(batch.size());
+        return batch;
+    }
+
+    /**
+     * Reduces the messages to the newest event per instance and applies those to the snapshot.
+     */
+    StateChanges apply(List<InstanceEventSource.Message> messages) {
+        Map<String, InstanceStateEvent> newest = new LinkedHashMap<>();
+        for (InstanceEventSource.Message message : messages) {
+            InstanceStateEvent event = parse(message.body());
+            if (event == null) {
+                ignored.incrementAndGet();
+                continue;
+            }
+            InstanceStateEvent seen = newest.get(event.instanceId());
+            if (seen != null) {
+                superseded.incrementAndGet();
+                if (!event.time().isAfter(seen.time())) {
+                    continue;
+                }
+            }
+            newest.put(event.instanceId(), event);
+        }
+
+        StateChanges result = inventorySnapshotService.applyStateChanges(newest.values());
+        for (InstanceStateEvent event : newest.values()) {
+            if (lastEventTime == null || event.time().isAfter(lastEventTime)) {
+                lastEventTime = event.time();
+            }
+        }
+        stale.addAndGet(result.outdated());
+        changed.addAndGet(result.changed());
+        unknown.addAndGet(result.unknown());
+        batches.incrementAndGet();
+        lastAppliedAt = Instant.now();
+        return result;
+    }
+
+    // The body is the EventBridge event itself, or an SNS notification wrapping it when the queue subscribes to a topic
+    private InstanceStateEvent parse(String body) {
+        try {
+            JsonNode json = objectMapper.readTree(body);
+            if ("Notification".equals(json.path("Type").asText()) && json.hasNonNull("Message")) {
+                json = objectMapper.readTree(json.get("Message").asText());
+            }
+            return InstanceStateEvent.from(json);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(source.name(), received.get(), ignored.get(), superseded.get(), stale.get(), changed.get(),
+                unknown.get(), batches.get(), failures.get(), dropped.get(), lastEventTime, lastAppliedAt);
+    }
+
+    public record Stats(String source, long received, long ignored, long superseded, long stale, long changed,
+                        long unknown, long batches, long failures, long dropped, Instant lastEventTime, Instant lastAppliedAt) {
+    }
+}
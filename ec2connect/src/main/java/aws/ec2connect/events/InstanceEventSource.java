@@ -0,0 +1,23 @@
+package aws.ec2connect.events;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * A queue of raw event JSON messages. Sources with delivery guarantees, such as SQS, keep a received
+ * message until it is acknowledged and deliver it again if the consumer dies first.
+ */
+public interface InstanceEventSource {
+
+    /**
+     * Returns up to {@code maxMessages} messages, waiting at most {@code wait} for the first one.
+     */
+    List<Message> receive(int maxMessages, Duration wait) throws InterruptedException;
+
+    void acknowledge(List<Message> messages);
+
+    String name();
+
+    record Message(String body, String receipt) {
+    }
+}
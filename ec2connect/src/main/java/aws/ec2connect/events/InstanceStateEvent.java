@@ -0,0 +1,45 @@
+package aws.ec2connect.events;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.Instant;
+
+/**
+ * An EC2 Instance State-change Notification, as delivered by EventBridge:
+ * {"id": ..., "detail-type": "EC2 Instance State-change Notification", "time": ..., "detail": {"instance-id": ..., "state": ...}}
+ */
+public record InstanceStateEvent(String eventId, String instanceId, String state, Instant time) {
+
+    public static final String DETAIL_TYPE = "EC2 Instance State-change Notification";
+
+    /**
+     * Returns the event, or null when the JSON is some other kind of event or lacks the instance or state.
+     */
+    public static InstanceStateEvent from(JsonNode event) {
+        if (!DETAIL_TYPE.equals(event.path("detail-type").asText())) {
+            return null;
+        }
+        String instanceId = event.path("detail").path("instance-id").asText(null);
+        String state = event.path("detail").path("state").asText(null);
+        String time = event.path("time").asText(null);
+        if (instanceId == null || state == null || time == null) {
+            return null;
+        }
+        return new InstanceStateEvent(event.path("id").asText(null), instanceId, state, Instant.parse(time));
+    }
+
+    /**
+     * The numeric state code DescribeInstances reports for the state name.
+     */
+    public int stateCode() {
+        return switch (state) {
+            case "pending" -> 0;
+            case "running" -> 16;
+            case "shutting-down" -> 32;
+            case "terminated" -> 48;
+            case "stopping" -> 64;
+            case "stopped" -> 80;
+            default -> -1;
+        };
+    }
+}
@@ -0,0 +1,60 @@
+package aws.ec2connect.events;
+
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the SQS queue an EventBridge rule delivers EC2 state-change events to, using long polling.
+ * Messages are deleted when acknowledged; unacknowledged ones reappear after the visibility timeout.
+ */
+public class SqsInstanceEventSource implements InstanceEventSource {
+
+    // SQS limits for one ReceiveMessage and one DeleteMessageBatch call
+    private static final int MAX_MESSAGES_PER_CALL = 10;
+    private static final int MAX_WAIT_SECONDS = 20;
+
+    private final SqsClient sqsClient;
+    private final String queueUrl;
+
+    public SqsInstanceEventSource(SqsClient sqsClient, String queueUrl) {
+        this.sqsClient = sqsClient;
+        this.queueUrl = queueUrl;
+    }
+
+    @Override
+    public List<Message> receive(int maxMessages, Duration wait) {
+        ReceiveMessageRequest request = ReceiveMessageRequest.builder()
+                .queueUrl(queueUrl)
+                .maxNumberOfMessages(Math.min(maxMessages, MAX_MESSAGES_PER_CALL))
+                .waitTimeSeconds((int) Math.min(wait.toSeconds(), MAX_WAIT_SECONDS))
+                .build();
+        return sqsClient.receiveMessage(request).messages().stream()
+                .map(message -> new Message(message.body(), message.receiptHandle()))
+                .toList();
+    }
+
+    @Override
+    public void acknowledge(List<Message> messages) {
+        for (int from = 0; from < messages.size(); from += MAX_MESSAGES_PER_CALL) {
+            List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>();
+            List<Message> chunk = messages.subList(from, Math.min(from + MAX_MESSAGES_PER_CALL, messages.size()));
+            for (int i = 0; i < chunk.size(); i++) {
+                entries.add(DeleteMessageBatchRequestEntry.builder()
+                        .id(Integer.toString(i))
+                        .receiptHandle(chunk.get(i).receipt())
+                        .build());
+            }
+            sqsClient.deleteMessageBatch(builder -> builder.queueUrl(queueUrl).entries(entries));
+        }
+    }
+
+    @Override
+    public String name() {
+        return "sqs:" + queueUrl;
+    }
+}
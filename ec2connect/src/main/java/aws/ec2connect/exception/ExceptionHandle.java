@@ -15,4 +15,10 @@ public class ExceptionHandle {
                 .body("AWS EC2 Error: " + ex.awsErrorDetails().errorMessage());
     }
 
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgumentException(IllegalArgumentException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ex.getMessage());
+    }
+
 }
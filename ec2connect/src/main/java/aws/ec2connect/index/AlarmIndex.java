@@ -0,0 +1,101 @@
+package aws.ec2connect.index;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Immutable inverted index from metric dimension (name and value) to the alarms watching it.
+ * Updates return a new index, so readers never see a partially applied change.
+ */
+public final class AlarmIndex {
+
+    public static final AlarmIndex EMPTY = new AlarmIndex(Map.of(), Instant.EPOCH);
+
+    private final Map<String, AlarmEntry> alarmsByName;
+    private final Map<DimensionKey, List<AlarmEntry>> alarmsByDimension;
+    private final Instant syncedAt;
+
+    private AlarmIndex(Map<String, AlarmEntry> alarmsByName, Instant syncedAt) {
+        this.alarmsByName = alarmsByName;
+        this.syncedAt = syncedAt;
+        Map<DimensionKey, List<AlarmEntry>> byDimension = new HashMap<>();
+        for (AlarmEntry alarm : alarmsByName.values()) {
+            for (Map.Entry<String, String> dimension : alarm.dimensions().entrySet()) {
+                byDimension.computeIfAbsent(new DimensionKey(dimension.getKey(), dimension.getValue()), k -> new ArrayList<>())
+                        .add(alarm);
+            }
+        }
+        byDimension.replaceAll((key, alarms) -> {
+            alarms.sort(Comparator.comparing(AlarmEntry::alarmName));
+            return List.copyOf(alarms);
+        });
+        this.alarmsByDimension = byDimension;
+    }
+
+    private AlarmIndex(AlarmIndex index, Instant syncedAt) {
+        this.alarmsByName = index.alarmsByName;
+        this.alarmsByDimension = index.alarmsByDimension;
+        this.syncedAt = syncedAt;
+    }
+
+    public static AlarmIndex of(Collection<AlarmEntry> alarms, Instant syncedAt) {
+        Map<String, AlarmEntry> byName = new HashMap<>();
+        for (AlarmEntry alarm : alarms) {
+            byName.put(alarm.alarmName(), alarm);
+        }
+        return new AlarmIndex(byName, syncedAt);
+    }
+
+    /**
+     * Returns a new index with the given alarms added or replaced and the removed names dropped.
+     */
+    public AlarmIndex withChanges(Collection<AlarmEntry> upserted, Collection<String> removed, Instant syncedAt) {
+        Map<String, AlarmEntry> byName = new HashMap<>(alarmsByName);
+        removed.forEach(byName::remove);
+        for (AlarmEntry alarm : upserted) {
+            byName.put(alarm.alarmName(), alarm);
+        }
+        return new AlarmIndex(byName, syncedAt);
+    }
+
+    /**
+     * Returns the same alarms with a new sync time, sharing this index's maps rather than rebuilding them.
+     */
+    public AlarmIndex withSyncedAt(Instant syncedAt) {
+        return new AlarmIndex(this, syncedAt);
+    }
+
+    public List<AlarmEntry> find(String dimensionName, String dimensionValue) {
+        return alarmsByDimension.getOrDefault(new DimensionKey(dimensionName, dimensionValue), List.of());
+    }
+
+    public List<AlarmEntry> findForInstance(String instanceId) {
+        return find("InstanceId", instanceId);
+    }
+
+    public Collection<AlarmEntry> all() {
+        return Collections.unmodifiableCollection(alarmsByName.values());
+    }
+
+    public boolean contains(String alarmName) {
+        return alarmsByName.containsKey(alarmName);
+    }
+
+    public Instant syncedAt() {
+        return syncedAt;
+    }
+
+    public Stats stats() {
+        return new Stats(alarmsByName.size(), alarmsByDimension.size(), syncedAt);
+    }
+
+    public record AlarmEntry(String alarmName, String state, String namespace, String metricName,
+                             Map<String, String> dimensions, Instant stateUpdatedAt) {
+    }
+
+    public record Stats(int alarms, int dimensions, Instant syncedAt) {
+    }
+
+    private record DimensionKey(String name, String value) {
+    }
+}
@@ -0,0 +1,156 @@
+package aws.ec2connect.index;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable in-memory copy of the AMIs of the configured sources, newest first.
+ * Updates return a new catalog, so readers never see a partially applied refresh.
+ */
+public final class ImageCatalog {
+
+    public static final ImageCatalog EMPTY = new ImageCatalog(Map.of(), Map.of());
+
+    // Build stamps such as 20240117, 2025.04.09, 2024-01-17 and 20240207.1
+    private static final Pattern BUILD_STAMP = Pattern.compile("\\d{4}[.-]?\\d{2}[.-]?\\d{2}(T?\\d{4,6}Z?)?(\\.\\d+)?");
+    private static final Comparator<ImageEntry> NEWEST_FIRST =
+            Comparator.comparing(ImageEntry::creationDate, Comparator.nullsLast(Comparator.reverseOrder()))
+                    .thenComparing(ImageEntry::imageId);
+
+    private final Map<String, List<ImageEntry>> imagesBySource;
+    private final Map<String, List<ImageEntry>> latestPerFamilyBySource;
+    private final Map<String, Instant> refreshedAt;
+
+    private ImageCatalog(Map<String, List<ImageEntry>> imagesBySource, Map<String, Instant> refreshedAt) {
+        this.imagesBySource = imagesBySource;
+        this.refreshedAt = refreshedAt;
+        Map<String, List<ImageEntry>> latest = new HashMap<>();
+        for (Map.Entry<String, List<ImageEntry>> source : imagesBySource.entrySet()) {
+            // Images are newest first, so the first one seen for a family and architecture is its latest
+            Map<String, ImageEntry> perFamily = new LinkedHashMap<>();
+            for (ImageEntry image : source.getValue()) {
+                perFamily.putIfAbsent(image.family() + "|" + image.architecture(), image);
+            }
+            latest.put(source.getKey(), List.copyOf(perFamily.values()));
+        }
+        this.latestPerFamilyBySource = latest;
+    }
+
+    /**
+     * Returns a new catalog in which the source holds exactly the given images.
+     */
+    public ImageCatalog withSource(String source, Collection<ImageEntry> images, Instant refreshedAt) {
+        Map<String, List<ImageEntry>> bySource = new HashMap<>(imagesBySource);
+        bySource.put(source, images.stream().sorted(NEWEST_FIRST).toList());
+        Map<String, Instant> refreshed = new HashMap<>(this.refreshedAt);
+        refreshed.put(source, refreshedAt);
+        return new ImageCatalog(bySource, refreshed);
+    }
+
+    /**
+     * Returns a new catalog with the images added to, or replacing the ones with the same id in, the source.
+     */
+    public ImageCatalog withNewImages(String source, Collection<ImageEntry> images, Instant refreshedAt) {
+        Map<String, ImageEntry> byId = new HashMap<>();
+        for (ImageEntry image : imagesBySource.getOrDefault(source, List.of())) {
+            byId.put(image.imageId(), image);
+        }
+        for (ImageEntry image : images) {
+            byId.put(image.imageId(), image);
+        }
+        return withSource(source, byId.values(), refreshedAt);
+    }
+
+    public boolean hasSource(String source) {
+        return imagesBySource.containsKey(source);
+    }
+
+    /**
+     * The newest creation date held for the source, as returned by DescribeImages, or null when it has none.
+     */
+    public String latestCreationDate(String source) {
+        List<ImageEntry> images = imagesBySource.getOrDefault(source, List.of());
+        return images.isEmpty() ? null : images.getFirst().creationDate();
+    }
+
+    /**
+     * Filters, sorts and pages the images. Null filters match everything; the name filter accepts * wildcards.
+     * With {@code latestPerFamily} only the newest image of each family and architecture is considered.
+     */
+    public Page query(String source, String architecture, String namePattern, boolean latestPerFamily,
+                      Sort sort, int page, int size) {
+        Collection<List<ImageEntry>> sources = source == null
+                ? (latestPerFamily ? latestPerFamilyBySource : imagesBySource).values()
+                : List.of((latestPerFamily ? latestPerFamilyBySource : imagesBySource).getOrDefault(source, List.of()));
+        Pattern name = namePattern == null ? null : wildcard(namePattern);
+
+        List<ImageEntry> matches = new ArrayList<>();
+        for (List<ImageEntry> images : sources) {
+            for (ImageEntry image : images) {
+                if ((architecture == null || architecture.equals(image.architecture()))
+                        && (name == null || (image.name() != null && name.matcher(image.name()).matches()))) {
+                    matches.add(image);
+                }
+            }
+        }
+        // Each source list is already newest first; only merged sources or other orders need a sort
+        if (sort != Sort.NEWEST || sources.size() > 1) {
+            matches.sort(sort.comparator);
+        }
+        // Long arithmetic, so a page far past the end is empty instead of overflowing into a negative offset
+        int from = (int) Math.min((long) page * size, matches.size());
+        int to = (int) Math.min((long) from + size, matches.size());
+        return new Page(List.copyOf(matches.subList(from, to)), page, size, matches.size());
+    }
+
+    public Stats stats() {
+        Map<String, SourceStats> sources = new TreeMap<>();
+        for (Map.Entry<String, List<ImageEntry>> source : imagesBySource.entrySet()) {
+            sources.put(source.getKey(), new SourceStats(source.getValue().size(),
+                    latestPerFamilyBySource.get(source.getKey()).size(), latestCreationDate(source.getKey()),
+                    refreshedAt.get(source.getKey())));
+        }
+        return new Stats(sources);
+    }
+
+    /**
+     * The image name with its build stamp replaced by *, e.g. Windows_Server-2022-English-Full-Base-*.
+     */
+    public static String family(String name) {
+        return name == null ? null : BUILD_STAMP.matcher(name).replaceAll("*");
+    }
+
+    private static Pattern wildcard(String pattern) {
+        return Pattern.compile(Arrays.stream(pattern.split("\\*", -1))
+                .map(Pattern::quote)
+                .collect(Collectors.joining(".*")));
+    }
+
+    public enum Sort {
+        NEWEST(NEWEST_FIRST),
+        OLDEST(NEWEST_FIRST.reversed()),
+        NAME(Comparator.comparing(ImageEntry::name, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(ImageEntry::imageId));
+
+        private final Comparator<ImageEntry> comparator;
+
+        Sort(Comparator<ImageEntry> comparator) {
+            this.comparator = comparator;
+        }
+    }
+
+    public record ImageEntry(String source, String imageId, String name, String description, String architecture,
+                             String ownerId, String creationDate, String family) {
+    }
+
+    public record Page(List<ImageEntry> images, int page, int size, int total) {
+    }
+
+    public record SourceStats(int images, int families, String latestCreationDate, Instant refreshedAt) {
+    }
+
+    public record Stats(Map<String, SourceStats> sources) {
+    }
+}
@@ -0,0 +1,218 @@
+package aws.ec2connect.index;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Immutable, read-only index over the instance type catalog.
+ * Names are kept sorted so prefix searches are a binary search, and every 1-, 2- and
+ * 3-character gram of every name points to a posting list of name ordinals so
+ * substring searches only verify a handful of candidates.
+ */
+public final class InstanceTypeIndex {
+
+    private static final int GRAM_LENGTH = 3;
+    private static final int[] NO_MATCHES = new int[0];
+
+    private final String[] names;
+    private final String[] lowerNames;
+    private final int[] vCpus;
+    private final int[] memoryMiB;
+
+    // Grams packed 16 bits per char into a long, sorted, with a parallel array of posting lists
+    private final long[] grams;
+    private final int[][] postings;
+
+    private final long buildNanos;
+    private final Instant builtAt;
+
+    private InstanceTypeIndex(String[] names, int[] vCpus, int[] memoryMiB) {
+        long start = System.nanoTime();
+        this.names = names;
+        this.vCpus = vCpus;
+        this.memoryMiB = memoryMiB;
+        this.lowerNames = new String[names.length];
+
+        TreeMap<Long, List<Integer>> gramPostings = new TreeMap<>();
+        for (int i = 0; i < names.length; i++) {
+            String lower = names[i].toLowerCase(Locale.ROOT);
+            lowerNames[i] = lower;
+            for (int n = 1; n <= GRAM_LENGTH; n++) {
+                for (int from = 0; from + n <= lower.length(); from++) {
+                    List<Integer> posting = gramPostings.computeIfAbsent(pack(lower, from, n), k -> new ArrayList<>());
+                    // Ordinals are visited in increasing order, so a duplicate can only be the last element
+                    if (posting.isEmpty() || posting.getLast() != i) {
+                        posting.add(i);
+                    }
+                }
+            }
+        }
+
+        this.grams = new long[gramPostings.size()];
+        this.postings = new int[gramPostings.size()][];
+        int g = 0;
+        for (Map.Entry<Long, List<Integer>> entry : gramPostings.entrySet()) {
+            grams[g] = entry.getKey();
+            postings[g] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            g++;
+        }
+        this.buildNanos = System.nanoTime() - start;
+        this.builtAt = Instant.now();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the ordinals, in name order, of every type whose name contains the query (case-insensitive).
+     */
+    public int[] searchSubstring(String query) {
+        String q = query.toLowerCase(Locale.ROOT);
+        if (q.isEmpty()) {
+            return allOrdinals();
+        }
+        if (q.length() <= GRAM_LENGTH) {
+            int[] posting = posting(pack(q, 0, q.length()));
+            return posting.clone();
+        }
+
+        // Start from the rarest trigram of the query and verify the candidates it yields
+        int[] candidates = null;
+        for (int from = 0; from + GRAM_LENGTH <= q.length(); from++) {
+            int[] posting = posting(pack(q, from, GRAM_LENGTH));
+            if (candidates == null || posting.length < candidates.length) {
+                candidates = posting;
+            }
+        }
+        int[] matches = new int[candidates.length];
+        int count = 0;
+        for (int candidate : candidates) {
+            if (lowerNames[candidate].contains(q)) {
+                matches[count++] = candidate;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Returns the ordinals, in name order, of every type whose name starts with the prefix (case-insensitive).
+     */
+    public int[] searchPrefix(String prefix) {
+        String p = prefix.toLowerCase(Locale.ROOT);
+        int from = lowerBound(p);
+        int to = from;
+        while (to < lowerNames.length && lowerNames[to].startsWith(p)) {
+            to++;
+        }
+        int[] matches = new int[to - from];
+        for (int i = 0; i < matches.length; i++) {
+            matches[i] = from + i;
+        }
+        return matches;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String name(int ordinal) {
+        return names[ordinal];
+    }
+
+    public int vCpus(int ordinal) {
+        return vCpus[ordinal];
+    }
+
+    public int memoryMiB(int ordinal) {
+        return memoryMiB[ordinal];
+    }
+
+    public Stats stats() {
+        return new Stats(names.length, grams.length, buildNanos / 1_000_000.0, estimatedBytes(), builtAt);
+    }
+
+    private int[] allOrdinals() {
+        int[] all = new int[names.length];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+        return all;
+    }
+
+    private int[] posting(long gram) {
+        int g = Arrays.binarySearch(grams, gram);
+        return g >= 0 ? postings[g] : NO_MATCHES;
+    }
+
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = lowerNames.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lowerNames[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Rough shallow-size estimate assuming compressed oops and compact (Latin-1) strings
+    private long estimatedBytes() {
+        long bytes = arrayBytes(names.length, 4) * 2 + arrayBytes(vCpus.length, 4) + arrayBytes(memoryMiB.length, 4);
+        for (int i = 0; i < names.length; i++) {
+            bytes += 2 * (24 + arrayBytes(names[i].length(), 1));
+        }
+        bytes += arrayBytes(grams.length, 8) + arrayBytes(postings.length, 4);
+        for (int[] posting : postings) {
+            bytes += arrayBytes(posting.length, 4);
+        }
+        return bytes;
+    }
+
+    private static long arrayBytes(int length, int elementSize) {
+        return (16 + (long) length * elementSize + 7) & ~7L;
+    }
+
+    private static long pack(String s, int from, int length) {
+        long packed = length;
+        for (int i = from; i < from + length; i++) {
+            packed = (packed << 16) | s.charAt(i);
+        }
+        return packed;
+    }
+
+    public static final class Builder {
+
+        // Ordered by lower-cased name, the order searchPrefix binary-searches in, with the exact name as tie-break
+        private final TreeMap<String, int[]> types = new TreeMap<>(
+                Comparator.comparing((String name) -> name.toLowerCase(Locale.ROOT)).thenComparing(Comparator.naturalOrder()));
+
+        private Builder() {
+        }
+
+        public Builder add(String name, int vCpus, int memoryMiB) {
+            types.put(name, new int[]{vCpus, memoryMiB});
+            return this;
+        }
+
+        public InstanceTypeIndex build() {
+            String[] names = new String[types.size()];
+            int[] vCpus = new int[types.size()];
+            int[] memoryMiB = new int[types.size()];
+            int i = 0;
+            for (Map.Entry<String, int[]> type : types.entrySet()) {
+                names[i] = type.getKey();
+                vCpus[i] = type.getValue()[0];
+                memoryMiB[i] = type.getValue()[1];
+                i++;
+            }
+            return new InstanceTypeIndex(names, vCpus, memoryMiB);
+        }
+    }
+
+    public record Stats(int instanceTypes, int grams, double buildMillis, long estimatedBytes, Instant builtAt) {
+    }
+}
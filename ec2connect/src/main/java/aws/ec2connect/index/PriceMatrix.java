@@ -0,0 +1,174 @@
+package aws.ec2connect.index;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Immutable on-demand USD hourly prices addressed by instance type, location, operating system and tenancy.
+ * Each dimension is a sorted name array, so a lookup is four binary searches and one read from a dense
+ * float array. Missing prices are NaN.
+ */
+public final class PriceMatrix {
+
+    public static final PriceMatrix EMPTY = builder("none").build();
+
+    private final String[] instanceTypes;
+    private final String[] locations;
+    private final String[] operatingSystems;
+    private final String[] tenancies;
+    private final float[] prices;
+    private final int priceCount;
+
+    private final String source;
+    private final long loadNanos;
+    private final Instant builtAt;
+
+    private PriceMatrix(String[] instanceTypes, String[] locations, String[] operatingSystems, String[] tenancies,
+                        float[] prices, int priceCount, String source, long loadNanos) {
+        this.instanceTypes = instanceTypes;
+        this.locations = locations;
+        this.operatingSystems = operatingSystems;
+        this.tenancies = tenancies;
+        this.prices = prices;
+        this.priceCount = priceCount;
+        this.source = source;
+        this.loadNanos = loadNanos;
+        this.builtAt = Instant.now();
+    }
+
+    public static Builder builder(String source) {
+        return new Builder(source);
+    }
+
+    /**
+     * Returns the hourly USD price, or NaN when the matrix has no price for the combination.
+     */
+    public float price(String instanceType, String location, String operatingSystem, String tenancy) {
+        int type = Arrays.binarySearch(instanceTypes, instanceType);
+        int loc = Arrays.binarySearch(locations, location);
+        int os = Arrays.binarySearch(operatingSystems, operatingSystem);
+        int ten = Arrays.binarySearch(tenancies, tenancy);
+        if (type < 0 || loc < 0 || os < 0 || ten < 0) {
+            return Float.NaN;
+        }
+        return prices[offset(type, loc, os, ten)];
+    }
+
+    public boolean isEmpty() {
+        return priceCount == 0;
+    }
+
+    public Stats stats() {
+        return new Stats(source, instanceTypes.length, locations.length, operatingSystems.length, tenancies.length,
+                priceCount, prices.length == 0 ? 0.0 : (double) priceCount / prices.length, estimatedBytes(),
+                loadNanos / 1_000_000.0, builtAt);
+    }
+
+    private int offset(int type, int loc, int os, int ten) {
+        return ((type * locations.length + loc) * operatingSystems.length + os) * tenancies.length + ten;
+    }
+
+    // Rough shallow-size estimate assuming compressed oops and compact (Latin-1) strings
+    private long estimatedBytes() {
+        long bytes = arrayBytes(prices.length, 4);
+        for (String[] names : List.of(instanceTypes, locations, operatingSystems, tenancies)) {
+            bytes += arrayBytes(names.length, 4);
+            for (String name : names) {
+                bytes += 24 + arrayBytes(name.length(), 1);
+            }
+        }
+        return bytes;
+    }
+
+    private static long arrayBytes(int length, int elementSize) {
+        return (16 + (long) length * elementSize + 7) & ~7L;
+    }
+
+    /**
+     * Collects prices while a price list is streamed. Dimension names are interned into ordinals and each
+     * price is kept as a packed ordinal key, so the builder stays small even for the full offer file.
+     * The load time reported by the matrix runs from the creation of the builder to {@link #build()}.
+     */
+    public static final class Builder {
+
+        private final String source;
+        private final long startNanos = System.nanoTime();
+        private final List<Map<String, Integer>> dimensions = List.of(
+                new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>());
+        private long[] keys = new long[1024];
+        private float[] values = new float[1024];
+        private int size;
+
+        private Builder(String source) {
+            this.source = source;
+        }
+
+        /**
+         * Returns the packed key for the combination, to be passed to {@link #add(long, float)} once the price is known.
+         */
+        public long key(String instanceType, String location, String operatingSystem, String tenancy) {
+            return (long) ordinal(0, instanceType) << 48 | (long) ordinal(1, location) << 32
+                    | (long) ordinal(2, operatingSystem) << 16 | ordinal(3, tenancy);
+        }
+
+        public Builder add(String instanceType, String location, String operatingSystem, String tenancy, float price) {
+            return add(key(instanceType, location, operatingSystem, tenancy), price);
+        }
+
+        public Builder add(long key, float price) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            keys[size] = key;
+            values[size] = price;
+            size++;
+            return this;
+        }
+
+        public PriceMatrix build() {
+            String[][] names = new String[4][];
+            int[][] remap = new int[4][];
+            for (int d = 0; d < 4; d++) {
+                Map<String, Integer> dimension = dimensions.get(d);
+                names[d] = dimension.keySet().toArray(String[]::new);
+                Arrays.sort(names[d]);
+                remap[d] = new int[names[d].length];
+                for (int sorted = 0; sorted < names[d].length; sorted++) {
+                    remap[d][dimension.get(names[d][sorted])] = sorted;
+                }
+            }
+
+            float[] prices = new float[names[0].length * names[1].length * names[2].length * names[3].length];
+            Arrays.fill(prices, Float.NaN);
+            PriceMatrix shape = new PriceMatrix(names[0], names[1], names[2], names[3], prices, 0, source, 0);
+            int priceCount = 0;
+            for (int i = 0; i < size; i++) {
+                long key = keys[i];
+                int offset = shape.offset(remap[0][(int) (key >>> 48)], remap[1][(int) (key >>> 32 & 0xFFFF)],
+                        remap[2][(int) (key >>> 16 & 0xFFFF)], remap[3][(int) (key & 0xFFFF)]);
+                // The first price seen for a combination wins, matching the single-item lookups
+                if (Float.isNaN(prices[offset])) {
+                    prices[offset] = values[i];
+                    priceCount++;
+                }
+            }
+            return new PriceMatrix(names[0], names[1], names[2], names[3], prices, priceCount, source,
+                    System.nanoTime() - startNanos);
+        }
+
+        private int ordinal(int dimension, String name) {
+            Map<String, Integer> ordinals = dimensions.get(dimension);
+            Integer ordinal = ordinals.get(name);
+            if (ordinal == null) {
+                ordinal = ordinals.size();
+                ordinals.put(name, ordinal);
+            }
+            return ordinal;
+        }
+    }
+
+    public record Stats(String source, int instanceTypes, int locations, int operatingSystems, int tenancies,
+                        int prices, double fillRatio, long estimatedBytes, double loadMillis, Instant builtAt) {
+    }
+}
@@ -0,0 +1,433 @@
+package aws.ec2connect.index;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable index over the IP-based inbound rules of every security group.
+ * Port ranges sit in an augmented interval tree laid out over an array sorted by range start, and
+ * source CIDRs in a binary prefix trie with separate IPv4 and IPv6 roots. A port-only query stabs the tree;
+ * a CIDR query walks at most 32 or 128 trie levels and checks the ports of the rules it collects.
+ * Rules that reference other groups or prefix lists have no address range and are not indexed, and rules whose
+ * source does not parse are skipped one by one and counted in {@link Stats#skippedRules()}.
+ */
+public final class SecurityGroupIndex {
+
+    public static final SecurityGroupIndex EMPTY = builder().build(Instant.EPOCH);
+
+    public static final String ALL_PROTOCOLS = "all";
+    private static final int MAX_PORT = 65535;
+
+    private final String[] groupIds;
+    private final String[] groupNames;
+    private final String[] vpcIds;
+    private final Rule[] rules;
+    private final int skippedRules;
+
+    // Interval tree over the rules that carry ports: ordinals sorted by fromPort, with the largest
+    // toPort of each implicit subtree (the subtree of [lo, hi) is rooted at its midpoint)
+    private final int[] byFromPort;
+    private final int[] maxToPort;
+
+    // Prefix trie: node 0 is the IPv4 root, node 1 the IPv6 root
+    private final int[] zeroChild;
+    private final int[] oneChild;
+    private final int[][] rulesAtNode;
+
+    private final long buildNanos;
+    private final Instant syncedAt;
+
+    private SecurityGroupIndex(Builder builder, Instant syncedAt) {
+        long start = System.nanoTime();
+        this.groupIds = builder.groupIds.toArray(String[]::new);
+        this.groupNames = builder.groupNames.toArray(String[]::new);
+        this.vpcIds = builder.vpcIds.toArray(String[]::new);
+        this.rules = builder.rules.toArray(Rule[]::new);
+        this.skippedRules = builder.skippedRules;
+        this.syncedAt = syncedAt;
+
+        byFromPort = IntStream.range(0, rules.length)
+                .filter(i -> rules[i].hasPorts())
+                .boxed()
+                .sorted(Comparator.comparingInt(i -> rules[i].fromPort()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        maxToPort = new int[byFromPort.length];
+        fillMaxToPort(0, byFromPort.length);
+
+        TrieBuilder trie = new TrieBuilder();
+        for (int i = 0; i < rules.length; i++) {
+            trie.insert(rules[i].address(), rules[i].prefixLength(), i);
+        }
+        zeroChild = Arrays.copyOf(trie.zero, trie.size);
+        oneChild = Arrays.copyOf(trie.one, trie.size);
+        rulesAtNode = new int[trie.size][];
+        for (int node = 0; node < trie.size; node++) {
+            List<Integer> atNode = trie.rules.get(node);
+            rulesAtNode[node] = atNode == null ? null : atNode.stream().mapToInt(Integer::intValue).toArray();
+        }
+        this.buildNanos = System.nanoTime() - start;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Rules whose source range contains the whole of {@code cidr} and that allow {@code port}, e.g. everything
+     * open to 0.0.0.0/0 on port 22. A null port matches every rule, a null protocol every protocol.
+     */
+    public List<Match> findCovering(String cidr, Integer port, String protocol) {
+        Cidr query = Cidr.parse(cidr);
+        List<Integer> candidates = new ArrayList<>();
+        collectAncestors(query, candidates);
+        return filter(candidates, port, protocol);
+    }
+
+    /**
+     * Rules whose source range shares at least one address with {@code cidr}: the ranges containing it
+     * plus the ranges inside it.
+     */
+    public List<Match> findOverlapping(String cidr, Integer port, String protocol) {
+        Cidr query = Cidr.parse(cidr);
+        List<Integer> candidates = new ArrayList<>();
+        int node = collectAncestors(query, candidates);
+        if (node >= 0) {
+            collectSubtree(node, candidates, true);
+        }
+        return filter(candidates, port, protocol);
+    }
+
+    /**
+     * Rules that let traffic from a single address in on the given port.
+     */
+    public List<Match> findReachable(String ip, int port, String protocol) {
+        Cidr query = Cidr.parse(ip);
+        if (query.prefixLength() != query.address().length * 8) {
+            throw new IllegalArgumentException("Expected a single IP address but got " + ip);
+        }
+        return findCovering(ip, port, protocol);
+    }
+
+    /**
+     * Rules that allow the port, from any address.
+     */
+    public List<Match> findByPort(int port, String protocol) {
+        List<Integer> candidates = new ArrayList<>();
+        stab(0, byFromPort.length, port, candidates);
+        candidates.sort(null);
+        return filter(candidates, null, protocol);
+    }
+
+    public int ruleCount() {
+        return rules.length;
+    }
+
+    public Stats stats() {
+        return new Stats(groupIds.length, rules.length, skippedRules, byFromPort.length, zeroChild.length,
+                buildNanos / 1_000_000.0, syncedAt);
+    }
+
+    private List<Match> filter(List<Integer> candidates, Integer port, String protocol) {
+        List<Match> matches = new ArrayList<>();
+        for (int ordinal : candidates) {
+            Rule rule = rules[ordinal];
+            if (protocol != null && !protocol.equals(ALL_PROTOCOLS)
+                    && !rule.protocol().equals(ALL_PROTOCOLS) && !rule.protocol().equals(protocol)) {
+                continue;
+            }
+            if (port != null && !rule.allows(port)) {
+                continue;
+            }
+            matches.add(new Match(groupIds[rule.group()], groupNames[rule.group()], vpcIds[rule.group()],
+                    rule.protocol(), rule.fromPort(), rule.toPort(), rule.cidr()));
+        }
+        return matches;
+    }
+
+    // Walks the query's bits from the root, collecting the rules of every prefix passed. Returns the node
+    // that exactly matches the query, or -1 when the trie ends above it.
+    private int collectAncestors(Cidr query, List<Integer> out) {
+        int node = query.address().length == 4 ? 0 : 1;
+        for (int bit = 0; ; bit++) {
+            if (rulesAtNode[node] != null) {
+                for (int rule : rulesAtNode[node]) {
+                    out.add(rule);
+                }
+            }
+            if (bit == query.prefixLength()) {
+                return node;
+            }
+            node = query.bit(bit) == 0 ? zeroChild[node] : oneChild[node];
+            if (node == 0) {
+                return -1;
+            }
+        }
+    }
+
+    private void collectSubtree(int node, List<Integer> out, boolean skipSelf) {
+        if (!skipSelf && rulesAtNode[node] != null) {
+            for (int rule : rulesAtNode[node]) {
+                out.add(rule);
+            }
+        }
+        if (zeroChild[node] != 0) {
+            collectSubtree(zeroChild[node], out, false);
+        }
+        if (oneChild[node] != 0) {
+            collectSubtree(oneChild[node], out, false);
+        }
+    }
+
+    private int fillMaxToPort(int lo, int hi) {
+        if (lo >= hi) {
+            return -1;
+        }
+        int mid = (lo + hi) >>> 1;
+        int max = Math.max(rules[byFromPort[mid]].toPort(), Math.max(fillMaxToPort(lo, mid), fillMaxToPort(mid + 1, hi)));
+        maxToPort[mid] = max;
+        return max;
+    }
+
+    private void stab(int lo, int hi, int port, List<Integer> out) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (maxToPort[mid] < port) {
+            return;
+        }
+        stab(lo, mid, port, out);
+        Rule rule = rules[byFromPort[mid]];
+        if (rule.fromPort() > port) {
+            // Everything to the right starts even later
+            return;
+        }
+        if (rule.toPort() >= port) {
+            out.add(byFromPort[mid]);
+        }
+        stab(mid + 1, hi, port, out);
+    }
+
+    public static final class Builder {
+
+        private final List<String> groupIds = new ArrayList<>();
+        private final List<String> groupNames = new ArrayList<>();
+        private final List<String> vpcIds = new ArrayList<>();
+        private final List<Rule> rules = new ArrayList<>();
+        private int skippedRules;
+
+        private Builder() {
+        }
+
+        public Builder addGroup(String groupId, String groupName, String vpcId) {
+            groupIds.add(groupId);
+            groupNames.add(groupName);
+            vpcIds.add(vpcId);
+            return this;
+        }
+
+        /**
+         * Adds an inbound rule to the group added last. Protocols are IP protocol names or numbers as returned
+         * by DescribeSecurityGroups; null or -1 ports mean every port. ICMP type and code are kept as given.
+         * A rule whose source is not an IP literal or CIDR is skipped rather than failing the whole build.
+         */
+        public Builder addRule(String protocol, Integer fromPort, Integer toPort, String cidr) {
+            if (groupIds.isEmpty()) {
+                throw new IllegalStateException("addGroup must be called before addRule");
+            }
+            String normalized = normalizeProtocol(protocol);
+            Cidr range;
+            try {
+                range = Cidr.parse(cidr);
+            } catch (IllegalArgumentException e) {
+                skippedRules++;
+                return this;
+            }
+            int from = fromPort == null ? -1 : fromPort;
+            int to = toPort == null ? -1 : toPort;
+            if (normalized.equals(ALL_PROTOCOLS) || normalized.equals("tcp") || normalized.equals("udp")) {
+                boolean allPorts = normalized.equals(ALL_PROTOCOLS) || from < 0;
+                from = allPorts ? 0 : from;
+                to = allPorts || to < 0 ? MAX_PORT : to;
+            }
+            rules.add(new Rule(groupIds.size() - 1, normalized, from, to, cidr, range.address(), range.prefixLength()));
+            return this;
+        }
+
+        public SecurityGroupIndex build(Instant syncedAt) {
+            return new SecurityGroupIndex(this, syncedAt);
+        }
+    }
+
+    public static String normalizeProtocol(String protocol) {
+        if (protocol == null) {
+            return ALL_PROTOCOLS;
+        }
+        return switch (protocol.toLowerCase(Locale.ROOT)) {
+            case "-1", "all" -> ALL_PROTOCOLS;
+            case "6" -> "tcp";
+            case "17" -> "udp";
+            case "1" -> "icmp";
+            case "58" -> "icmpv6";
+            default -> protocol.toLowerCase(Locale.ROOT);
+        };
+    }
+
+    private record Rule(int group, String protocol, int fromPort, int toPort, String cidr,
+                        byte[] address, int prefixLength) {
+
+        // ICMP rules reuse the port fields for type and code, so they never match a port query
+        boolean hasPorts() {
+            return protocol.equals(ALL_PROTOCOLS) || protocol.equals("tcp") || protocol.equals("udp");
+        }
+
+        boolean allows(int port) {
+            return hasPorts() && fromPort <= port && port <= toPort;
+        }
+    }
+
+    private record Cidr(byte[] address, int prefixLength) {
+
+        static Cidr parse(String cidr) {
+            if (cidr == null) {
+                throw new IllegalArgumentException("Not an IP address or CIDR: null");
+            }
+            int slash = cidr.indexOf('/');
+            String host = slash < 0 ? cidr : cidr.substring(0, slash);
+            // Literals are parsed here rather than by InetAddress so that nothing can turn into a DNS lookup,
+            // and IPv4-mapped IPv6 addresses keep their 16 bytes
+            byte[] address = host.contains(":") ? parseIpv6(host) : parseIpv4(host);
+            if (address == null) {
+                throw new IllegalArgumentException("Not an IP address or CIDR: " + cidr);
+            }
+            int prefixLength = address.length * 8;
+            if (slash >= 0) {
+                try {
+                    prefixLength = Integer.parseInt(cidr.substring(slash + 1));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid prefix length in " + cidr);
+                }
+                if (prefixLength < 0 || prefixLength > address.length * 8) {
+                    throw new IllegalArgumentException("Invalid prefix length in " + cidr);
+                }
+            }
+            return new Cidr(address, prefixLength);
+        }
+
+        private static byte[] parseIpv4(String host) {
+            if (!host.matches("\\d{1,3}(\\.\\d{1,3}){3}")) {
+                return null;
+            }
+            String[] octets = host.split("\\.");
+            byte[] address = new byte[4];
+            for (int i = 0; i < 4; i++) {
+                int octet = Integer.parseInt(octets[i]);
+                if (octet > 255) {
+                    return null;
+                }
+                address[i] = (byte) octet;
+            }
+            return address;
+        }
+
+        // Eight groups of up to four hex digits, at most one "::" standing for one or more zero groups, and
+        // optionally a dotted IPv4 address in place of the last two groups
+        private static byte[] parseIpv6(String host) {
+            int gap = host.indexOf("::");
+            if (gap >= 0 && host.indexOf("::", gap + 1) >= 0) {
+                return null;
+            }
+            List<Integer> head = new ArrayList<>();
+            List<Integer> tail = new ArrayList<>();
+            boolean valid = gap < 0
+                    ? parseGroups(host, true, head) && head.size() == 8
+                    : parseGroups(host.substring(0, gap), false, head)
+                            && parseGroups(host.substring(gap + 2), true, tail)
+                            && head.size() + tail.size() <= 7;
+            if (!valid) {
+                return null;
+            }
+            byte[] address = new byte[16];
+            for (int i = 0; i < head.size(); i++) {
+                address[2 * i] = (byte) (head.get(i) >>> 8);
+                address[2 * i + 1] = head.get(i).byteValue();
+            }
+            for (int i = 0, offset = 16 - 2 * tail.size(); i < tail.size(); i++) {
+                address[offset + 2 * i] = (byte) (tail.get(i) >>> 8);
+                address[offset + 2 * i + 1] = tail.get(i).byteValue();
+            }
+            return address;
+        }
+
+        private static boolean parseGroups(String part, boolean mayEndWithIpv4, List<Integer> groups) {
+            if (part.isEmpty()) {
+                return true;
+            }
+            String[] pieces = part.split(":", -1);
+            for (int i = 0; i < pieces.length; i++) {
+                String piece = pieces[i];
+                if (mayEndWithIpv4 && i == pieces.length - 1 && piece.contains(".")) {
+                    byte[] ipv4 = parseIpv4(piece);
+                    if (ipv4 == null) {
+                        return false;
+                    }
+                    groups.add((ipv4[0] & 0xff) << 8 | ipv4[1] & 0xff);
+                    groups.add((ipv4[2] & 0xff) << 8 | ipv4[3] & 0xff);
+                } else if (piece.matches("[0-9A-Fa-f]{1,4}")) {
+                    groups.add(Integer.parseInt(piece, 16));
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int bit(int index) {
+            return (address[index >>> 3] >>> (7 - (index & 7))) & 1;
+        }
+    }
+
+    private static final class TrieBuilder {
+
+        private int[] zero = new int[1024];
+        private int[] one = new int[1024];
+        private final Map<Integer, List<Integer>> rules = new HashMap<>();
+        private int size = 2;
+
+        void insert(byte[] address, int prefixLength, int rule) {
+            Cidr cidr = new Cidr(address, prefixLength);
+            int node = address.length == 4 ? 0 : 1;
+            for (int bit = 0; bit < prefixLength; bit++) {
+                boolean isZero = cidr.bit(bit) == 0;
+                int child = isZero ? zero[node] : one[node];
+                if (child == 0) {
+                    child = newNode();
+                    if (isZero) {
+                        zero[node] = child;
+                    } else {
+                        one[node] = child;
+                    }
+                }
+                node = child;
+            }
+            rules.computeIfAbsent(node, k -> new ArrayList<>()).add(rule);
+        }
+
+        private int newNode() {
+            if (size == zero.length) {
+                zero = Arrays.copyOf(zero, size * 2);
+                one = Arrays.copyOf(one, size * 2);
+            }
+            return size++;
+        }
+    }
+
+    public record Match(String groupId, String groupName, String vpcId, String protocol, int fromPort, int toPort,
+                        String source) {
+    }
+
+    public record Stats(int groups, int rules, int skippedRules, int portRules, int trieNodes, double buildMillis, Instant syncedAt) {
+    }
+}
@@ -0,0 +1,79 @@
+package aws.ec2connect.index;
+
+/**
+ * Fixed-window time series for many series at once, stored as two flat arrays (float sums and int counts)
+ * indexed by series and bucket. Datapoints are folded into the bucket covering their timestamp, so data
+ * fetched at a fine period is downsampled to the bucket width as it is added.
+ */
+public final class TimeSeriesBuffer {
+
+    public enum Aggregation {
+        AVERAGE,
+        SUM
+    }
+
+    private final int series;
+    private final int buckets;
+    private final long startEpochSecond;
+    private final int stepSeconds;
+    private final float[] sums;
+    private final int[] counts;
+
+    public TimeSeriesBuffer(int series, long startEpochSecond, int stepSeconds, int buckets) {
+        this.series = series;
+        this.buckets = buckets;
+        this.startEpochSecond = startEpochSecond;
+        this.stepSeconds = stepSeconds;
+        this.sums = new float[series * buckets];
+        this.counts = new int[series * buckets];
+    }
+
+    /**
+     * Adds a datapoint; points outside the window are ignored.
+     */
+    public void add(int seriesIndex, long epochSecond, double value) {
+        long offset = epochSecond - startEpochSecond;
+        if (offset < 0) {
+            return;
+        }
+        long bucket = offset / stepSeconds;
+        if (bucket >= buckets) {
+            return;
+        }
+        int slot = seriesIndex * buckets + (int) bucket;
+        sums[slot] += (float) value;
+        counts[slot]++;
+    }
+
+    /**
+     * Returns the bucket values of one series, null where the bucket has no datapoints.
+     */
+    public Float[] values(int seriesIndex, Aggregation aggregation) {
+        Float[] values = new Float[buckets];
+        int base = seriesIndex * buckets;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            int count = counts[base + bucket];
+            if (count > 0) {
+                float sum = sums[base + bucket];
+                values[bucket] = aggregation == Aggregation.AVERAGE ? sum / count : sum;
+            }
+        }
+        return values;
+    }
+
+    public int series() {
+        return series;
+    }
+
+    public int buckets() {
+        return buckets;
+    }
+
+    public int stepSeconds() {
+        return stepSeconds;
+    }
+
+    public long startEpochSecond() {
+        return startEpochSecond;
+    }
+}
@@ -0,0 +1,145 @@
+package aws.ec2connect.repository;
+
+import aws.ec2connect.dto.HistoryEntry;
+import aws.ec2connect.dto.HistoryEntry.Kind;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only history table in the configured MySQL datasource. Every row is one version of a resource,
+ * so "state of X over time" and "what changed since T" are both single index range scans.
+ */
+@Repository
+@ConditionalOnProperty(name = "ec2connect.history.enabled", havingValue = "true")
+public class InventoryHistoryRepository {
+
+    private static final String CREATE_TABLE = """
+            CREATE TABLE IF NOT EXISTS inventory_history (
+                id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                kind VARCHAR(16) NOT NULL,
+                resource_id VARCHAR(255) NOT NULL,
+                instance_id VARCHAR(32) NULL,
+                observed_at DATETIME(3) NOT NULL,
+                deleted BOOLEAN NOT NULL,
+                content_hash CHAR(64) NULL,
+                payload JSON NULL,
+                INDEX idx_history_instance (instance_id, observed_at),
+                INDEX idx_history_resource (kind, resource_id, observed_at),
+                INDEX idx_history_observed (observed_at)
+            )""";
+
+    private static final String INSERT = "INSERT INTO inventory_history "
+            + "(kind, resource_id, instance_id, observed_at, deleted, content_hash, payload) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String COLUMNS = "h.kind, h.resource_id, h.instance_id, h.observed_at, h.deleted, h.content_hash, h.payload";
+
+    // The newest row of every resource; MAX(id) per resource is answered from idx_history_resource
+    private static final String LATEST = "SELECT " + COLUMNS + " FROM inventory_history h "
+            + "JOIN (SELECT MAX(id) AS id FROM inventory_history GROUP BY kind, resource_id) latest ON latest.id = h.id";
+
+    private static final RowMapper<HistoryEntry> ROW_MAPPER = (rs, rowNum) -> new HistoryEntry(
+            Kind.valueOf(rs.getString("kind")),
+            rs.getString("resource_id"),
+            rs.getString("instance_id"),
+            rs.getTimestamp("observed_at").toInstant(),
+            rs.getBoolean("deleted"),
+            rs.getString("content_hash"),
+            rs.getString("payload"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private volatile boolean schemaReady;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public InventoryHistoryRepository(JdbcTemplate jdbcTemplate,
+                                      @Value("${ec2connect.history.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Inserts the rows with batched statements; add rewriteBatchedStatements=true to the MySQL URL
+     * so each batch is sent as one multi-row INSERT.
+     */
+    public void insertAll(List<HistoryEntry> entries) {
+        ensureSchema();
+        jdbcTemplate.batchUpdate(INSERT, entries, batchSize, (ps, entry) -> {
+            ps.setString(1, entry.kind().name());
+            ps.setString(2, entry.resourceId());
+            ps.setString(3, entry.instanceId());
+            ps.setTimestamp(4, Timestamp.from(entry.observedAt()));
+            ps.setBoolean(5, entry.deleted());
+            ps.setString(6, entry.contentHash());
+            ps.setString(7, entry.payload());
+        });
+    }
+
+    /**
+     * Returns the content hash of the newest row per resource, keyed by {@code kind:resourceId};
+     * deleted resources map to null.
+     */
+    public Map<String, String> latestHashes() {
+        ensureSchema();
+        Map<String, String> hashes = new HashMap<>();
+        jdbcTemplate.query(LATEST, rs -> {
+            hashes.put(rs.getString("kind") + ":" + rs.getString("resource_id"),
+                    rs.getBoolean("deleted") ? null : rs.getString("content_hash"));
+        });
+        return hashes;
+    }
+
+    public List<HistoryEntry> latest(Kind kind) {
+        ensureSchema();
+        return jdbcTemplate.query(LATEST + " WHERE h.kind = ? AND NOT h.deleted ORDER BY h.resource_id",
+                ROW_MAPPER, kind.name());
+    }
+
+    /**
+     * Versions of an instance and of the alarms watching it, newest first.
+     */
+    public List<HistoryEntry> findByInstance(String instanceId, Instant from, Instant to, int limit) {
+        ensureSchema();
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM inventory_history h "
+                        + "WHERE h.instance_id = ? AND h.observed_at >= ? AND h.observed_at < ? "
+                        + "ORDER BY h.observed_at DESC LIMIT ?",
+                ROW_MAPPER, instanceId, Timestamp.from(from), Timestamp.from(to), limit);
+    }
+
+    /**
+     * Rows written after the given time, oldest first, optionally restricted to one kind.
+     */
+    public List<HistoryEntry> findChangedSince(Instant since, Kind kind, int limit) {
+        ensureSchema();
+        if (kind == null) {
+            return jdbcTemplate.query("SELECT " + COLUMNS + " FROM inventory_history h "
+                    + "WHERE h.observed_at > ? ORDER BY h.observed_at LIMIT ?", ROW_MAPPER, Timestamp.from(since), limit);
+        }
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM inventory_history h "
+                        + "WHERE h.observed_at > ? AND h.kind = ? ORDER BY h.observed_at LIMIT ?",
+                ROW_MAPPER, Timestamp.from(since), kind.name(), limit);
+    }
+
+    private void ensureSchema() {
+        if (!schemaReady) {
+            lock.lock();
+            try {
+                if (!schemaReady) {
+                    jdbcTemplate.execute(CREATE_TABLE);
+                    schemaReady = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package aws.ec2connect.service;
+
+import aws.ec2connect.client.RequestPriority;
+import aws.ec2connect.index.AlarmIndex;
+import aws.ec2connect.index.AlarmIndex.AlarmEntry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.cloudwatch.model.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Maintains an {@link AlarmIndex} with one full DescribeAlarms sweep and then folds in only the alarms
+ * that DescribeAlarmHistory reports as changed since the last sync.
+ */
+@Service
+public class AlarmIndexService {
+
+    // Alarm history is eventually consistent, so each incremental sync re-reads a little of the previous window
+    private static final Duration HISTORY_OVERLAP = Duration.ofMinutes(2);
+    private static final int MAX_ALARM_NAMES_PER_REQUEST = 100;
+
+    private final CloudWatchClient cloudWatchClient;
+    private volatile AlarmIndex index;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public AlarmIndexService(CloudWatchClient cloudWatchClient) {
+        this.cloudWatchClient = cloudWatchClient;
+    }
+
+    public AlarmIndex index() {
+        AlarmIndex current = index;
+        if (current == null) {
+            lock.lock();
+            try {
+                current = index;
+                if (current == null) {
+                    current = fullSync();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return current;
+    }
+
+    @Scheduled(initialDelayString = "${ec2connect.alarms.initial-delay:PT0S}",
+            fixedDelayString = "${ec2connect.alarms.full-sync-interval:PT1H}")
+    public void scheduledFullSync() {
+        try (RequestPriority.Scope ignored = RequestPriority.background()) {
+            fullSync();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${ec2connect.alarms.incremental-sync-interval:PT1M}",
+            fixedDelayString = "${ec2connect.alarms.incremental-sync-interval:PT1M}")
+    public void scheduledIncrementalSync() {
+        try (RequestPriority.Scope ignored = RequestPriority.background()) {
+            if (index != null) {
+                incrementalSync();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public AlarmIndex fullSync() {
+        lock.lock();
+        try {
+            return doFullSync();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private AlarmIndex doFullSync() {
+        Instant startedAt = Instant.now();
+        List<AlarmEntry> alarms = new ArrayList<>();
+        cloudWatchClient.describeAlarmsPaginator(DescribeAlarmsRequest.builder().maxRecords(100).build())
+                .metricAlarms()
+                .forEach(alarm -> alarms.add(toEntry(alarm)));
+        index = AlarmIndex.of(alarms, startedAt);
+        return index;
+    }
+
+    public AlarmIndex incrementalSync() {
+        lock.lock();
+        try {
+            return doIncrementalSync();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private AlarmIndex doIncrementalSync() {
+        AlarmIndex current = index;
+        Instant startedAt = Instant.now();
+
+        Set<String> changedNames = new HashSet<>();
+        DescribeAlarmHistoryRequest historyRequest = DescribeAlarmHistoryRequest.builder()
+                .alarmTypes(AlarmType.METRIC_ALARM)
+                .startDate(current.syncedAt().minus(HISTORY_OVERLAP))
+                .maxRecords(100)
+                .build();
+        cloudWatchClient.describeAlarmHistoryPaginator(historyRequest)
+                .alarmHistoryItems()
+                .forEach(item -> changedNames.add(item.alarmName()));
+        if (changedNames.isEmpty()) {
+            index = current.withSyncedAt(startedAt);
+            return index;
+        }
+
+        // Names that no longer describe to anything were deleted
+        List<AlarmEntry> upserted = new ArrayList<>();
+        Set<String> removed = new HashSet<>(changedNames);
+        List<String> names = new ArrayList<>(changedNames);
+        for (int from = 0; from < names.size(); from += MAX_ALARM_NAMES_PER_REQUEST) {
+            List<String> chunk = names.subList(from, Math.min(from + MAX_ALARM_NAMES_PER_REQUEST, names.size()));
+            // DescribeAlarms pages at 50 records by default, fewer than the names in a chunk
+            DescribeAlarmsRequest request = DescribeAlarmsRequest.builder()
+                    .alarmNames(chunk)
+                    .alarmTypes(AlarmType.METRIC_ALARM)
+                    .maxRecords(100)
+                    .build();
+            for (MetricAlarm alarm : cloudWatchClient.describeAlarmsPaginator(request).metricAlarms()) {
+                upserted.add(toEntry(alarm));
+                removed.remove(alarm.alarmName());
+            }
+        }
+        index = current.withChanges(upserted, removed, startedAt);
+        return index;
+    }
+
+    private static AlarmEntry toEntry(MetricAlarm alarm) {
+        Map<String, String> dimensions = new LinkedHashMap<>();
+        for (Dimension dimension : alarm.dimensions()) {
+            dimensions.put(dimension.name(), dimension.value());
+        }
+        return new AlarmEntry(alarm.alarmName(), alarm.stateValueAsString(), alarm.namespace(), alarm.metricName(),
+                Collections.unmodifiableMap(dimensions), alarm.stateUpdatedTimestamp());
+    }
+}
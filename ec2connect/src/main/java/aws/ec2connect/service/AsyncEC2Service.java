@@ -0,0 +1,216 @@
+package aws.ec2connect.service;
+
+import aws.ec2connect.dto.AlarmState;
+import aws.ec2connect.dto.FieldSelection;
+import aws.ec2connect.dto.ImageInfo;
+import aws.ec2connect.dto.InstanceInfo;
+import aws.ec2connect.dto.InstanceTypeOffer;
+import aws.ec2connect.index.InstanceTypeIndex;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.ec2.Ec2AsyncClient;
+import software.amazon.awssdk.services.ec2.model.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking counterpart of {@link EC2Service}, built on the async SDK clients.
+ * Every method returns immediately and completes on the SDK's event loop threads. Reads from the
+ * indexes, which block while an index loads for the first time, run on a dedicated executor.
+ */
+@Service
+@ConditionalOnProperty(name = "ec2connect.aws.async.enabled", havingValue = "true")
+public class AsyncEC2Service {
+
+    private final Ec2AsyncClient ec2AsyncClient;
+    private final AlarmIndexService alarmIndexService;
+    private final PricingService pricingService;
+    private final InstanceTypeCatalog instanceTypeCatalog;
+    private final Duration priceLookupTimeout;
+    private final int priceLookupConcurrency;
+    // Price lookups waiting for one of the priceLookupConcurrency slots, shared by all requests
+    private final Queue<Runnable> waitingPriceLookups = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger priceLookupsInFlight = new AtomicInteger();
+    private final ExecutorService indexExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public AsyncEC2Service(Ec2AsyncClient ec2AsyncClient,
+                           AlarmIndexService alarmIndexService,
+                           PricingService pricingService,
+                           InstanceTypeCatalog instanceTypeCatalog,
+                           @Value("${ec2connect.pricing.lookup.max-concurrency:8}") int priceLookupConcurrency,
+                           @Value("${ec2connect.pricing.lookup.timeout:PT10S}") Duration priceLookupTimeout) {
+        this.ec2AsyncClient = ec2AsyncClient;
+        this.alarmIndexService = alarmIndexService;
+        this.pricingService = pricingService;
+        this.instanceTypeCatalog = instanceTypeCatalog;
+        this.priceLookupConcurrency = priceLookupConcurrency;
+        this.priceLookupTimeout = priceLookupTimeout;
+    }
+
+    public CompletableFuture<List<InstanceInfo>> getInstances(FieldSelection fields) {
+        return ec2AsyncClient.describeInstances(DescribeInstancesRequest.builder().build())
+                .thenApply(response -> response.reservations().stream()
+                        .flatMap(reservation -> reservation.instances().stream())
+                        .map(instance -> DtoMapper.toInstanceInfo(instance, fields))
+                        .toList());
+    }
+
+    public CompletableFuture<InstanceInfo> getInstanceDetails(String instanceId, FieldSelection fields) {
+        return describeInstance(instanceId).thenApply(instance -> DtoMapper.toInstanceInfo(instance, fields));
+    }
+
+    public CompletableFuture<String> stopInstance(String instanceId) {
+        return describeInstance(instanceId).thenCompose(instance -> {
+            if (instance.state().nameAsString().equalsIgnoreCase("stopped")) {
+                return CompletableFuture.completedFuture("Instance " + instanceId + " is already stopped.");
+            }
+            return ec2AsyncClient.stopInstances(StopInstancesRequest.builder().instanceIds(instanceId).build())
+                    .thenApply(response -> "Stopping instance: " + response.stoppingInstances().getFirst().instanceId() +
+                            ". It will take a few minutes to perform all checks.");
+        });
+    }
+
+    public CompletableFuture<String> startInstance(String instanceId) {
+        return describeInstance(instanceId).thenCompose(instance -> {
+            if (instance.state().nameAsString().equalsIgnoreCase("running")) {
+                return CompletableFuture.completedFuture("Instance " + instanceId + " is already started.");
+            }
+            return ec2AsyncClient.startInstances(StartInstancesRequest.builder().instanceIds(instanceId).build())
+                    .thenApply(response -> "Starting instance: " + response.startingInstances().getFirst().instanceId());
+        });
+    }
+
+    public CompletableFuture<List<aws.ec2connect.dto.SecurityGroup>> getSecurityGroupRules(String groupId, FieldSelection fields) {
+        return ec2AsyncClient.describeSecurityGroups(DescribeSecurityGroupsRequest.builder().groupIds(groupId).build())
+                .thenApply(response -> response.securityGroups().stream()
+                        .map(securityGroup -> DtoMapper.toSecurityGroup(securityGroup, fields))
+                        .toList());
+    }
+
+    public CompletableFuture<List<aws.ec2connect.dto.SecurityGroup>> getAllSecurityGroups(FieldSelection fields) {
+        return ec2AsyncClient.describeSecurityGroups(DescribeSecurityGroupsRequest.builder().build())
+                .thenApply(response -> response.securityGroups().stream()
+                        .map(securityGroup -> DtoMapper.toSecurityGroup(securityGroup, fields))
+                        .toList());
+    }
+
+    public CompletableFuture<List<InstanceTypeOffer>> getInstanceTypes(String instanceTypeName, FieldSelection fields) {
+        return CompletableFuture.supplyAsync(instanceTypeCatalog::index, indexExecutor)
+                .thenCompose(index -> priceInstanceTypes(index, index.searchSubstring(instanceTypeName), fields));
+    }
+
+    private CompletableFuture<List<InstanceTypeOffer>> priceInstanceTypes(InstanceTypeIndex index, int[] matchingTypes,
+                                                                         FieldSelection fields) {
+        List<CompletableFuture<String>> prices = new ArrayList<>(matchingTypes.length);
+        for (int type : matchingTypes) {
+            // Lookups still pending at the deadline complete as null and are left out, like in EC2Service
+            prices.add(lookupPrice(index.name(type))
+                    .completeOnTimeout(null, priceLookupTimeout.toNanos(), TimeUnit.NANOSECONDS));
+        }
+        return CompletableFuture.allOf(prices.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    List<InstanceTypeOffer> instanceTypesResponse = new ArrayList<>();
+                    for (int i = 0; i < matchingTypes.length; i++) {
+                        BigDecimal price = DtoMapper.parseUsdPrice(prices.get(i).join());
+                        if (price != null) {
+                            instanceTypesResponse.add(DtoMapper.toInstanceTypeOffer(index, matchingTypes[i], price, fields));
+                        }
+                    }
+                    return instanceTypesResponse;
+                });
+    }
+
+    public CompletableFuture<List<ImageInfo>> getImagesForRedHat(FieldSelection fields) {
+        DescribeImagesRequest describeImagesRequest = DescribeImagesRequest.builder()
+                .owners("309956199498")
+                .maxResults(5)
+                .build();
+        return ec2AsyncClient.describeImages(describeImagesRequest)
+                .thenApply(response -> response.images().stream()
+                        .map(image -> DtoMapper.toImageInfo(image, fields))
+                        .toList());
+    }
+
+    public CompletableFuture<List<AlarmState>> getAlarmsForInstance(String instanceId, FieldSelection fields) {
+        // Served from the alarm index, which only blocks on the very first load
+        return CompletableFuture.supplyAsync(() -> alarmIndexService.index().findForInstance(instanceId).stream()
+                .map(alarm -> DtoMapper.toAlarmState(alarm, fields))
+                .toList(), indexExecutor);
+    }
+
+    /**
+     * Queues a price lookup and starts it once fewer than priceLookupConcurrency lookups are in flight.
+     * A lookup whose caller has stopped waiting, e.g. after the deadline, is dropped before it is sent.
+     */
+    private CompletableFuture<String> lookupPrice(String instanceType) {
+        CompletableFuture<String> price = new CompletableFuture<>();
+        waitingPriceLookups.add(() -> {
+            if (price.isDone()) {
+                releasePriceLookup();
+                return;
+            }
+            CompletableFuture<String> lookup;
+            try {
+                lookup = pricingService.getPriceForInstanceTypeAsync(instanceType, "US East (N. Virginia)");
+            } catch (RuntimeException e) {
+                lookup = CompletableFuture.failedFuture(e);
+            }
+            lookup.whenComplete((result, e) -> {
+                releasePriceLookup();
+                if (e != null) {
+                    price.completeExceptionally(e);
+                } else {
+                    price.complete(result);
+                }
+            });
+        });
+        startPriceLookups();
+        return price;
+    }
+
+    private void releasePriceLookup() {
+        priceLookupsInFlight.decrementAndGet();
+        startPriceLookups();
+    }
+
+    // Both queuing and releasing re-check here after their change, so no waiting lookup is left behind
+    private void startPriceLookups() {
+        while (!waitingPriceLookups.isEmpty()) {
+            int inFlight = priceLookupsInFlight.get();
+            if (inFlight >= priceLookupConcurrency) {
+                return;
+            }
+            if (!priceLookupsInFlight.compareAndSet(inFlight, inFlight + 1)) {
+                continue;
+            }
+            Runnable lookup = waitingPriceLookups.poll();
+            if (lookup == null) {
+                priceLookupsInFlight.decrementAndGet();
+                continue;
+            }
+            lookup.run();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexExecutor.shutdownNow();
+    }
+
+    private CompletableFuture<Instance> describeInstance(String instanceId) {
+        return ec2AsyncClient.describeInstances(DescribeInstancesRequest.builder().instanceIds(instanceId).build())
+                .thenApply(response -> response.reservations().getFirst().instances().getFirst());
+    }
+}
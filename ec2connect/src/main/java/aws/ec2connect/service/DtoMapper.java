@@ -0,0 +1,151 @@
+package aws.ec2connect.service;
+
+import aws.ec2connect.dto.AlarmState;
+import aws.ec2connect.dto.FieldSelection;
+import aws.ec2connect.dto.ImageInfo;
+import aws.ec2connect.dto.InstanceInfo;
+import aws.ec2connect.dto.InstanceTypeOffer;
+import aws.ec2connect.dto.SecurityGroupRule;
+import aws.ec2connect.index.AlarmIndex.AlarmEntry;
+import aws.ec2connect.index.ImageCatalog;
+import aws.ec2connect.index.ImageCatalog.ImageEntry;
+import aws.ec2connect.index.InstanceTypeIndex;
+import software.amazon.awssdk.services.cloudwatch.model.MetricAlarm;
+import software.amazon.awssdk.services.ec2.model.*;
+import software.amazon.awssdk.services.ec2.model.SecurityGroup;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Maps SDK models to response DTOs, reading only the attributes the {@link FieldSelection} asks for.
+ */
+public final class DtoMapper {
+
+    private DtoMapper() {
+    }
+
+    public static InstanceInfo toInstanceInfo(Instance instance, FieldSelection fields) {
+        return new InstanceInfo(
+                fields.pick("instanceId", instance::instanceId),
+                fields.pick("state", () -> instance.state() == null ? null : instance.state().nameAsString()),
+                fields.pick("instanceType", instance::instanceTypeAsString),
+                fields.pick("platform", instance::platformDetails),
+                fields.pick("imageId", instance::imageId),
+                fields.pick("availabilityZone", () -> instance.placement() == null ? null : instance.placement().availabilityZone()),
+                fields.pick("publicIpAddress", instance::publicIpAddress),
+                fields.pick("privateIpAddress", instance::privateIpAddress),
+                fields.pick("vpcId", instance::vpcId),
+                fields.pick("securityGroupIds", () -> instance.securityGroups().stream().map(GroupIdentifier::groupId).toList()),
+                fields.pick("publicDnsName", instance::publicDnsName));
+    }
+
+    public static aws.ec2connect.dto.SecurityGroup toSecurityGroup(SecurityGroup securityGroup, FieldSelection fields) {
+        return new aws.ec2connect.dto.SecurityGroup(
+                fields.pick("groupId", securityGroup::groupId),
+                fields.pick("groupName", securityGroup::groupName),
+                fields.pick("vpcId", securityGroup::vpcId),
+                fields.pick("description", securityGroup::description),
+                fields.pick("inboundRules", () -> toRules(securityGroup.ipPermissions())),
+                fields.pick("outboundRules", () -> toRules(securityGroup.ipPermissionsEgress())));
+    }
+
+    /**
+     * Applies a field selection to an instance that was stored with every field, e.g. in the history database.
+     */
+    public static InstanceInfo project(InstanceInfo instance, FieldSelection fields) {
+        return new InstanceInfo(
+                fields.pick("instanceId", instance::instanceId),
+                fields.pick("state", instance::state),
+                fields.pick("instanceType", instance::instanceType),
+                fields.pick("platform", instance::platform),
+                fields.pick("imageId", instance::imageId),
+                fields.pick("availabilityZone", instance::availabilityZone),
+                fields.pick("publicIpAddress", instance::publicIpAddress),
+                fields.pick("privateIpAddress", instance::privateIpAddress),
+                fields.pick("vpcId", instance::vpcId),
+                fields.pick("securityGroupIds", instance::securityGroupIds),
+                fields.pick("publicDnsName", instance::publicDnsName));
+    }
+
+    public static aws.ec2connect.dto.SecurityGroup project(aws.ec2connect.dto.SecurityGroup securityGroup, FieldSelection fields) {
+        return new aws.ec2connect.dto.SecurityGroup(
+                fields.pick("groupId", securityGroup::groupId),
+                fields.pick("groupName", securityGroup::groupName),
+                fields.pick("vpcId", securityGroup::vpcId),
+                fields.pick("description", securityGroup::description),
+                fields.pick("inboundRules", securityGroup::inboundRules),
+                fields.pick("outboundRules", securityGroup::outboundRules));
+    }
+
+    public static InstanceTypeOffer toInstanceTypeOffer(InstanceTypeIndex index, int type, BigDecimal price, FieldSelection fields) {
+        return new InstanceTypeOffer(
+                fields.pick("instanceType", () -> index.name(type)),
+                fields.pick("vCpus", () -> index.vCpus(type)),
+                fields.pick("memoryMiB", () -> index.memoryMiB(type)),
+                fields.pick("linuxPricePerHourUsd", () -> price));
+    }
+
+    public static ImageInfo toImageInfo(Image image, FieldSelection fields) {
+        return new ImageInfo(
+                fields.pick("imageId", image::imageId),
+                fields.pick("name", image::name),
+                fields.pick("description", image::description),
+                fields.pick("architecture", image::architectureAsString),
+                fields.pick("ownerId", image::ownerId),
+                fields.pick("creationDate", image::creationDate),
+                fields.pick("family", () -> ImageCatalog.family(image.name())));
+    }
+
+    public static ImageInfo toImageInfo(ImageEntry image, FieldSelection fields) {
+        return new ImageInfo(
+                fields.pick("imageId", image::imageId),
+                fields.pick("name", image::name),
+                fields.pick("description", image::description),
+                fields.pick("architecture", image::architecture),
+                fields.pick("ownerId", image::ownerId),
+                fields.pick("creationDate", image::creationDate),
+                fields.pick("family", image::family));
+    }
+
+    public static AlarmState toAlarmState(AlarmEntry alarm, FieldSelection fields) {
+        return new AlarmState(
+                fields.pick("alarmName", alarm::alarmName),
+                fields.pick("state", alarm::state),
+                fields.pick("metricName", alarm::metricName));
+    }
+
+    public static AlarmState toAlarmState(MetricAlarm alarm, FieldSelection fields) {
+        return new AlarmState(
+                fields.pick("alarmName", alarm::alarmName),
+                fields.pick("state", alarm::stateValueAsString),
+                fields.pick("metricName", alarm::metricName));
+    }
+
+    /**
+     * Converts the "$0.096" strings returned by PricingService; null when there is no price.
+     */
+    public static BigDecimal parseUsdPrice(String price) {
+        if (price == null || !price.startsWith("$")) {
+            return null;
+        }
+        try {
+            return new BigDecimal(price.substring(1)).stripTrailingZeros();
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static List<SecurityGroupRule> toRules(List<IpPermission> permissions) {
+        return permissions.stream()
+                .map(permission -> new SecurityGroupRule(
+                        permission.ipProtocol(),
+                        permission.fromPort(),
+                        permission.toPort(),
+                        permission.ipRanges().stream().map(IpRange::cidrIp).toList(),
+                        permission.ipv6Ranges().stream().map(Ipv6Range::cidrIpv6).toList(),
+                        permission.userIdGroupPairs().stream().map(UserIdGroupPair::groupId).toList(),
+                        permission.prefixListIds().stream().map(PrefixListId::prefixListId).toList()))
+                .toList();
+    }
+}
@@ -1,45 +1,110 @@
 package aws.ec2connect.service;
 
+import aws.ec2connect.client.AwsCallTrace;
+import aws.ec2connect.client.RequestPriority;
+import aws.ec2connect.dto.AlarmState;
+import aws.ec2connect.dto.FieldSelection;
+import aws.ec2connect.dto.ImageInfo;
+import aws.ec2connect.dto.ImagePage;
+import aws.ec2connect.dto.InstanceInfo;
+import aws.ec2connect.dto.InstanceMetrics;
+import aws.ec2connect.dto.InstancePrice;
+import aws.ec2connect.dto.InstanceTypeOffer;
+import aws.ec2connect.index.AlarmIndex;
+import aws.ec2connect.index.ImageCatalog;
+import aws.ec2connect.index.InstanceTypeIndex;
+import aws.ec2connect.index.SecurityGroupIndex;
+import aws.ec2connect.service.InventorySnapshotService.InventorySnapshot;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
-import software.amazon.awssdk.services.cloudwatch.model.DescribeAlarmsRequest;
-import software.amazon.awssdk.services.cloudwatch.model.DescribeAlarmsResponse;
-import software.amazon.awssdk.services.cloudwatch.model.MetricAlarm;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.services.ec2.Ec2Client;
 import software.amazon.awssdk.services.ec2.model.*;
 
+import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.concurrent.*;
 
 @Service
 public class EC2Service {
 
     private final Ec2Client ec2Client;
     private final PricingService pricingService;
-    private final CloudWatchClient cloudWatchClient;
+    private final InstanceTypeCatalog instanceTypeCatalog;
+    private final InventorySnapshotService inventorySnapshotService;
+    private final AlarmIndexService alarmIndexService;
+    private final SecurityGroupIndexService securityGroupIndexService;
+    private final ImageCatalogService imageCatalogService;
+    private final ObjectProvider<InventoryHistoryService> inventoryHistoryServiceProvider;
+    private final MetricsService metricsService;
+    private final int maxMetricInstances;
+    private final ExecutorService priceLookupExecutor;
+    private final Semaphore priceLookupPermits;
+    private final Duration priceLookupTimeout;
 
     public EC2Service(Ec2Client ec2Client,
                       PricingService pricingService,
-                      CloudWatchClient cloudWatchClient) {
+                      InstanceTypeCatalog instanceTypeCatalog,
+                      InventorySnapshotService inventorySnapshotService,
+                      AlarmIndexService alarmIndexService,
+                      SecurityGroupIndexService securityGroupIndexService,
+                      ImageCatalogService imageCatalogService,
+                      ObjectProvider<InventoryHistoryService> inventoryHistoryServiceProvider,
+                      MetricsService metricsService,
+                      @Value("${ec2connect.pricing.lookup.max-concurrency:8}") int priceLookupConcurrency,
+                      @Value("${ec2connect.pricing.lookup.timeout:PT10S}") Duration priceLookupTimeout,
+                      @Value("${ec2connect.metrics.max-instances:1000}") int maxMetricInstances) {
         this.ec2Client = ec2Client;
         this.pricingService = pricingService;
-        this.cloudWatchClient = cloudWatchClient;
+        this.instanceTypeCatalog = instanceTypeCatalog;
+        this.inventorySnapshotService = inventorySnapshotService;
+        this.alarmIndexService = alarmIndexService;
+        this.securityGroupIndexService = securityGroupIndexService;
+        this.imageCatalogService = imageCatalogService;
+        this.inventoryHistoryServiceProvider = inventoryHistoryServiceProvider;
+        this.metricsService = metricsService;
+        this.maxMetricInstances = maxMetricInstances;
+        this.priceLookupExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        this.priceLookupPermits = new Semaphore(priceLookupConcurrency);
+        this.priceLookupTimeout = priceLookupTimeout;
     }
 
-    public List<String> getInstances() {
-        List<String> instances = new ArrayList<>();
-        DescribeInstancesRequest describeInstancesRequest = DescribeInstancesRequest.builder().build();
-        DescribeInstancesResponse describeInstancesResponse = ec2Client.describeInstances(describeInstancesRequest);
-        describeInstancesResponse.reservations().stream()
-                .flatMap(reservation -> reservation.instances().stream())
-                .forEach(instance -> instances.add("Instance ID: " + instance.instanceId() +
-                        ", status:" + instance.state().name() +
-                        ", type:" + instance.instanceType().name() +
-                        ", platform:" + instance.platformDetails() +
-                        ", publicDnsName:" + instance.publicDnsName()));
+    public InventorySnapshot getInventorySnapshot() {
+        return inventorySnapshotService.current();
+    }
+
+    public InventorySnapshot refreshInventory() {
+        return inventorySnapshotService.refresh();
+    }
+
+    public List<InstanceInfo> getInstances(InventorySnapshot snapshot, FieldSelection fields) {
+        List<InstanceInfo> instances = new ArrayList<>(snapshot.instances().size());
+        for (Instance instance : snapshot.instances().values()) {
+            instances.add(DtoMapper.toInstanceInfo(instance, fields));
+        }
         return instances;
     }
 
+    /**
+     * Answers from the history database when there is no inventory snapshot because AWS is failing.
+     * Rethrows the AWS error when history is disabled.
+     */
+    public List<InstanceInfo> getInstancesFromHistory(FieldSelection fields, SdkException cause) {
+        InventoryHistoryService history = inventoryHistoryServiceProvider.getIfAvailable();
+        if (history == null) {
+            throw cause;
+        }
+        return history.latestInstances(fields);
+    }
+
     public String stopInstance(String instanceId) {
         DescribeInstancesRequest describeInstancesRequest = DescribeInstancesRequest.builder().
                 instanceIds(instanceId).build();
@@ -65,27 +130,19 @@ public class EC2Service {
         return "Starting instance: " + startInstancesResponse.startingInstances().getFirst().instanceId();
     }
 
-    public String getInstanceDetails(String instanceId) {
-        String instanceDetails;
+    public InstanceInfo getInstanceDetails(InventorySnapshot snapshot, String instanceId, FieldSelection fields) {
+        Instance instance = snapshot.instances().get(instanceId);
+        if (instance != null) {
+            return DtoMapper.toInstanceInfo(instance, fields);
+        }
+        // Not in the snapshot yet (e.g. launched since the last refresh), so ask EC2 directly
         DescribeInstancesRequest describeInstancesRequest = DescribeInstancesRequest.builder().instanceIds(instanceId).build();
         DescribeInstancesResponse describeInstancesResponse = ec2Client.describeInstances(describeInstancesRequest);
-        Instance instance = describeInstancesResponse.reservations().getFirst().instances().getFirst();
-        instanceDetails = "Instance ID: " + instance.instanceId() +
-                ", status: " + instance.state().name() +
-                ", type: " + instance.instanceType().name() +
-                ", platform: " + instance.platformDetails() +
-                ", AMI: " + instance.imageId()+
-                ", AZ: " + instance.placement().availabilityZone() +
-                ", public IPv4: " + instance.publicIpAddress() +
-                ", private IPv4: " + instance.privateIpAddress() +
-                ", VPC: " + instance.vpcId() +
-                ", Security Groups: " + instance.securityGroups().getFirst() +
-                ", publicDnsName: " + instance.publicDnsName();
-
-        return instanceDetails;
+        instance = describeInstancesResponse.reservations().getFirst().instances().getFirst();
+        return DtoMapper.toInstanceInfo(instance, fields);
     }
 
-    public List<aws.ec2connect.dto.SecurityGroup> getSecurityGroupRules(String groupId){
+    public List<aws.ec2connect.dto.SecurityGroup> getSecurityGroupRules(String groupId, FieldSelection fields){
 
         List<aws.ec2connect.dto.SecurityGroup> securityGroupsDTO = new ArrayList<>();
 
@@ -95,40 +152,63 @@ public class EC2Service {
         List<SecurityGroup> securityGroups = describeSecurityGroupsResponse.securityGroups();
 
         for(SecurityGroup securityGroup : securityGroups){
-            String groupName = securityGroup.groupName();
-
-            List<String> inboundRules = securityGroup.ipPermissions()
-                    .stream()
-                    .map(IpPermission::toString)
-                    .toList();
-
-            List<String> outboundRules = securityGroup.ipPermissionsEgress()
-                    .stream()
-                    .map(IpPermission::toString)
-                    .toList();
-
-            aws.ec2connect.dto.SecurityGroup info = new aws.ec2connect.dto.SecurityGroup(groupName, inboundRules, outboundRules);
-            securityGroupsDTO.add(info);
+            securityGroupsDTO.add(DtoMapper.toSecurityGroup(securityGroup, fields));
         }
 
         return securityGroupsDTO;
     }
 
-    public List<String> getAllSecurityGroups(){
-        List<String> securityGroupsResponse = new ArrayList<>();
+    public List<aws.ec2connect.dto.SecurityGroup> getAllSecurityGroups(FieldSelection fields){
+        List<aws.ec2connect.dto.SecurityGroup> securityGroupsResponse = new ArrayList<>();
         DescribeSecurityGroupsRequest describeSecurityGroupsRequest = DescribeSecurityGroupsRequest.builder().build();
-        DescribeSecurityGroupsResponse describeSecurityGroupsResponse = ec2Client.describeSecurityGroups(describeSecurityGroupsRequest);
+        DescribeSecurityGroupsResponse describeSecurityGroupsResponse;
+        try {
+            describeSecurityGroupsResponse = ec2Client.describeSecurityGroups(describeSecurityGroupsRequest);
+        } catch (SdkException e) {
+            InventoryHistoryService history = inventoryHistoryServiceProvider.getIfAvailable();
+            if (history == null) {
+                throw e;
+            }
+            // Throttled or unreachable: serve the last stored version of every group
+            return history.latestSecurityGroups(fields);
+        }
         List<SecurityGroup> securityGroups = describeSecurityGroupsResponse.securityGroups();
         for(SecurityGroup securityGroup : securityGroups){
-            securityGroupsResponse.add(
-                    "Security Group Name: " + securityGroup.groupName() +
-                    "Security Group Id:" + securityGroup.groupId() +
-                    "VPC Id:" + securityGroup.vpcId() +
-                    "Description:" + securityGroup.description());
+            securityGroupsResponse.add(DtoMapper.toSecurityGroup(securityGroup, fields));
         }
         return securityGroupsResponse;
     }
 
+    /**
+     * Inbound rules that admit {@code cidr} (match "covers") or any part of it (match "overlaps") on the port.
+     * Without a CIDR every rule allowing the port is returned.
+     */
+    public List<SecurityGroupIndex.Match> getExposure(String cidr, Integer port, String protocol, String match, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        SecurityGroupIndex index = securityGroupIndexService.index();
+        String normalizedProtocol = protocol == null ? null : SecurityGroupIndex.normalizeProtocol(protocol);
+        List<SecurityGroupIndex.Match> matches;
+        if (cidr == null || cidr.isBlank()) {
+            if (port == null) {
+                throw new IllegalArgumentException("Either cidr or port must be given");
+            }
+            matches = index.findByPort(port, normalizedProtocol);
+        } else if ("overlaps".equals(match)) {
+            matches = index.findOverlapping(cidr, port, normalizedProtocol);
+        } else if ("covers".equals(match)) {
+            matches = index.findCovering(cidr, port, normalizedProtocol);
+        } else {
+            throw new IllegalArgumentException("match must be 'covers' or 'overlaps'");
+        }
+        return matches.size() > limit ? matches.subList(0, limit) : matches;
+    }
+
+    public List<SecurityGroupIndex.Match> getReachable(String ip, int port, String protocol) {
+        return securityGroupIndexService.index().findReachable(ip, port, SecurityGroupIndex.normalizeProtocol(protocol));
+    }
+
     public String createSecurityGroup(String groupName,
                                             String groupDescription,
                                             String vpcId,
@@ -168,144 +248,135 @@ public class EC2Service {
         return "Security Group created";
     }
 
-    public List<String> getInstanceTypes(String instanceTypeName) {
-//        List<String> instanceTypesResponse = new ArrayList<>();
-//        DescribeInstanceTypesRequest typesRequest = DescribeInstanceTypesRequest.builder()
-//                .build();
-//
-//        DescribeInstanceTypesResponse response = ec2Client.describeInstanceTypes(typesRequest);
-//        for (InstanceTypeInfo instanceTypes : response.instanceTypes().stream()
-//                .filter(instance ->
-//                        instance.instanceType().toString().equalsIgnoreCase(instanceTypeName) ||
-//                                instance.instanceType().toString().toLowerCase().contains(instanceTypeName.toLowerCase())
-//                )
-//                .toList()){
-//            String instanceType = instanceTypes.instanceType().toString();
-//            String price = pricingService.getPriceForInstanceType(instanceType, "US East (N. Virginia)");
-//            if(price.contains("N/A")) continue;
-//            instanceTypesResponse.add(
-//                    "Instance Type: " + instanceType+
-//                            ", vCPUs: " + instanceTypes.vCpuInfo().defaultVCpus() +
-//                            ", Memory: " + instanceTypes.memoryInfo().sizeInMiB() + " MiB" +
-//                            ", Price per Hour on Linux: " + price
-//            );
-//        }
-//        return instanceTypesResponse;
-
-        List<String> instanceTypesResponse = new ArrayList<>();
-        String nextToken = null;
-
-        do {
-            // Request to describe instance types, applying pagination if necessary
-            DescribeInstanceTypesRequest.Builder typesRequestBuilder = DescribeInstanceTypesRequest.builder()
-                    .maxResults(10);  // Limit the number of results per page (you can adjust this)
-
-            if (nextToken != null) {
-                typesRequestBuilder.nextToken(nextToken);  // Add the nextToken for pagination
-            }
-
-            DescribeInstanceTypesRequest typesRequest = typesRequestBuilder.build();
-            DescribeInstanceTypesResponse response = ec2Client.describeInstanceTypes(typesRequest);
-
-            // Filter instance types by checking if their name contains or equals the instanceTypeName
-            for (InstanceTypeInfo instanceTypes : response.instanceTypes()) {
-                String instanceType = instanceTypes.instanceType().toString();
-                if (instanceType.equalsIgnoreCase(instanceTypeName) || instanceType.toLowerCase().contains(instanceTypeName.toLowerCase())) {
-                    String price = pricingService.getPriceForInstanceType(instanceType, "US East (N. Virginia)");
-
-                    // Skip if price contains "N/A"
-                    if (price.contains("N/A")) {
-                        continue;
-                    }
-
-                    // Add instance type information to the list
-                    instanceTypesResponse.add(
-                            "Instance Type: " + instanceType +
-                                    ", vCPUs: " + instanceTypes.vCpuInfo().defaultVCpus() +
-                                    ", Memory: " + instanceTypes.memoryInfo().sizeInMiB() + " MiB" +
-                                    ", Price per Hour on Linux: " + price
-                    );
+    public List<InstanceTypeOffer> getInstanceTypes(String instanceTypeName, FieldSelection fields) {
+        InstanceTypeIndex index = instanceTypeCatalog.index();
+        int[] matchingTypes = index.searchSubstring(instanceTypeName);
+        List<Future<String>> prices = new ArrayList<>(matchingTypes.length);
+        long deadline = System.nanoTime() + priceLookupTimeout.toNanos();
+
+        for (int type : matchingTypes) {
+            String instanceType = index.name(type);
+            // A wide search fans out into many Pricing calls; let start/stop and other interactive calls go first
+            prices.add(priceLookupExecutor.submit(AwsCallTrace.wrap(() -> {
+                try (RequestPriority.Scope ignored = RequestPriority.background()) {
+                    return lookupLinuxPrice(instanceType);
                 }
-            }
+            })));
+        }
 
-            // Update nextToken for the next page if there is more data
-            nextToken = response.nextToken();
+        List<InstanceTypeOffer> instanceTypesResponse = new ArrayList<>();
+        for (int i = 0; i < matchingTypes.length; i++) {
+            BigDecimal price = DtoMapper.parseUsdPrice(awaitPrice(prices.get(i), deadline));
 
-        } while (nextToken != null);  // Continue if there is another page of results
+            // Skip types without a price, including the ones still pending when the deadline passed
+            if (price == null) {
+                continue;
+            }
+
+            instanceTypesResponse.add(DtoMapper.toInstanceTypeOffer(index, matchingTypes[i], price, fields));
+        }
 
         return instanceTypesResponse;
     }
 
-    public List<String> getImagesForRedHat(){
-        List<String> imageResponse = new ArrayList<>();
-        DescribeImagesRequest describeImagesRequest = DescribeImagesRequest.builder()
-                .owners("309956199498")
-                .maxResults(5)
-                .build();
+    public Optional<InstancePrice> getOnDemandPrice(String instanceType, String location, String operatingSystem,
+                                                    String tenancy) {
+        OptionalDouble price = pricingService.getOnDemandPrice(instanceType, location, operatingSystem, tenancy);
+        if (price.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new InstancePrice(instanceType, location, operatingSystem, tenancy, price.getAsDouble()));
+    }
 
-        DescribeImagesResponse describeImagesResponse = ec2Client.describeImages(describeImagesRequest);
-        List<Image> images = describeImagesResponse.images();
+    private String lookupLinuxPrice(String instanceType) throws InterruptedException {
+        priceLookupPermits.acquire();
+        try {
+            return pricingService.getPriceForInstanceType(instanceType, "US East (N. Virginia)");
+        } finally {
+            priceLookupPermits.release();
+        }
+    }
 
-        for (Image image : images) {
-            imageResponse.add(
-                    "AMI ID: " + image.imageId() +
-                    ", Name: " + image.name() +
-                            ", Description: " + image.description()
-            );
+    private static String awaitPrice(Future<String> price, long deadline) {
+        try {
+            return price.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            price.cancel(true);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            price.cancel(true);
+            return null;
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            return null;
         }
-        return imageResponse;
     }
 
-    public List<String> getAlarmsForInstance(String instanceId) {
-        List<String> alarms = new ArrayList<>();
-        String nextToken = null;
+    @PreDestroy
+    public void shutdown() {
+        priceLookupExecutor.shutdownNow();
+    }
 
-        do {
-            // Request to describe alarms
-            DescribeAlarmsRequest request = DescribeAlarmsRequest.builder()
-                    .nextToken(nextToken)
-                    .build();
+    public List<ImageInfo> getImagesForRedHat(FieldSelection fields){
+        return getImages("rhel", null, null, false, ImageCatalog.Sort.NEWEST, 0, 5, fields).images();
+    }
 
-            // Get the response
-            DescribeAlarmsResponse response = cloudWatchClient.describeAlarms(request);
+    public List<ImageInfo> getImagesForWindows(FieldSelection fields){
+        return getImages("windows", null, null, false, ImageCatalog.Sort.NEWEST, 0, 25, fields).images();
+    }
 
-            // Loop through alarms and check if they are associated with the specified EC2 instance
-            for (MetricAlarm alarm : response.metricAlarms()) {
-                boolean matchesInstance = alarm.dimensions().stream()
-                        .anyMatch(d -> d.name().equals("InstanceId") && d.value().equals(instanceId));
+    /**
+     * One page of the cached AMI catalog. A null source, architecture or name pattern matches everything.
+     */
+    public ImagePage getImages(String source, String architecture, String namePattern, boolean latestPerFamily,
+                                     ImageCatalog.Sort sort, int page, int size, FieldSelection fields) {
+        if (source != null && !imageCatalogService.hasSource(source)) {
+            throw new IllegalArgumentException("Unknown image source: " + source);
+        }
+        if (page < 0 || size < 1) {
+            throw new IllegalArgumentException("page must be at least 0 and size at least 1");
+        }
+        ImageCatalog.Page result = imageCatalogService.catalog()
+                .query(source, architecture, namePattern, latestPerFamily, sort, page, size);
+        return new ImagePage(result.images().stream()
+                .map(image -> DtoMapper.toImageInfo(image, fields))
+                .toList(), result.page(), result.size(), result.total());
+    }
 
-                if (matchesInstance) {
-                    alarms.add(alarm.alarmName());  // Add the alarm name if it matches
-                }
-            }
-            nextToken = response.nextToken();  // Handle pagination if needed
-        } while (nextToken != null);  // If the response is paginated
+    public List<AlarmState> getAlarmsForInstance(String instanceId, FieldSelection fields) {
+        return alarmIndexService.index().findForInstance(instanceId).stream()
+                .map(alarm -> DtoMapper.toAlarmState(alarm, fields))
+                .toList();
+    }
 
+    public Map<String, List<AlarmState>> getAlarmsForInstances(List<String> instanceIds, FieldSelection fields) {
+        AlarmIndex index = alarmIndexService.index();
+        Map<String, List<AlarmState>> alarms = new LinkedHashMap<>();
+        for (String instanceId : instanceIds) {
+            alarms.put(instanceId, index.findForInstance(instanceId).stream()
+                    .map(alarm -> DtoMapper.toAlarmState(alarm, fields))
+                    .toList());
+        }
         return alarms;
     }
 
-//    public List<String> getImagesForWindows(){
-//        List<String> imageResponse = new ArrayList<>();
-//        DescribeImagesRequest describeImagesRequest = DescribeImagesRequest.builder()
-//                .filters(
-//                        Filter.builder()
-//                                .name("name")  // This is the key for the filter (filtering by image name)
-//                                .values("Windows_Server-2022-*")  // Pattern to match AMI names
-//                                .build())
-//                .maxResults(25)  // Limit to 25 results
-//                .build();
-//
-//        DescribeImagesResponse describeImagesResponse = ec2Client.describeImages(describeImagesRequest);
-//        List<Image> images = describeImagesResponse.images();
-//
-//        for (Image image : images) {
-//            imageResponse.add(
-//                    "AMI ID: " + image.imageId() +
-//                            ", Name: " + image.name()+
-//                            ", Description: " + image.description()
-//            );
-//        }
-//        return imageResponse;
-//    }
-    
+    /**
+     * CPU, network and disk series for the given instances, or for every running instance when none are given.
+     */
+    public InstanceMetrics getMetrics(List<String> instanceIds, List<String> metrics, Duration window, int resolutionSeconds) {
+        List<String> targets = instanceIds;
+        if (targets == null || targets.isEmpty()) {
+            targets = inventorySnapshotService.current().instances().values().stream()
+                    .filter(instance -> instance.state() != null && "running".equals(instance.state().nameAsString()))
+                    .map(Instance::instanceId)
+                    .toList();
+        }
+        if (targets.size() > maxMetricInstances) {
+            throw new IllegalArgumentException("At most " + maxMetricInstances + " instances can be queried at once.");
+        }
+        return metricsService.getMetrics(targets, metrics == null || metrics.isEmpty() ? MetricsService.DEFAULT_METRICS : metrics,
+                window, resolutionSeconds);
+    }
+
 }
@@ -0,0 +1,153 @@
+package aws.ec2connect.service;
+
+import aws.ec2connect.client.AwsCallTrace;
+import aws.ec2connect.client.AwsClientRegistry;
+import aws.ec2connect.client.RequestPriority;
+import aws.ec2connect.dto.AlarmState;
+import aws.ec2connect.dto.FieldSelection;
+import aws.ec2connect.dto.FleetResult;
+import aws.ec2connect.dto.FleetResult.RegionStatus;
+import aws.ec2connect.dto.FleetResult.RegionalItem;
+import aws.ec2connect.dto.FleetResult.Status;
+import aws.ec2connect.dto.InstanceInfo;
+import aws.ec2connect.dto.SecurityGroup;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.cloudwatch.model.DescribeAlarmsRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeInstancesRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeSecurityGroupsRequest;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Runs the same read in every configured region in parallel and merges the results. A global semaphore caps
+ * the regions queried at once across all requests, and regions still running at the deadline are reported
+ * as timed out instead of holding up the response.
+ */
+@Service
+public class FleetService {
+
+    private final AwsClientRegistry awsClientRegistry;
+    private final Semaphore regionPermits;
+    private final Duration timeout;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public FleetService(AwsClientRegistry awsClientRegistry,
+                        @Value("${ec2connect.fleet.max-concurrency:4}") int maxConcurrency,
+                        @Value("${ec2connect.fleet.timeout:PT15S}") Duration timeout) {
+        this.awsClientRegistry = awsClientRegistry;
+        this.regionPermits = new Semaphore(maxConcurrency);
+        this.timeout = timeout;
+    }
+
+    public FleetResult<InstanceInfo> instances(Collection<Region> regions, FieldSelection fields) {
+        return fanOut(regions, region -> awsClientRegistry.ec2(region)
+                .describeInstancesPaginator(DescribeInstancesRequest.builder().build())
+                .reservations().stream()
+                .flatMap(reservation -> reservation.instances().stream())
+                .map(instance -> DtoMapper.toInstanceInfo(instance, fields))
+                .toList());
+    }
+
+    public FleetResult<SecurityGroup> securityGroups(Collection<Region> regions, FieldSelection fields) {
+        return fanOut(regions, region -> awsClientRegistry.ec2(region)
+                .describeSecurityGroupsPaginator(DescribeSecurityGroupsRequest.builder().build())
+                .securityGroups().stream()
+                .map(group -> DtoMapper.toSecurityGroup(group, fields))
+                .toList());
+    }
+
+    public FleetResult<AlarmState> alarms(Collection<Region> regions, FieldSelection fields) {
+        return fanOut(regions, region -> awsClientRegistry.cloudWatch(region)
+                .describeAlarmsPaginator(DescribeAlarmsRequest.builder().build())
+                .metricAlarms().stream()
+                .map(alarm -> DtoMapper.toAlarmState(alarm, fields))
+                .toList());
+    }
+
+    /**
+     * Resolves a comma-separated region filter against the configured regions; null or blank means all of them.
+     */
+    public List<Region> regions(String filter) {
+        if (filter == null || filter.isBlank()) {
+            return awsClientRegistry.regions();
+        }
+        List<Region> selected = new ArrayList<>();
+        for (String name : filter.split(",")) {
+            Region region = Region.of(name.trim());
+            if (!awsClientRegistry.regions().contains(region)) {
+                throw new IllegalArgumentException("Region '" + name.trim() + "' is not configured. Configured regions: "
+                        + awsClientRegistry.regions());
+            }
+            selected.add(region);
+        }
+        return selected;
+    }
+
+    private <T> FleetResult<T> fanOut(Collection<Region> regions, Function<Region, List<T>> query) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Map<Region, Future<List<T>>> futures = new LinkedHashMap<>();
+        Map<Region, Long> startedAt = new ConcurrentHashMap<>();
+        Map<Region, Long> finishedAt = new ConcurrentHashMap<>();
+
+        // A region listed twice would replace its first task's future and leave that task running unobserved
+        for (Region region : new LinkedHashSet<>(regions)) {
+            futures.put(region, executor.submit(RequestPriority.wrap(AwsCallTrace.wrap(() -> {
+                regionPermits.acquire();
+                try {
+                    startedAt.put(region, System.nanoTime());
+                    return query.apply(region);
+                } finally {
+                    finishedAt.put(region, System.nanoTime());
+                    regionPermits.release();
+                }
+            }))));
+        }
+
+        List<RegionalItem<T>> items = new ArrayList<>();
+        Map<String, RegionStatus> statuses = new LinkedHashMap<>();
+        for (Map.Entry<Region, Future<List<T>>> entry : futures.entrySet()) {
+            Region region = entry.getKey();
+            RegionStatus status;
+            try {
+                List<T> regionItems = entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                regionItems.forEach(item -> items.add(new RegionalItem<>(region.id(), item)));
+                status = new RegionStatus(Status.OK, latencyMillis(region, startedAt, finishedAt), regionItems.size(), null);
+            } catch (TimeoutException e) {
+                entry.getValue().cancel(true);
+                status = new RegionStatus(Status.TIMED_OUT, latencyMillis(region, startedAt, finishedAt), 0,
+                        "No answer within " + timeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                entry.getValue().cancel(true);
+                status = new RegionStatus(Status.FAILED, latencyMillis(region, startedAt, finishedAt), 0, "Interrupted");
+            } catch (ExecutionException e) {
+                e.getCause().printStackTrace();
+                status = new RegionStatus(Status.FAILED, latencyMillis(region, startedAt, finishedAt), 0,
+                        e.getCause().getMessage());
+            }
+            statuses.put(region.id(), status);
+        }
+        return new FleetResult<>(items, statuses);
+    }
+
+    // Time spent querying the region itself, not waiting for a permit; -1 if it never got one
+    private static long latencyMillis(Region region, Map<Region, Long> startedAt, Map<Region, Long> finishedAt) {
+        Long start = startedAt.get(region);
+        if (start == null) {
+            return -1;
+        }
+        Long end = finishedAt.getOrDefault(region, System.nanoTime());
+        return TimeUnit.NANOSECONDS.toMillis(end - start);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
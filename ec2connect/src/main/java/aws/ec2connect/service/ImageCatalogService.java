@@ -0,0 +1,170 @@
+package aws.ec2connect.service;
+
+import aws.ec2connect.client.RequestPriority;
+import aws.ec2connect.index.ImageCatalog;
+import aws.ec2connect.index.ImageCatalog.ImageEntry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.DescribeImagesRequest;
+import software.amazon.awssdk.services.ec2.model.Filter;
+import software.amazon.awssdk.services.ec2.model.Image;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the AMIs of the configured sources in an {@link ImageCatalog} so image endpoints never call
+ * DescribeImages themselves. A source is {@code name:owner:namePattern}, e.g. {@code rhel:309956199498:RHEL-*}.
+ * <p>
+ * A full sync reloads every source and drops deregistered images. Incremental syncs only ask for images
+ * created on or after the day of the newest one held, through one creation-date wildcard per day,
+ * since DescribeImages cannot filter on "newer than".
+ */
+@Service
+public class ImageCatalogService {
+
+    // Past this many days an incremental sync would need too many wildcards; reload the source instead
+    private static final int MAX_INCREMENTAL_DAYS = 31;
+
+    private final Ec2Client ec2Client;
+    private final Map<String, ImageSource> sources;
+    private volatile ImageCatalog catalog;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public ImageCatalogService(Ec2Client ec2Client,
+                               @Value("${ec2connect.images.sources:rhel:309956199498:RHEL-*,windows:amazon:Windows_Server-2022-*}") String sources) {
+        this.ec2Client = ec2Client;
+        this.sources = new LinkedHashMap<>();
+        for (String source : sources.split(",")) {
+            String[] parts = source.trim().split(":", 3);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Image sources must look like name:owner:namePattern but got " + source);
+            }
+            this.sources.put(parts[0], new ImageSource(parts[0], parts[1], parts[2]));
+        }
+    }
+
+    public ImageCatalog catalog() {
+        ImageCatalog current = catalog;
+        if (current == null) {
+            lock.lock();
+            try {
+                current = catalog;
+                if (current == null) {
+                    current = fullSync();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return current;
+    }
+
+    public boolean hasSource(String source) {
+        return sources.containsKey(source);
+    }
+
+    @Scheduled(initialDelayString = "${ec2connect.images.initial-delay:PT0S}",
+            fixedDelayString = "${ec2connect.images.full-sync-interval:PT24H}")
+    public void scheduledFullSync() {
+        try (RequestPriority.Scope ignored = RequestPriority.background()) {
+            fullSync();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${ec2connect.images.incremental-sync-interval:PT1H}",
+            fixedDelayString = "${ec2connect.images.incremental-sync-interval:PT1H}")
+    public void scheduledIncrementalSync() {
+        try (RequestPriority.Scope ignored = RequestPriority.background()) {
+            if (catalog != null) {
+                incrementalSync();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public ImageCatalog fullSync() {
+        lock.lock();
+        try {
+            return doFullSync();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ImageCatalog doFullSync() {
+        ImageCatalog updated = catalog == null ? ImageCatalog.EMPTY : catalog;
+        for (ImageSource source : sources.values()) {
+            Instant startedAt = Instant.now();
+            updated = updated.withSource(source.name(), describe(source, List.of()), startedAt);
+        }
+        catalog = updated;
+        return updated;
+    }
+
+    public ImageCatalog incrementalSync() {
+        lock.lock();
+        try {
+            return doIncrementalSync();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ImageCatalog doIncrementalSync() {
+        ImageCatalog updated = catalog;
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        for (ImageSource source : sources.values()) {
+            Instant startedAt = Instant.now();
+            String latest = updated.latestCreationDate(source.name());
+            LocalDate from = latest == null ? null : LocalDate.parse(latest.substring(0, 10));
+            if (from == null || ChronoUnit.DAYS.between(from, today) >= MAX_INCREMENTAL_DAYS) {
+                updated = updated.withSource(source.name(), describe(source, List.of()), startedAt);
+                continue;
+            }
+            // The newest day is asked for again because more images may have been published on it since
+            List<String> days = new ArrayList<>();
+            for (LocalDate day = from; !day.isAfter(today); day = day.plusDays(1)) {
+                days.add(day + "*");
+            }
+            updated = updated.withNewImages(source.name(), describe(source, days), startedAt);
+        }
+        catalog = updated;
+        return updated;
+    }
+
+    private List<ImageEntry> describe(ImageSource source, List<String> creationDays) {
+        List<Filter> filters = new ArrayList<>(List.of(
+                Filter.builder().name("name").values(source.namePattern()).build(),
+                Filter.builder().name("state").values("available").build()));
+        if (!creationDays.isEmpty()) {
+            filters.add(Filter.builder().name("creation-date").values(creationDays).build());
+        }
+        DescribeImagesRequest request = DescribeImagesRequest.builder()
+                .owners(source.owner())
+                .filters(filters)
+                .maxResults(1000)
+                .build();
+        List<ImageEntry> images = new ArrayList<>();
+        for (Image image : ec2Client.describeImagesPaginator(request).images()) {
+            images.add(new ImageEntry(source.name(), image.imageId(), image.name(), image.description(),
+                    image.architectureAsString(), image.ownerId(), image.creationDate(), ImageCatalog.family(image.name())));
+        }
+        return images;
+    }
+
+    private record ImageSource(String name, String owner, String namePattern) {
+    }
+}
@@ -0,0 +1,229 @@
+package aws.ec2connect.service;
+
+import aws.ec2connect.client.AwsCallTrace;
+import aws.ec2connect.client.RequestPriority;
+import aws.ec2connect.dto.BatchInstanceRequest;
+import aws.ec2connect.dto.InstanceActionResult;
+import aws.ec2connect.dto.InstanceActionResult.Outcome;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Starts or stops many instances with one paginated state check and chunked Start/StopInstances calls.
+ * Every instance asked for gets a result: a chunk rejected for one of its instances is split until
+ * the instance at fault is isolated, and anything left without an answer is reported as failed.
+ */
+@Service
+public class InstanceBatchService {
+
+    // DescribeInstances accepts at most 200 values per filter
+    private static final int MAX_FILTER_VALUES = 200;
+    private static final long BASE_BACKOFF_MILLIS = 200;
+
+    private final Ec2Client ec2Client;
+    private final int chunkSize;
+    private final int maxAttempts;
+    private final Semaphore chunkPermits;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public InstanceBatchService(Ec2Client ec2Client,
+                                @Value("${ec2connect.batch.chunk-size:50}") int chunkSize,
+                                @Value("${ec2connect.batch.max-parallel-chunks:4}") int maxParallelChunks,
+                                @Value("${ec2connect.batch.max-attempts:5}") int maxAttempts) {
+        this.ec2Client = ec2Client;
+        this.chunkSize = chunkSize;
+        this.maxAttempts = maxAttempts;
+        this.chunkPermits = new Semaphore(maxParallelChunks);
+    }
+
+    public List<InstanceActionResult> stopInstances(BatchInstanceRequest request) {
+        return apply(request, Set.of("stopped", "stopping"), "stopped", ids -> {
+            StopInstancesResponse response = ec2Client.stopInstances(StopInstancesRequest.builder().instanceIds(ids).build());
+            return response.stoppingInstances();
+        });
+    }
+
+    public List<InstanceActionResult> startInstances(BatchInstanceRequest request) {
+        return apply(request, Set.of("running", "pending"), "running", ids -> {
+            StartInstancesResponse response = ec2Client.startInstances(StartInstancesRequest.builder().instanceIds(ids).build());
+            return response.startingInstances();
+        });
+    }
+
+    private List<InstanceActionResult> apply(BatchInstanceRequest request,
+                                             Set<String> targetStates,
+                                             String targetState,
+                                             Function<List<String>, List<InstanceStateChange>> action) {
+        if (request == null || request.isEmpty()) {
+            throw new IllegalArgumentException("Either instanceIds or tags must be provided.");
+        }
+        Map<String, InstanceActionResult> results = new ConcurrentHashMap<>();
+        List<String> pending = new ArrayList<>();
+
+        Map<String, String> states = describeStates(request);
+        for (Map.Entry<String, String> instance : states.entrySet()) {
+            String state = instance.getValue();
+            if (targetStates.contains(state)) {
+                results.put(instance.getKey(), new InstanceActionResult(instance.getKey(), state, state,
+                        Outcome.SKIPPED, "Instance is already " + state + "."));
+            } else if (state.equals("terminated") || state.equals("shutting-down")) {
+                results.put(instance.getKey(), new InstanceActionResult(instance.getKey(), state, state,
+                        Outcome.SKIPPED, "Instance cannot be " + targetState + " from state " + state + "."));
+            } else {
+                pending.add(instance.getKey());
+            }
+        }
+        if (request.instanceIds() != null) {
+            for (String instanceId : request.instanceIds()) {
+                if (!states.containsKey(instanceId)) {
+                    results.put(instanceId, new InstanceActionResult(instanceId, null, null,
+                            Outcome.NOT_FOUND, "Instance does not exist or does not match the tags."));
+                }
+            }
+        }
+
+        List<Future<?>> chunks = new ArrayList<>();
+        for (int from = 0; from < pending.size(); from += chunkSize) {
+            List<String> chunk = pending.subList(from, Math.min(from + chunkSize, pending.size()));
+            chunks.add(executor.submit(RequestPriority.wrap(AwsCallTrace.wrap(() -> runChunk(chunk, states, action, results)))));
+        }
+        for (Future<?> chunk : chunks) {
+            try {
+                chunk.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+        for (String instanceId : pending) {
+            if (!results.containsKey(instanceId)) {
+                String state = states.get(instanceId);
+                results.put(instanceId, new InstanceActionResult(instanceId, state, state, Outcome.FAILED,
+                        "No result was received for the instance."));
+            }
+        }
+
+        List<InstanceActionResult> ordered = new ArrayList<>(results.values());
+        ordered.sort(Comparator.comparing(InstanceActionResult::instanceId));
+        return ordered;
+    }
+
+    private void runChunk(List<String> chunk,
+                          Map<String, String> states,
+                          Function<List<String>, List<InstanceStateChange>> action,
+                          Map<String, InstanceActionResult> results) {
+        try {
+            chunkPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(chunk, states, results, "Interrupted before the request was sent.");
+            return;
+        }
+        try {
+            send(chunk, states, action, results);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(chunk, states, results, "Interrupted while backing off from throttling.");
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            fail(chunk, states, results, e.getMessage());
+        } finally {
+            chunkPermits.release();
+        }
+    }
+
+    private void send(List<String> chunk,
+                      Map<String, String> states,
+                      Function<List<String>, List<InstanceStateChange>> action,
+                      Map<String, InstanceActionResult> results) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                for (InstanceStateChange change : action.apply(chunk)) {
+                    results.put(change.instanceId(), new InstanceActionResult(change.instanceId(),
+                            change.previousState().nameAsString(), change.currentState().nameAsString(),
+                            Outcome.CHANGED, null));
+                }
+                return;
+            } catch (AwsServiceException e) {
+                if (e.isThrottlingException() && attempt < maxAttempts) {
+                    Thread.sleep(backoffMillis(attempt));
+                    continue;
+                }
+                // One instance in the wrong state rejects the whole call with a 400, so halve the chunk until it
+                // is alone; auth and server errors would fail every half the same way
+                if (!e.isThrottlingException() && e.statusCode() == 400 && chunk.size() > 1) {
+                    int middle = chunk.size() / 2;
+                    send(chunk.subList(0, middle), states, action, results);
+                    send(chunk.subList(middle, chunk.size()), states, action, results);
+                    return;
+                }
+                fail(chunk, states, results, e.awsErrorDetails() == null ? e.getMessage() : e.awsErrorDetails().errorMessage());
+                return;
+            } catch (SdkException e) {
+                // Client-side failures such as timeouts say nothing about individual instances
+                fail(chunk, states, results, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private Map<String, String> describeStates(BatchInstanceRequest request) {
+        List<Filter> tagFilters = new ArrayList<>();
+        if (request.tags() != null) {
+            request.tags().forEach((key, value) -> tagFilters.add(Filter.builder().name("tag:" + key).values(value).build()));
+        }
+
+        List<List<Filter>> queries = new ArrayList<>();
+        if (request.instanceIds() == null || request.instanceIds().isEmpty()) {
+            queries.add(tagFilters);
+        } else {
+            // Filtering by instance-id, unlike instanceIds(...), does not fail the whole call on one unknown ID
+            List<String> ids = request.instanceIds().stream().distinct().toList();
+            for (int from = 0; from < ids.size(); from += MAX_FILTER_VALUES) {
+                List<Filter> filters = new ArrayList<>(tagFilters);
+                filters.add(Filter.builder().name("instance-id")
+                        .values(ids.subList(from, Math.min(from + MAX_FILTER_VALUES, ids.size()))).build());
+                queries.add(filters);
+            }
+        }
+
+        Map<String, String> states = new LinkedHashMap<>();
+        for (List<Filter> filters : queries) {
+            ec2Client.describeInstancesPaginator(DescribeInstancesRequest.builder().filters(filters).maxResults(1000).build())
+                    .reservations()
+                    .forEach(reservation -> reservation.instances()
+                            .forEach(instance -> states.put(instance.instanceId(), instance.state().nameAsString())));
+        }
+        return states;
+    }
+
+    // Instances of the chunk that already have a result, e.g. from a half that went through, keep it
+    private static void fail(List<String> chunk, Map<String, String> states,
+                             Map<String, InstanceActionResult> results, String message) {
+        for (String instanceId : chunk) {
+            String state = states.get(instanceId);
+            results.putIfAbsent(instanceId, new InstanceActionResult(instanceId, state, state, Outcome.FAILED, message));
+        }
+    }
+
+    private static long backoffMillis(int attempt) {
+        long ceiling = BASE_BACKOFF_MILLIS << Math.min(attempt, 6);
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
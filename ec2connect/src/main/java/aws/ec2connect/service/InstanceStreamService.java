@@ -0,0 +1,123 @@
+package aws.ec2connect.service;
+
+import aws.ec2connect.dto.FieldSelection;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.DescribeInstancesRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeInstancesResponse;
+import software.amazon.awssdk.services.ec2.model.Instance;
+import software.amazon.awssdk.services.ec2.model.Reservation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Streams the fleet straight from DescribeInstances pages to the response, one page in memory at a time.
+ */
+@Service
+public class InstanceStreamService {
+
+    public static final int MIN_PAGE_SIZE = 5;
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private final Ec2Client ec2Client;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper cborMapper;
+    private final ObjectMapper smileMapper;
+
+    public InstanceStreamService(Ec2Client ec2Client, ObjectMapper objectMapper,
+                                 MappingJackson2CborHttpMessageConverter cborConverter,
+                                 MappingJackson2SmileHttpMessageConverter smileConverter) {
+        this.ec2Client = ec2Client;
+        this.objectMapper = objectMapper;
+        this.cborMapper = cborConverter.getObjectMapper();
+        this.smileMapper = smileConverter.getObjectMapper();
+    }
+
+    /**
+     * Writes one JSON object per line. After every page a {"cursor": ...} line is written; passing that
+     * value back as cursor resumes the listing right after the instances already received.
+     * The stream stops after maxPages pages when maxPages is positive.
+     */
+    public void writeNdjson(OutputStream out, int pageSize, String cursor, int maxPages, FieldSelection fields) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.setRootValueSeparator(null);
+            String nextToken = cursor;
+            int pages = 0;
+            do {
+                DescribeInstancesResponse page = describePage(pageSize, nextToken);
+                for (Reservation reservation : page.reservations()) {
+                    for (Instance instance : reservation.instances()) {
+                        generator.writeObject(DtoMapper.toInstanceInfo(instance, fields));
+                        generator.writeRaw('\n');
+                    }
+                }
+                nextToken = page.nextToken();
+                if (nextToken != null) {
+                    generator.writeStartObject();
+                    generator.writeStringField("cursor", nextToken);
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                }
+                // Push each page to the client before fetching the next one
+                generator.flush();
+            } while (nextToken != null && (maxPages <= 0 || ++pages < maxPages));
+        }
+    }
+
+    /**
+     * Writes {"instances": [...], "nextCursor": ...} with the array emitted incrementally as pages arrive.
+     */
+    public void writeJsonArray(OutputStream out, int pageSize, String cursor, int maxPages, FieldSelection fields) throws IOException {
+        writeArray(objectMapper, out, pageSize, cursor, maxPages, fields);
+    }
+
+    /**
+     * Same document as {@link #writeJsonArray} in CBOR.
+     */
+    public void writeCborArray(OutputStream out, int pageSize, String cursor, int maxPages, FieldSelection fields) throws IOException {
+        writeArray(cborMapper, out, pageSize, cursor, maxPages, fields);
+    }
+
+    /**
+     * Same document as {@link #writeJsonArray} in Smile.
+     */
+    public void writeSmileArray(OutputStream out, int pageSize, String cursor, int maxPages, FieldSelection fields) throws IOException {
+        writeArray(smileMapper, out, pageSize, cursor, maxPages, fields);
+    }
+
+    private void writeArray(ObjectMapper mapper, OutputStream out, int pageSize, String cursor, int maxPages,
+                            FieldSelection fields) throws IOException {
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("instances");
+            String nextToken = cursor;
+            int pages = 0;
+            do {
+                DescribeInstancesResponse page = describePage(pageSize, nextToken);
+                for (Reservation reservation : page.reservations()) {
+                    for (Instance instance : reservation.instances()) {
+                        generator.writeObject(DtoMapper.toInstanceInfo(instance, fields));
+                    }
+                }
+                nextToken = page.nextToken();
+                generator.flush();
+            } while (nextToken != null && (maxPages <= 0 || ++pages < maxPages));
+            generator.writeEndArray();
+            generator.writeStringField("nextCursor", nextToken);
+            generator.writeEndObject();
+        }
+    }
+
+    private DescribeInstancesResponse describePage(int pageSize, String nextToken) {
+        return ec2Client.describeInstances(DescribeInstancesRequest.builder()
+                .maxResults(Math.clamp(pageSize, MIN_PAGE_SIZE, MAX_PAGE_SIZE))
+                .nextToken(nextToken)
+                .build());
+    }
+}
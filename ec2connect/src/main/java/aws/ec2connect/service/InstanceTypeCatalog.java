@@ -0,0 +1,69 @@
+package aws.ec2connect.service;
+
+import aws.ec2connect.client.RequestPriority;
+import aws.ec2connect.index.InstanceTypeIndex;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.DescribeInstanceTypesRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeInstanceTypesResponse;
+import software.amazon.awssdk.services.ec2.model.InstanceTypeInfo;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+public class InstanceTypeCatalog {
+
+    private final Ec2Client ec2Client;
+    private volatile InstanceTypeIndex index;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public InstanceTypeCatalog(Ec2Client ec2Client) {
+        this.ec2Client = ec2Client;
+    }
+
+    /**
+     * Returns the current index, loading it on the calling thread if the background load has not finished yet.
+     */
+    public InstanceTypeIndex index() {
+        InstanceTypeIndex current = index;
+        if (current == null) {
+            lock.lock();
+            try {
+                current = index;
+                if (current == null) {
+                    current = load();
+                    index = current;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return current;
+    }
+
+    @Scheduled(initialDelayString = "${ec2connect.instance-types.initial-delay:PT0S}",
+            fixedDelayString = "${ec2connect.instance-types.refresh-interval:PT6H}")
+    public void refresh() {
+        try (RequestPriority.Scope ignored = RequestPriority.background()) {
+            index = load();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private InstanceTypeIndex load() {
+        InstanceTypeIndex.Builder builder = InstanceTypeIndex.builder();
+        DescribeInstanceTypesRequest request = DescribeInstanceTypesRequest.builder()
+                .maxResults(100)
+                .build();
+        for (DescribeInstanceTypesResponse response : ec2Client.describeInstanceTypesPaginator(request)) {
+            for (InstanceTypeInfo instanceType : response.instanceTypes()) {
+                builder.add(instanceType.instanceTypeAsString(),
+                        instanceType.vCpuInfo().defaultVCpus(),
+                        Math.toIntExact(instanceType.memoryInfo().sizeInMiB()));
+            }
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,224 @@
+package aws.ec2connect.service;
+
+import aws.ec2connect.client.RequestPriority;
+import aws.ec2connect.dto.FieldSelection;
+import aws.ec2connect.dto.HistoryEntry;
+import aws.ec2connect.dto.HistoryEntry.Kind;
+import aws.ec2connect.dto.InstanceInfo;
+import aws.ec2connect.dto.SecurityGroup;
+import aws.ec2connect.index.AlarmIndex.AlarmEntry;
+import aws.ec2connect.repository.InventoryHistoryRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.DescribeSecurityGroupsRequest;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Periodically writes the instances, security groups and alarm states to the history table.
+ * Only resources whose JSON hash differs from their newest stored row are written, plus one row
+ * for every resource that disappeared.
+ */
+@Service
+@ConditionalOnProperty(name = "ec2connect.history.enabled", havingValue = "true")
+public class InventoryHistoryService {
+
+    private final InventoryHistoryRepository repository;
+    private final InventorySnapshotService inventorySnapshotService;
+    private final AlarmIndexService alarmIndexService;
+    private final Ec2Client ec2Client;
+    private final ObjectMapper objectMapper;
+    private final Timer writeTimer;
+    private final Counter rowsWritten;
+    private final MeterRegistry meterRegistry;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Newest stored hash per kind:resourceId, null for deleted resources; loaded from the table on first use
+    private Map<String, String> storedHashes;
+
+    public InventoryHistoryService(InventoryHistoryRepository repository,
+                                   InventorySnapshotService inventorySnapshotService,
+                                   AlarmIndexService alarmIndexService,
+                                   Ec2Client ec2Client,
+                                   ObjectMapper objectMapper,
+                                   MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.inventorySnapshotService = inventorySnapshotService;
+        this.alarmIndexService = alarmIndexService;
+        this.ec2Client = ec2Client;
+        // Sorted map keys keep the JSON, and so the hash, stable for alarm dimensions
+        this.objectMapper = objectMapper.copy().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        this.meterRegistry = meterRegistry;
+        this.writeTimer = meterRegistry.timer("ec2connect.history.write");
+        this.rowsWritten = meterRegistry.counter("ec2connect.history.rows");
+    }
+
+    @Scheduled(initialDelayString = "${ec2connect.history.initial-delay:PT1M}",
+            fixedDelayString = "${ec2connect.history.snapshot-interval:PT5M}")
+    public void scheduledSnapshot() {
+        try (RequestPriority.Scope ignored = RequestPriority.background()) {
+            recordSnapshot();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes one history cycle and returns the number of rows written. A kind whose source fails
+     * is skipped for this cycle rather than being recorded as deleted.
+     */
+    public int recordSnapshot() {
+        lock.lock();
+        try {
+            return doRecordSnapshot();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int doRecordSnapshot() {
+        if (storedHashes == null) {
+            storedHashes = repository.latestHashes();
+        }
+        Instant now = Instant.now();
+        Map<String, String> updatedHashes = new HashMap<>();
+        List<HistoryEntry> changed = new ArrayList<>();
+
+        collect(Kind.INSTANCE, now, changed, updatedHashes, () -> {
+            Map<String, Versioned> instances = new HashMap<>();
+            inventorySnapshotService.current().instances().forEach((id, instance) ->
+                    instances.put(id, new Versioned(id, DtoMapper.toInstanceInfo(instance, FieldSelection.ALL))));
+            return instances;
+        });
+        collect(Kind.SECURITY_GROUP, now, changed, updatedHashes, () -> {
+            Map<String, Versioned> groups = new HashMap<>();
+            ec2Client.describeSecurityGroupsPaginator(DescribeSecurityGroupsRequest.builder().build())
+                    .securityGroups()
+                    .forEach(group -> groups.put(group.groupId(),
+                            new Versioned(null, DtoMapper.toSecurityGroup(group, FieldSelection.ALL))));
+            return groups;
+        });
+        collect(Kind.ALARM, now, changed, updatedHashes, () -> {
+            Map<String, Versioned> alarms = new HashMap<>();
+            for (AlarmEntry alarm : alarmIndexService.index().all()) {
+                alarms.put(alarm.alarmName(), new Versioned(alarm.dimensions().get("InstanceId"), alarm));
+            }
+            return alarms;
+        });
+
+        if (!changed.isEmpty()) {
+            writeTimer.record(() -> repository.insertAll(changed));
+            rowsWritten.increment(changed.size());
+            // Only remember the new hashes once they are stored, so a failed write is retried next cycle
+            storedHashes.putAll(updatedHashes);
+        }
+        return changed.size();
+    }
+
+    public List<HistoryEntry> instanceHistory(String instanceId, Instant from, Instant to, int limit) {
+        return timed("instance", () -> repository.findByInstance(instanceId, from, to, limit));
+    }
+
+    public List<HistoryEntry> changesSince(Instant since, Kind kind, int limit) {
+        return timed("changes", () -> repository.findChangedSince(since, kind, limit));
+    }
+
+    /**
+     * The newest stored version of every instance, used when AWS cannot be reached.
+     */
+    public List<InstanceInfo> latestInstances(FieldSelection fields) {
+        List<InstanceInfo> instances = new ArrayList<>();
+        for (HistoryEntry entry : timed("latest", () -> repository.latest(Kind.INSTANCE))) {
+            instances.add(DtoMapper.project(read(entry.payload(), InstanceInfo.class), fields));
+        }
+        return instances;
+    }
+
+    public List<SecurityGroup> latestSecurityGroups(FieldSelection fields) {
+        List<SecurityGroup> groups = new ArrayList<>();
+        for (HistoryEntry entry : timed("latest", () -> repository.latest(Kind.SECURITY_GROUP))) {
+            groups.add(DtoMapper.project(read(entry.payload(), SecurityGroup.class), fields));
+        }
+        return groups;
+    }
+
+    private void collect(Kind kind, Instant now, List<HistoryEntry> changed, Map<String, String> updatedHashes,
+                         Supplier<Map<String, Versioned>> source) {
+        Map<String, Versioned> current;
+        try {
+            current = source.get();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return;
+        }
+        String prefix = kind.name() + ":";
+        for (Map.Entry<String, Versioned> resource : current.entrySet()) {
+            String payload = write(resource.getValue().value());
+            String hash = sha256(payload);
+            String key = prefix + resource.getKey();
+            if (!hash.equals(storedHashes.get(key))) {
+                changed.add(new HistoryEntry(kind, resource.getKey(), resource.getValue().instanceId(), now,
+                        false, hash, payload));
+                updatedHashes.put(key, hash);
+            }
+        }
+        for (Map.Entry<String, String> stored : storedHashes.entrySet()) {
+            String key = stored.getKey();
+            if (key.startsWith(prefix) && stored.getValue() != null
+                    && !current.containsKey(key.substring(prefix.length()))) {
+                String resourceId = key.substring(prefix.length());
+                String instanceId = kind == Kind.INSTANCE ? resourceId : null;
+                changed.add(new HistoryEntry(kind, resourceId, instanceId, now, true, null, null));
+                updatedHashes.put(key, null);
+            }
+        }
+    }
+
+    private <T> T timed(String query, Supplier<T> supplier) {
+        return meterRegistry.timer("ec2connect.history.query", "query", query).record(supplier);
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> T read(String payload, Class<T> type) {
+        try {
+            return objectMapper.readValue(payload, type);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String sha256(String payload) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // A DTO plus the instance it belongs to, if any
+    private record Versioned(String instanceId, Object value) {
+    }
+}
@@ -0,0 +1,219 @@
+package aws.ec2connect.service;
+
+import aws.ec2connect.client.RequestPriority;
+import aws.ec2connect.events.InstanceStateEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.DescribeInstancesRequest;
+import software.amazon.awssdk.services.ec2.model.Instance;
+import software.amazon.awssdk.services.ec2.model.InstanceState;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps an immutable, versioned copy of the fleet so read endpoints never call DescribeInstances themselves.
+ * The version only changes when the instances differ from the previous snapshot, so together with a random id
+ * drawn at startup it can be used as an ETag: versions restart at 1 on every boot and on every replica.
+ * <p>
+ * With ec2connect.events.enabled, state-change events are applied to the snapshot as they arrive and
+ * DescribeInstances only runs as a reconciliation sweep every ec2connect.events.reconcile-interval.
+ */
+@Service
+public class InventorySnapshotService {
+
+    // Event times come from another clock and only carry whole seconds, so an event this close to the start of
+    // a sweep may still be newer than what the sweep saw; re-applying a state the sweep already shows is a no-op
+    private static final Duration EVENT_CLOCK_SKEW = Duration.ofSeconds(2);
+
+    private final Ec2Client ec2Client;
+    private final String bootId = Long.toHexString(new SecureRandom().nextLong());
+    private final Duration maxStaleness;
+    private final boolean eventDriven;
+    private final Duration reconcileInterval;
+    // A lock rather than synchronized: requests waiting on a refresh must not pin their carrier on virtual threads
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile InventorySnapshot snapshot;
+    // Set when an event names an instance the snapshot does not know, so the next sweep runs early
+    private volatile boolean reconcileRequested;
+    // Time of the newest event applied per instance since the last sweep; guarded by lock
+    private final Map<String, Instant> eventTimes = new HashMap<>();
+
+    public InventorySnapshotService(Ec2Client ec2Client,
+                                    @Value("${ec2connect.inventory.max-staleness:PT2M}") Duration maxStaleness,
+                                    @Value("${ec2connect.events.enabled:false}") boolean eventDriven,
+                                    @Value("${ec2connect.events.reconcile-interval:PT15M}") Duration reconcileInterval) {
+        this.ec2Client = ec2Client;
+        this.eventDriven = eventDriven;
+        this.reconcileInterval = reconcileInterval;
+        // Events keep the snapshot current between sweeps, so it only counts as stale once a sweep is overdue
+        this.maxStaleness = eventDriven ? reconcileInterval.plus(maxStaleness) : maxStaleness;
+    }
+
+    /**
+     * Returns the current snapshot, refreshing it on the calling thread when there is none yet
+     * or the background refresh has fallen further behind than the configured maximum staleness.
+     * If that refresh fails, the stale snapshot is returned.
+     */
+    public InventorySnapshot current() {
+        InventorySnapshot current = snapshot;
+        if (current == null || current.isOlderThan(maxStaleness)) {
+            lock.lock();
+            try {
+                current = snapshot;
+                if (current == null) {
+                    current = refresh();
+                } else if (current.isOlderThan(maxStaleness)) {
+                    try {
+                        current = refresh();
+                    } catch (Exception e) {
+                        // Serve the stale snapshot rather than failing the request
+                        e.printStackTrace();
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return current;
+    }
+
+    @Scheduled(initialDelayString = "${ec2connect.inventory.initial-delay:PT0S}",
+            fixedDelayString = "${ec2connect.inventory.refresh-interval:PT30S}")
+    public void scheduledRefresh() {
+        InventorySnapshot current = snapshot;
+        if (eventDriven && !reconcileRequested && current != null && !current.isOlderThan(reconcileInterval)) {
+            return;
+        }
+        try (RequestPriority.Scope ignored = RequestPriority.background()) {
+            refresh();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public InventorySnapshot refresh() {
+        lock.lock();
+        try {
+            return doRefresh();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private InventorySnapshot doRefresh() {
+        reconcileRequested = false;
+        // The sweep reflects the fleet as of its start, so only events after that may override it
+        Instant startedAt = Instant.now();
+        Map<String, Instance> instances = new LinkedHashMap<>();
+        ec2Client.describeInstancesPaginator(DescribeInstancesRequest.builder().build())
+                .reservations()
+                .forEach(reservation -> reservation.instances()
+                        .forEach(instance -> instances.put(instance.instanceId(), instance)));
+
+        InventorySnapshot previous = snapshot;
+        eventTimes.clear();
+        if (previous != null && previous.instances().equals(instances)) {
+            snapshot = new InventorySnapshot(bootId, previous.version(), previous.changedAt(), startedAt,
+                    previous.instances());
+        } else {
+            long version = previous == null ? 1 : previous.version() + 1;
+            snapshot = new InventorySnapshot(bootId, version, Instant.now(), startedAt,
+                    Collections.unmodifiableMap(instances));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Sets the state of every known instance named by the events, publishing a new snapshot version when
+     * any of them changed. The events must already be reduced to the newest one per instance. An event no newer
+     * than what the snapshot already reflects for its instance, the last sweep (less a clock-skew allowance) or a
+     * later event, is outdated and skipped, so late deliveries and replayed backlogs never move an instance back. Instances missing from the
+     * snapshot cannot be built from an event and are left to an early reconciliation sweep.
+     */
+    public StateChanges applyStateChanges(Collection<InstanceStateEvent> events) {
+        lock.lock();
+        try {
+            return doApplyStateChanges(events);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private StateChanges doApplyStateChanges(Collection<InstanceStateEvent> events) {
+        InventorySnapshot previous = snapshot;
+        if (previous == null) {
+            return new StateChanges(0, 0, events.size(), 0);
+        }
+        Map<String, Instance> instances = null;
+        int changed = 0;
+        int unknown = 0;
+        int outdated = 0;
+        for (InstanceStateEvent event : events) {
+            Instance instance = previous.instances().get(event.instanceId());
+            if (instance == null) {
+                unknown++;
+                continue;
+            }
+            Instant observedAt = eventTimes.getOrDefault(event.instanceId(),
+                    previous.refreshedAt().truncatedTo(ChronoUnit.SECONDS).minus(EVENT_CLOCK_SKEW));
+            if (!event.time().isAfter(observedAt)) {
+                outdated++;
+                continue;
+            }
+            eventTimes.put(event.instanceId(), event.time());
+            if (instance.state() != null && event.state().equals(instance.state().nameAsString())) {
+                continue;
+            }
+            if (instances == null) {
+                instances = new LinkedHashMap<>(previous.instances());
+            }
+            instances.put(event.instanceId(), instance.toBuilder()
+                    .state(InstanceState.builder().name(event.state()).code(event.stateCode()).build())
+                    .build());
+            changed++;
+        }
+        if (instances != null) {
+            snapshot = new InventorySnapshot(bootId, previous.version() + 1, Instant.now(), previous.refreshedAt(),
+                    Collections.unmodifiableMap(instances));
+        }
+        if (unknown > 0) {
+            reconcileRequested = true;
+        }
+        return new StateChanges(changed, events.size() - changed - unknown - outdated, unknown, outdated);
+    }
+
+    /**
+     * Makes the next scheduled sweep run even if the last one is recent, e.g. after events were lost.
+     */
+    public void requestReconcile() {
+        reconcileRequested = true;
+    }
+
+    public record StateChanges(int changed, int unchanged, int unknown, int outdated) {
+    }
+
+    public record InventorySnapshot(String bootId, long version, Instant changedAt, Instant refreshedAt,
+                                    Map<String, Instance> instances) {
+
+        // Weak, since the same version is served as JSON, CBOR or Smile and compressed or not;
+        // Tomcat also refuses to gzip responses carrying a strong ETag
+        public String eTag() {
+            return "W/\"inventory-" + bootId + "-" + version + "\"";
+        }
+
+        boolean isOlderThan(Duration maxStaleness) {
+            return refreshedAt.plus(maxStaleness).isBefore(Instant.now());
+        }
+    }
+}
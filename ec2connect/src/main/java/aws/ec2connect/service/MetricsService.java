@@ -0,0 +1,197 @@
+package aws.ec2connect.service;
+
+import aws.ec2connect.client.RequestCoalescer;
+import aws.ec2connect.dto.InstanceMetrics;
+import aws.ec2connect.index.TimeSeriesBuffer;
+import aws.ec2connect.index.TimeSeriesBuffer.Aggregation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.cloudwatch.model.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Fleet utilization from GetMetricData. Up to 500 metric queries go into each request and the paginator
+ * follows NextToken, so hundreds of instances cost a handful of calls instead of one GetMetricStatistics
+ * call per instance and metric. Identical requests within the cache TTL are answered from memory, and
+ * identical requests that miss the cache at the same time share a single fetch.
+ */
+@Service
+public class MetricsService {
+
+    // GetMetricData accepts at most 500 queries per request
+    private static final int MAX_QUERIES_PER_REQUEST = 500;
+    private static final int MAX_CACHED_RESPONSES = 64;
+    private static final int MAX_POINTS_PER_SERIES = 1440;
+
+    private static final Map<String, Aggregation> SUPPORTED_METRICS = new LinkedHashMap<>();
+
+    static {
+        SUPPORTED_METRICS.put("CPUUtilization", Aggregation.AVERAGE);
+        SUPPORTED_METRICS.put("NetworkIn", Aggregation.SUM);
+        SUPPORTED_METRICS.put("NetworkOut", Aggregation.SUM);
+        SUPPORTED_METRICS.put("DiskReadBytes", Aggregation.SUM);
+        SUPPORTED_METRICS.put("DiskWriteBytes", Aggregation.SUM);
+    }
+
+    public static final List<String> DEFAULT_METRICS = List.of("CPUUtilization", "NetworkIn", "NetworkOut");
+
+    private final CloudWatchClient cloudWatchClient;
+    private final RequestCoalescer requestCoalescer;
+    private final int periodSeconds;
+    private final long cacheTtlNanos;
+    private final LinkedHashMap<CacheKey, CacheEntry> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+            return size() > MAX_CACHED_RESPONSES;
+        }
+    };
+
+    public MetricsService(CloudWatchClient cloudWatchClient,
+                          RequestCoalescer requestCoalescer,
+                          @Value("${ec2connect.metrics.period:PT5M}") Duration period,
+                          @Value("${ec2connect.metrics.cache-ttl:PT1M}") Duration cacheTtl) {
+        this.cloudWatchClient = cloudWatchClient;
+        this.requestCoalescer = requestCoalescer;
+        this.periodSeconds = (int) period.toSeconds();
+        this.cacheTtlNanos = cacheTtl.toNanos();
+    }
+
+    public InstanceMetrics getMetrics(Collection<String> instanceIds, Collection<String> metrics,
+                                      Duration window, int resolutionSeconds) {
+        if (resolutionSeconds < 60 || resolutionSeconds % 60 != 0) {
+            throw new IllegalArgumentException("resolution must be a multiple of 60 seconds.");
+        }
+        if (window.toSeconds() / resolutionSeconds > MAX_POINTS_PER_SERIES) {
+            throw new IllegalArgumentException("window / resolution must not exceed " + MAX_POINTS_PER_SERIES + " points.");
+        }
+        for (String metric : metrics) {
+            if (!SUPPORTED_METRICS.containsKey(metric)) {
+                throw new IllegalArgumentException("Unsupported metric '" + metric + "'. Supported metrics: "
+                        + SUPPORTED_METRICS.keySet());
+            }
+        }
+        List<String> sortedIds = instanceIds.stream().distinct().sorted().toList();
+        List<String> metricNames = List.copyOf(new LinkedHashSet<>(metrics));
+        CacheKey key = new CacheKey(sortedIds, metricNames, window.toSeconds(), resolutionSeconds);
+
+        synchronized (cache) {
+            CacheEntry entry = cache.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                return shared(entry.metrics);
+            }
+        }
+
+        // The entry is stored before the coalescer releases the key, so a caller arriving after the fetch
+        // finds it in the cache instead of starting another one
+        boolean[] fetched = new boolean[1];
+        InstanceMetrics result = requestCoalescer.execute("MetricsService.getMetrics", key, () -> {
+            fetched[0] = true;
+            InstanceMetrics fresh = fetch(sortedIds, metricNames, window, resolutionSeconds);
+            synchronized (cache) {
+                cache.put(key, new CacheEntry(fresh, System.nanoTime() + cacheTtlNanos));
+            }
+            return fresh;
+        });
+        return fetched[0] ? result : shared(result);
+    }
+
+    // A response this caller did not fetch itself made no API calls on its behalf
+    private static InstanceMetrics shared(InstanceMetrics metrics) {
+        return new InstanceMetrics(metrics.start(), metrics.end(), metrics.resolutionSeconds(), 0, true,
+                metrics.instances());
+    }
+
+    private InstanceMetrics fetch(List<String> instanceIds, List<String> metrics, Duration window, int resolutionSeconds) {
+        // Let CloudWatch aggregate whole buckets when the resolution is a multiple of the configured period;
+        // otherwise query at one minute and let the buffer downsample to the resolution
+        int period = resolutionSeconds % periodSeconds == 0 ? resolutionSeconds : 60;
+        long endSecond = Instant.now().getEpochSecond() / resolutionSeconds * resolutionSeconds;
+        int buckets = (int) Math.max(1, window.toSeconds() / resolutionSeconds);
+        long startSecond = endSecond - (long) buckets * resolutionSeconds;
+        Instant start = Instant.ofEpochSecond(startSecond);
+        Instant end = Instant.ofEpochSecond(endSecond);
+
+        // Series i is instance i / metrics.size(), metric i % metrics.size(); the query id encodes i
+        int seriesCount = instanceIds.size() * metrics.size();
+        TimeSeriesBuffer buffer = new TimeSeriesBuffer(seriesCount, startSecond, resolutionSeconds, buckets);
+        List<MetricDataQuery> queries = new ArrayList<>(seriesCount);
+        for (int i = 0; i < seriesCount; i++) {
+            String instanceId = instanceIds.get(i / metrics.size());
+            String metric = metrics.get(i % metrics.size());
+            queries.add(MetricDataQuery.builder()
+                    .id("m" + i)
+                    .returnData(true)
+                    .metricStat(MetricStat.builder()
+                            .metric(Metric.builder()
+                                    .namespace("AWS/EC2")
+                                    .metricName(metric)
+                                    .dimensions(Dimension.builder().name("InstanceId").value(instanceId).build())
+                                    .build())
+                            .period(period)
+                            .stat(SUPPORTED_METRICS.get(metric) == Aggregation.AVERAGE ? "Average" : "Sum")
+                            .build())
+                    .build());
+        }
+
+        int apiCalls = 0;
+        for (int from = 0; from < queries.size(); from += MAX_QUERIES_PER_REQUEST) {
+            GetMetricDataRequest request = GetMetricDataRequest.builder()
+                    .metricDataQueries(queries.subList(from, Math.min(from + MAX_QUERIES_PER_REQUEST, queries.size())))
+                    .startTime(start)
+                    .endTime(end)
+                    .scanBy(ScanBy.TIMESTAMP_ASCENDING)
+                    .build();
+            for (GetMetricDataResponse page : cloudWatchClient.getMetricDataPaginator(request)) {
+                apiCalls++;
+                for (MetricDataResult result : page.metricDataResults()) {
+                    int series = Integer.parseInt(result.id().substring(1));
+                    List<Instant> timestamps = result.timestamps();
+                    List<Double> values = result.values();
+                    for (int point = 0; point < timestamps.size(); point++) {
+                        buffer.add(series, timestamps.get(point).getEpochSecond(), values.get(point));
+                    }
+                }
+            }
+        }
+
+        List<InstanceMetrics.Instance> instances = new ArrayList<>(instanceIds.size());
+        for (int instance = 0; instance < instanceIds.size(); instance++) {
+            Map<String, InstanceMetrics.Series> series = new LinkedHashMap<>();
+            for (int m = 0; m < metrics.size(); m++) {
+                Aggregation aggregation = SUPPORTED_METRICS.get(metrics.get(m));
+                series.put(metrics.get(m), toSeries(buffer.values(instance * metrics.size() + m, aggregation), aggregation));
+            }
+            instances.add(new InstanceMetrics.Instance(instanceIds.get(instance), series));
+        }
+        return new InstanceMetrics(start, end, resolutionSeconds, apiCalls, false, instances);
+    }
+
+    private static InstanceMetrics.Series toSeries(Float[] values, Aggregation aggregation) {
+        Float latest = null;
+        Float max = null;
+        double sum = 0;
+        int count = 0;
+        for (Float value : values) {
+            if (value == null) {
+                continue;
+            }
+            latest = value;
+            max = max == null ? value : Math.max(max, value);
+            sum += value;
+            count++;
+        }
+        Float average = count == 0 ? null : (float) (sum / count);
+        return new InstanceMetrics.Series(aggregation == Aggregation.AVERAGE ? "Average" : "Sum",
+                latest, average, max, values);
+    }
+
+    private record CacheKey(List<String> instanceIds, List<String> metrics, long windowSeconds, int resolutionSeconds) {
+    }
+
+    private record CacheEntry(InstanceMetrics metrics, long expiresAt) {
+    }
+}
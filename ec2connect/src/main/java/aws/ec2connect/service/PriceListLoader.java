@@ -0,0 +1,348 @@
+package aws.ec2connect.service;
+
+import aws.ec2connect.client.RequestPriority;
+import aws.ec2connect.index.PriceMatrix;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.pricing.PricingClient;
+import software.amazon.awssdk.services.pricing.model.Filter;
+import software.amazon.awssdk.services.pricing.model.FilterType;
+import software.amazon.awssdk.services.pricing.model.GetProductsRequest;
+import software.amazon.awssdk.services.pricing.model.GetProductsResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Bulk-loads EC2 on-demand prices into a {@link PriceMatrix}, either from pages of GetProducts or from an
+ * EC2 offer file (index.json). Both are read with Jackson's streaming parser, so no JSON trees are built
+ * and an offer file is never held in memory. An offer file is several hundred MB, so it is downloaded on a thread
+ * of its own with connect and overall timeouts, and a slow or stalled download cannot hold up other scheduled work.
+ */
+@Service
+public class PriceListLoader {
+
+    public static final String SOURCE_GET_PRODUCTS = "get-products";
+    public static final String SOURCE_OFFER_FILE = "offer-file";
+
+    private final PricingClient pricingClient;
+    // SKUs and rate codes are field names, so an offer file has hundreds of thousands of distinct names
+    // and String.intern on each of them more than halves the parse rate
+    private final JsonFactory jsonFactory = JsonFactory.builder()
+            .disable(JsonFactory.Feature.INTERN_FIELD_NAMES)
+            .build();
+    private final boolean enabled;
+    private final String source;
+    private final String offerUrl;
+    private final List<String> locations;
+    private final Duration downloadTimeout;
+    private final HttpClient httpClient;
+    private final ExecutorService downloadExecutor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("price-list-download").daemon().factory());
+    private volatile PriceMatrix matrix = PriceMatrix.EMPTY;
+
+    public PriceListLoader(PricingClient pricingClient,
+                           @Value("${ec2connect.pricing.matrix.enabled:false}") boolean enabled,
+                           @Value("${ec2connect.pricing.matrix.source:get-products}") String source,
+                           @Value("${ec2connect.pricing.matrix.offer-url:https://pricing.us-east-1.amazonaws.com/offers/v1.0/aws/AmazonEC2/current/us-east-1/index.json}") String offerUrl,
+                           @Value("${ec2connect.pricing.matrix.locations:US East (N. Virginia)}") String locations,
+                           @Value("${ec2connect.pricing.matrix.connect-timeout:PT10S}") Duration connectTimeout,
+                           @Value("${ec2connect.pricing.matrix.download-timeout:PT10M}") Duration downloadTimeout) {
+        this.pricingClient = pricingClient;
+        this.enabled = enabled;
+        this.source = source;
+        this.offerUrl = offerUrl;
+        this.locations = Arrays.stream(locations.split(","))
+                .map(String::trim)
+                .filter(location -> !location.isEmpty())
+                .toList();
+        this.downloadTimeout = downloadTimeout;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * The current matrix; {@link PriceMatrix#EMPTY} until the first load has finished.
+     */
+    public PriceMatrix matrix() {
+        return matrix;
+    }
+
+    @Scheduled(initialDelayString = "${ec2connect.pricing.matrix.initial-delay:PT0S}",
+            fixedDelayString = "${ec2connect.pricing.matrix.refresh-interval:PT24H}")
+    public void scheduledRefresh() {
+        if (!enabled) {
+            return;
+        }
+        try (RequestPriority.Scope ignored = RequestPriority.background()) {
+            refresh();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public PriceMatrix refresh() throws IOException {
+        PriceMatrix loaded = SOURCE_OFFER_FILE.equals(source) ? downloadOfferFile() : loadFromGetProducts(locations);
+        matrix = loaded;
+        return loaded;
+    }
+
+    /**
+     * Downloads and parses the offer file on the download thread, giving up and interrupting it once the
+     * download timeout has passed.
+     */
+    private PriceMatrix downloadOfferFile() throws IOException {
+        Future<PriceMatrix> download = downloadExecutor.submit(() -> {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(offerUrl))
+                    .timeout(downloadTimeout)
+                    .GET()
+                    .build();
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream in = response.body()) {
+                if (response.statusCode() != 200) {
+                    throw new IOException("Offer file download from " + offerUrl + " failed with HTTP " + response.statusCode());
+                }
+                return loadOfferFile(in, offerUrl);
+            }
+        });
+        try {
+            return download.get(downloadTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            download.cancel(true);
+            throw new IOException("Offer file download from " + offerUrl + " took longer than " + downloadTimeout);
+        } catch (InterruptedException e) {
+            download.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading the offer file");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Offer file download from " + offerUrl + " failed", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        downloadExecutor.shutdownNow();
+    }
+
+    /**
+     * Pages through every shared-capacity compute instance product of the given locations, or of all
+     * locations when the list is empty, 100 price items per call.
+     */
+    public PriceMatrix loadFromGetProducts(List<String> locations) throws IOException {
+        PriceMatrix.Builder builder = PriceMatrix.builder(SOURCE_GET_PRODUCTS);
+        for (String location : locations.isEmpty() ? Arrays.asList((String) null) : locations) {
+            List<Filter> filters = new ArrayList<>(List.of(
+                    termMatch("productFamily", "Compute Instance"),
+                    termMatch("capacitystatus", "Used"),
+                    termMatch("preInstalledSw", "NA")));
+            if (location != null) {
+                filters.add(termMatch("location", location));
+            }
+            GetProductsRequest request = GetProductsRequest.builder()
+                    .serviceCode("AmazonEC2")
+                    .filters(filters)
+                    .maxResults(100)
+                    .build();
+            for (GetProductsResponse page : pricingClient.getProductsPaginator(request)) {
+                for (String priceItemJson : page.priceList()) {
+                    try (JsonParser parser = jsonFactory.createParser(priceItemJson)) {
+                        addPriceItem(parser, builder);
+                    }
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Streams an offer file. The products section is read first and remembers the matrix key of every
+     * kept SKU; the OnDemand terms that follow are then resolved against it.
+     */
+    public PriceMatrix loadOfferFile(InputStream in, String source) throws IOException {
+        PriceMatrix.Builder builder = PriceMatrix.builder(source);
+        Map<String, Long> skuKeys = new HashMap<>();
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (field.equals("products") && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String sku = parser.currentName();
+                        parser.nextToken();
+                        long key = readProduct(parser, builder);
+                        if (key >= 0) {
+                            skuKeys.put(sku, key);
+                        }
+                    }
+                } else if (field.equals("terms") && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String termType = parser.currentName();
+                        parser.nextToken();
+                        if (!termType.equals("OnDemand")) {
+                            parser.skipChildren();
+                            continue;
+                        }
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            Long key = skuKeys.get(parser.currentName());
+                            parser.nextToken();
+                            if (key == null) {
+                                parser.skipChildren();
+                                continue;
+                            }
+                            float price = readFirstUsdPrice(parser);
+                            if (!Float.isNaN(price)) {
+                                builder.add(key, price);
+                            }
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    // One GetProducts price item: {"product": {...}, "terms": {"OnDemand": {...}, ...}, ...}
+    private void addPriceItem(JsonParser parser, PriceMatrix.Builder builder) throws IOException {
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+        long key = -1;
+        float price = Float.NaN;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if (field.equals("product")) {
+                key = readProduct(parser, builder);
+            } else if (field.equals("terms")) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String termType = parser.currentName();
+                    parser.nextToken();
+                    if (termType.equals("OnDemand")) {
+                        price = readFirstUsdPrice(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (key >= 0 && !Float.isNaN(price)) {
+            builder.add(key, price);
+        }
+    }
+
+    /**
+     * Reads a product object and returns its matrix key, or -1 for products that are not plain
+     * shared-capacity on-demand instances (reservations, pre-installed software, bring-your-own-license).
+     */
+    private static long readProduct(JsonParser parser, PriceMatrix.Builder builder) throws IOException {
+        String productFamily = null;
+        String instanceType = null;
+        String location = null;
+        String operatingSystem = null;
+        String tenancy = null;
+        String capacityStatus = null;
+        String preInstalledSw = null;
+        String licenseModel = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if (field.equals("productFamily")) {
+                productFamily = parser.getText();
+            } else if (field.equals("attributes")) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String attribute = parser.currentName();
+                    parser.nextToken();
+                    switch (attribute) {
+                        case "instanceType" -> instanceType = parser.getText();
+                        case "location" -> location = parser.getText();
+                        case "operatingSystem" -> operatingSystem = parser.getText();
+                        case "tenancy" -> tenancy = parser.getText();
+                        case "capacitystatus" -> capacityStatus = parser.getText();
+                        case "preInstalledSw" -> preInstalledSw = parser.getText();
+                        case "licenseModel" -> licenseModel = parser.getText();
+                        default -> parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (!"Compute Instance".equals(productFamily) || instanceType == null || location == null
+                || operatingSystem == null || tenancy == null
+                || (capacityStatus != null && !capacityStatus.equals("Used"))
+                || (preInstalledSw != null && !preInstalledSw.equals("NA"))
+                || "Bring your own license".equals(licenseModel)) {
+            return -1;
+        }
+        return builder.key(instanceType, location, operatingSystem, tenancy);
+    }
+
+    // Terms of one SKU: {offerTermCode: {"priceDimensions": {rateCode: {"pricePerUnit": {"USD": "0.096"}}}}}
+    private static float readFirstUsdPrice(JsonParser parser) throws IOException {
+        float price = Float.NaN;
+        int depth = 1;
+        while (depth > 0) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new IOException("Unexpected end of price list");
+            }
+            switch (token) {
+                case START_OBJECT, START_ARRAY -> depth++;
+                case END_OBJECT, END_ARRAY -> depth--;
+                case FIELD_NAME -> {
+                    if (Float.isNaN(price) && parser.currentName().equals("USD")) {
+                        parser.nextToken();
+                        price = Float.parseFloat(parser.getText());
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return price;
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " in price list but found " + actual);
+        }
+    }
+
+    private static Filter termMatch(String field, String value) {
+        return Filter.builder()
+                .field(field)
+                .type(FilterType.TERM_MATCH)
+                .value(value)
+                .build();
+    }
+}
@@ -1,78 +1,256 @@
 package aws.ec2connect.service;
 
+import aws.ec2connect.cache.PriceCache;
+import aws.ec2connect.cache.PriceCache.PriceKey;
+import aws.ec2connect.client.RequestPriority;
+import aws.ec2connect.index.PriceMatrix;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.pricing.PricingAsyncClient;
 import software.amazon.awssdk.services.pricing.PricingClient;
+import software.amazon.awssdk.services.pricing.model.Filter;
+import software.amazon.awssdk.services.pricing.model.FilterType;
 import software.amazon.awssdk.services.pricing.model.GetProductsRequest;
 import software.amazon.awssdk.services.pricing.model.GetProductsResponse;
 
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.CompletableFuture;
+
+import static aws.ec2connect.cache.PriceCache.NOT_AVAILABLE;
+
 @Service
 public class PricingService {
 
+    public static final String DEFAULT_OPERATING_SYSTEM = "Linux";
+    public static final String DEFAULT_TENANCY = "Shared";
+
     private final PricingClient pricingClient;
+    private final ObjectProvider<PricingAsyncClient> pricingAsyncClientProvider;
     private final ObjectMapper objectMapper;
+    private final PriceCache priceCache;
+    private final PriceListLoader priceListLoader;
+    private final boolean warmOnStartup;
+    private final String warmLocation;
 
 
-    public PricingService(PricingClient pricingClient) {
+    public PricingService(PricingClient pricingClient,
+                          ObjectProvider<PricingAsyncClient> pricingAsyncClientProvider,
+                          PriceCache priceCache,
+                          PriceListLoader priceListLoader,
+                          @Value("${ec2connect.pricing.cache.warm-on-startup:true}") boolean warmOnStartup,
+                          @Value("${ec2connect.pricing.cache.warm-location:US East (N. Virginia)}") String warmLocation) {
        this.pricingClient = pricingClient;
+        this.pricingAsyncClientProvider = pricingAsyncClientProvider;
         this.objectMapper = new ObjectMapper();
+        this.priceCache = priceCache;
+        this.priceListLoader = priceListLoader;
+        this.warmOnStartup = warmOnStartup;
+        this.warmLocation = warmLocation;
     }
 
     public String getPriceForInstanceType(String instanceType, String location) {
+        return getPriceForInstanceType(instanceType, location, DEFAULT_OPERATING_SYSTEM);
+    }
+
+    public String getPriceForInstanceType(String instanceType, String location, String operatingSystem) {
+        float matrixPrice = priceListLoader.matrix().price(instanceType, location, operatingSystem, DEFAULT_TENANCY);
+        if (!Float.isNaN(matrixPrice)) {
+            return formatUsd(matrixPrice);
+        }
+        PriceKey key = new PriceKey(instanceType, location, operatingSystem);
+        String cached = priceCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
         try {
-            GetProductsRequest request = GetProductsRequest.builder()
-                    .serviceCode("AmazonEC2")
-                    .filters(
-                            builder -> builder
-                                    .field("instanceType")
-                                    .type("TERM_MATCH")
-                                    .value(instanceType),
-                            builder -> builder
-                                    .field("location")
-                                    .type("TERM_MATCH")
-                                    .value(location),
-                            builder -> builder
-                                    .field("operatingSystem")
-                                    .type("TERM_MATCH")
-                                    .value("Linux"),
-                            builder -> builder
-                                    .field("preInstalledSw")
-                                    .type("TERM_MATCH")
-                                    .value("NA"),
-                            builder -> builder
-                                    .field("capacitystatus")
-                                    .type("TERM_MATCH")
-                                    .value("Used")
-                    )
-                    .maxResults(1)
-                    .build();
-
-            GetProductsResponse response = pricingClient.getProducts(request);
-
-            if (!response.priceList().isEmpty()) {
-                String priceItemJson = response.priceList().getFirst();
-
-                JsonNode jsonNode = objectMapper.readTree(priceItemJson);
-                JsonNode onDemandNode = jsonNode.path("terms").path("OnDemand");
-                if (onDemandNode.isMissingNode()) {
-                    return "N/A";
-                }
+            GetProductsResponse response = pricingClient.getProducts(priceRequest(key));
+            String price = parsePrice(response);
+            // "N/A" answers are cached too (with the shorter negative TTL), failures are not
+            priceCache.put(key, price);
+            return price;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return NOT_AVAILABLE;
+    }
 
-                for (JsonNode offer : onDemandNode) {
-                    for (JsonNode priceDimension : offer.path("priceDimensions")) {
-                        String pricePerUnit = priceDimension.path("pricePerUnit").path("USD").asText();
-                        return "$" + pricePerUnit;
+    /**
+     * Non-blocking variant backed by the PricingAsyncClient; only available when the async client mode is enabled.
+     */
+    public CompletableFuture<String> getPriceForInstanceTypeAsync(String instanceType, String location) {
+        PricingAsyncClient pricingAsyncClient = pricingAsyncClientProvider.getIfAvailable();
+        if (pricingAsyncClient == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Async AWS clients are not enabled"));
+        }
+        float matrixPrice = priceListLoader.matrix().price(instanceType, location, DEFAULT_OPERATING_SYSTEM, DEFAULT_TENANCY);
+        if (!Float.isNaN(matrixPrice)) {
+            return CompletableFuture.completedFuture(formatUsd(matrixPrice));
+        }
+        PriceKey key = new PriceKey(instanceType, location, DEFAULT_OPERATING_SYSTEM);
+        String cached = priceCache.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return pricingAsyncClient.getProducts(priceRequest(key))
+                .thenApply(response -> {
+                    String price = parsePrice(response);
+                    priceCache.put(key, price);
+                    return price;
+                })
+                .exceptionally(e -> {
+                    e.printStackTrace();
+                    return NOT_AVAILABLE;
+                });
+    }
+
+    /**
+     * Hourly on-demand USD price as a number. Answered from the bulk-loaded price matrix; shared tenancy
+     * falls back to the cached single-item lookup when the matrix has no price.
+     */
+    public OptionalDouble getOnDemandPrice(String instanceType, String location, String operatingSystem, String tenancy) {
+        float matrixPrice = priceListLoader.matrix().price(instanceType, location, operatingSystem, tenancy);
+        if (!Float.isNaN(matrixPrice)) {
+            return OptionalDouble.of(Double.parseDouble(Float.toString(matrixPrice)));
+        }
+        if (!DEFAULT_TENANCY.equals(tenancy)) {
+            return OptionalDouble.empty();
+        }
+        BigDecimal price = DtoMapper.parseUsdPrice(getPriceForInstanceType(instanceType, location, operatingSystem));
+        return price == null ? OptionalDouble.empty() : OptionalDouble.of(price.doubleValue());
+    }
+
+    /**
+     * Loads every on-demand price for a location and operating system with paged
+     * GetProducts calls and stores them in the cache. Returns the number of prices loaded.
+     */
+    public int prefetch(String location, String operatingSystem) {
+        Map<PriceKey, String> prices = new HashMap<>();
+        GetProductsRequest request = GetProductsRequest.builder()
+                .serviceCode("AmazonEC2")
+                .filters(priceFilters(location, operatingSystem))
+                .maxResults(100)
+                .build();
+
+        for (GetProductsResponse page : pricingClient.getProductsPaginator(request)) {
+            for (String priceItemJson : page.priceList()) {
+                try {
+                    JsonNode jsonNode = objectMapper.readTree(priceItemJson);
+                    String instanceType = jsonNode.path("product").path("attributes").path("instanceType").asText(null);
+                    if (instanceType != null) {
+                        prices.put(new PriceKey(instanceType, location, operatingSystem), extractOnDemandPrice(jsonNode));
                     }
+                } catch (Exception e) {
+                    e.printStackTrace();
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
-        return "N/A";
+        priceCache.putAll(prices);
+        return prices.size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpCache() {
+        if (!warmOnStartup) {
+            return;
+        }
+        // Runs off the startup thread so a slow or unreachable Pricing API does not delay readiness
+        Thread.ofVirtual().name("price-cache-warmup").start(() -> {
+            try (RequestPriority.Scope ignored = RequestPriority.background()) {
+                prefetch(warmLocation, DEFAULT_OPERATING_SYSTEM);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private GetProductsRequest priceRequest(PriceKey key) {
+        List<Filter> filters = new ArrayList<>(priceFilters(key.location(), key.operatingSystem()));
+        filters.add(termMatch("instanceType", key.instanceType()));
+        return GetProductsRequest.builder()
+                .serviceCode("AmazonEC2")
+                .filters(filters)
+                .maxResults(1)
+                .build();
+    }
+
+    private String parsePrice(GetProductsResponse response) {
+        if (response.priceList().isEmpty()) {
+            return NOT_AVAILABLE;
+        }
+        try {
+            return extractOnDemandPrice(objectMapper.readTree(response.priceList().getFirst()));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public PriceCache.Stats cacheStats() {
+        return priceCache.stats();
+    }
+
+    public PriceMatrix.Stats matrixStats() {
+        return priceListLoader.matrix().stats();
+    }
+
+    // Float.toString gives the shortest decimal that reads back as the same float, e.g. 0.096 rather than 0.0960000008
+    private static String formatUsd(float price) {
+        return formatUsd(new BigDecimal(Float.toString(price)));
+    }
+
+    // Matrix and GetProducts answers print alike: $0.096 rather than the price list's $0.0960000000
+    private static String formatUsd(BigDecimal price) {
+        return "$" + price.stripTrailingZeros().toPlainString();
+    }
+
+    private String extractOnDemandPrice(JsonNode jsonNode) {
+        JsonNode onDemandNode = jsonNode.path("terms").path("OnDemand");
+        if (onDemandNode.isMissingNode()) {
+            return NOT_AVAILABLE;
+        }
+
+        for (JsonNode offer : onDemandNode) {
+            for (JsonNode priceDimension : offer.path("priceDimensions")) {
+                String pricePerUnit = priceDimension.path("pricePerUnit").path("USD").asText();
+                try {
+                    return formatUsd(new BigDecimal(pricePerUnit));
+                } catch (NumberFormatException e) {
+                    return NOT_AVAILABLE;
+                }
+            }
+        }
+        return NOT_AVAILABLE;
+    }
+
+    private static List<Filter> priceFilters(String location, String operatingSystem) {
+        return List.of(
+                termMatch("location", location),
+                termMatch("operatingSystem", operatingSystem),
+                termMatch("tenancy", "Shared"),
+                termMatch("preInstalledSw", "NA"),
+                termMatch("capacitystatus", "Used"));
+    }
+
+    private static Filter termMatch(String field, String value) {
+        return Filter.builder()
+                .field(field)
+                .type(FilterType.TERM_MATCH)
+                .value(value)
+                .build();
     }
 
     public void close() {
         pricingClient.close();
     }
-}
\ No newline at end of file
+}
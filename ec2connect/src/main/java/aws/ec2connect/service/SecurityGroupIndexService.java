@@ -0,0 +1,87 @@
+package aws.ec2connect.service;
+
+import aws.ec2connect.client.RequestPriority;
+import aws.ec2connect.index.SecurityGroupIndex;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.DescribeSecurityGroupsRequest;
+import software.amazon.awssdk.services.ec2.model.IpPermission;
+import software.amazon.awssdk.services.ec2.model.IpRange;
+import software.amazon.awssdk.services.ec2.model.Ipv6Range;
+import software.amazon.awssdk.services.ec2.model.SecurityGroup;
+
+import java.time.Instant;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps a {@link SecurityGroupIndex} of every inbound rule, rebuilt from one paginated DescribeSecurityGroups
+ * sweep, so exposure queries never scan the groups themselves.
+ */
+@Service
+public class SecurityGroupIndexService {
+
+    private final Ec2Client ec2Client;
+    private volatile SecurityGroupIndex index;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public SecurityGroupIndexService(Ec2Client ec2Client) {
+        this.ec2Client = ec2Client;
+    }
+
+    public SecurityGroupIndex index() {
+        SecurityGroupIndex current = index;
+        if (current == null) {
+            lock.lock();
+            try {
+                current = index;
+                if (current == null) {
+                    current = refresh();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return current;
+    }
+
+    @Scheduled(initialDelayString = "${ec2connect.security-groups.initial-delay:PT0S}",
+            fixedDelayString = "${ec2connect.security-groups.refresh-interval:PT5M}")
+    public void scheduledRefresh() {
+        try (RequestPriority.Scope ignored = RequestPriority.background()) {
+            refresh();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public SecurityGroupIndex refresh() {
+        lock.lock();
+        try {
+            return doRefresh();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private SecurityGroupIndex doRefresh() {
+        Instant startedAt = Instant.now();
+        SecurityGroupIndex.Builder builder = SecurityGroupIndex.builder();
+        DescribeSecurityGroupsRequest request = DescribeSecurityGroupsRequest.builder()
+                .maxResults(1000)
+                .build();
+        for (SecurityGroup group : ec2Client.describeSecurityGroupsPaginator(request).securityGroups()) {
+            builder.addGroup(group.groupId(), group.groupName(), group.vpcId());
+            for (IpPermission permission : group.ipPermissions()) {
+                for (IpRange range : permission.ipRanges()) {
+                    builder.addRule(permission.ipProtocol(), permission.fromPort(), permission.toPort(), range.cidrIp());
+                }
+                for (Ipv6Range range : permission.ipv6Ranges()) {
+                    builder.addRule(permission.ipProtocol(), permission.fromPort(), permission.toPort(), range.cidrIpv6());
+                }
+            }
+        }
+        index = builder.build(startedAt);
+        return index;
+    }
+}
@@ -0,0 +1,290 @@
+package aws.ec2connect.web;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Compresses responses with zstd for clients that send {@code Accept-Encoding: zstd}. The body is compressed as
+ * it is written, so streamed responses are never buffered, and every flush ends a zstd block so streamed pages
+ * reach the client straight away. Like Tomcat's gzip, it honours server.compression.mime-types and, when the
+ * length is known up front, server.compression.min-response-size. Responses it leaves alone, and clients
+ * without zstd, still get Tomcat's gzip.
+ */
+@Component
+@ConditionalOnProperty(name = "ec2connect.compression.zstd.enabled", havingValue = "true")
+public class ZstdCompressionFilter extends OncePerRequestFilter {
+
+    private static final String RESPONSE_ATTRIBUTE = ZstdCompressionFilter.class.getName() + ".response";
+    // qvalue from RFC 9110 section 12.4.2
+    private static final Pattern Q_VALUE = Pattern.compile("0(\\.[0-9]{0,3})?|1(\\.0{0,3})?");
+    private static final Pattern ZERO_Q_VALUE = Pattern.compile("0(\\.0{0,3})?");
+
+    private final List<MediaType> mimeTypes;
+    private final long minResponseSize;
+    private final int level;
+
+    public ZstdCompressionFilter(ServerProperties serverProperties,
+                                 @Value("${ec2connect.compression.zstd.level:3}") int level) {
+        this.mimeTypes = Arrays.stream(serverProperties.getCompression().getMimeTypes())
+                .map(MediaType::parseMediaType)
+                .toList();
+        this.minResponseSize = serverProperties.getCompression().getMinResponseSize().toBytes();
+        this.level = level;
+    }
+
+    // Streaming handlers write on another thread and finish in an async dispatch, where the zstd frame is closed
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            filterChain.doFilter(request, response);
+            finish(request);
+            return;
+        }
+        if (!acceptsZstd(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ZstdResponse zstdResponse = new ZstdResponse(response);
+        request.setAttribute(RESPONSE_ATTRIBUTE, zstdResponse);
+        try {
+            filterChain.doFilter(request, zstdResponse);
+        } finally {
+            finish(request);
+        }
+    }
+
+    private static void finish(HttpServletRequest request) throws IOException {
+        if (!request.isAsyncStarted() && request.getAttribute(RESPONSE_ATTRIBUTE) instanceof ZstdResponse response) {
+            request.removeAttribute(RESPONSE_ATTRIBUTE);
+            response.finish();
+        }
+    }
+
+    static boolean acceptsZstd(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("zstd")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim();
+                    if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                        // A malformed q-value is read as q=0, so a bad header never gets a coding the client may not decode
+                        String q = parameter.substring(2).trim();
+                        if (!Q_VALUE.matcher(q).matches() || ZERO_Q_VALUE.matcher(q).matches()) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean compressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        MediaType type = MediaType.parseMediaType(contentType);
+        return mimeTypes.stream().anyMatch(mimeType -> mimeType.includes(type));
+    }
+
+    /**
+     * Decides whether to compress when the body is first written, once the status and content type are known.
+     * A Content-Length set before that is held back, since it would be wrong for a compressed body.
+     */
+    private class ZstdResponse extends HttpServletResponseWrapper {
+
+        private boolean decided;
+        private boolean compress;
+        private long contentLength = -1;
+        private ZstdServletOutputStream compressed;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        ZstdResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        private void decide() {
+            if (decided) {
+                return;
+            }
+            decided = true;
+            compress = getStatus() != SC_NO_CONTENT && getStatus() != SC_NOT_MODIFIED
+                    && !containsHeader(HttpHeaders.CONTENT_ENCODING) && compressible(getContentType())
+                    && (contentLength < 0 || contentLength >= minResponseSize);
+            if (compress) {
+                super.setHeader(HttpHeaders.CONTENT_ENCODING, "zstd");
+                super.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            } else if (contentLength >= 0) {
+                super.setContentLengthLong(contentLength);
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called");
+            }
+            return stream();
+        }
+
+        private ServletOutputStream stream() throws IOException {
+            if (outputStream == null) {
+                decide();
+                if (compress) {
+                    compressed = new ZstdServletOutputStream(super.getOutputStream(), level);
+                    outputStream = compressed;
+                } else {
+                    outputStream = super.getOutputStream();
+                }
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (outputStream != null) {
+                    throw new IllegalStateException("getOutputStream() has already been called");
+                }
+                decide();
+                writer = compress
+                        ? new PrintWriter(new OutputStreamWriter(stream(), getCharacterEncoding()))
+                        : super.getWriter();
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int length) {
+            setContentLengthLong(length);
+        }
+
+        @Override
+        public void setContentLengthLong(long length) {
+            if (!decided) {
+                contentLength = length;
+            } else if (!compress) {
+                super.setContentLengthLong(length);
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            } else if (outputStream != null) {
+                outputStream.flush();
+            }
+            super.flushBuffer();
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            if (outputStream == null && writer == null) {
+                decided = false;
+                contentLength = -1;
+            }
+        }
+
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (compressed != null) {
+                compressed.close();
+            }
+        }
+    }
+
+    private static final class ZstdServletOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream target;
+        private final ZstdOutputStream zstd;
+
+        ZstdServletOutputStream(ServletOutputStream target, int level) throws IOException {
+            this.target = target;
+            this.zstd = new ZstdOutputStream(target, level);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            zstd.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            zstd.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            zstd.flush();
+        }
+
+        // Ends the zstd frame and closes the response stream; closing twice is harmless
+        @Override
+        public void close() throws IOException {
+            zstd.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return target.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            target.setWriteListener(writeListener);
+        }
+    }
+}
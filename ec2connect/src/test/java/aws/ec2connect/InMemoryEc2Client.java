@@ -0,0 +1,62 @@
+package aws.ec2connect;
+
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.DescribeInstanceTypesRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeInstanceTypesResponse;
+import software.amazon.awssdk.services.ec2.model.DescribeInstancesRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeInstancesResponse;
+import software.amazon.awssdk.services.ec2.model.Instance;
+import software.amazon.awssdk.services.ec2.model.InstanceTypeInfo;
+import software.amazon.awssdk.services.ec2.model.Reservation;
+
+import java.util.List;
+
+/**
+ * Ec2Client over in-memory instances and instance types, paging through them the way the real API does.
+ * The lists are read on every call, so a test can change the fleet between sweeps. Shared by the unit tests
+ * and the benchmark fixtures.
+ */
+public final class InMemoryEc2Client implements Ec2Client {
+
+    private final List<Instance> instances;
+    private final List<InstanceTypeInfo> instanceTypes;
+
+    public InMemoryEc2Client(List<Instance> instances) {
+        this(instances, List.of());
+    }
+
+    public InMemoryEc2Client(List<Instance> instances, List<InstanceTypeInfo> instanceTypes) {
+        this.instances = instances;
+        this.instanceTypes = instanceTypes;
+    }
+
+    @Override
+    public DescribeInstancesResponse describeInstances(DescribeInstancesRequest request) {
+        int from = request.nextToken() == null ? 0 : Integer.parseInt(request.nextToken());
+        int pageSize = request.maxResults() == null ? 1000 : request.maxResults();
+        int to = Math.min(from + pageSize, instances.size());
+        return DescribeInstancesResponse.builder()
+                .reservations(Reservation.builder().instances(instances.subList(from, to)).build())
+                .nextToken(to < instances.size() ? String.valueOf(to) : null)
+                .build();
+    }
+
+    @Override
+    public DescribeInstanceTypesResponse describeInstanceTypes(DescribeInstanceTypesRequest request) {
+        int from = request.nextToken() == null ? 0 : Integer.parseInt(request.nextToken());
+        int to = Math.min(from + (request.maxResults() == null ? 100 : request.maxResults()), instanceTypes.size());
+        return DescribeInstanceTypesResponse.builder()
+                .instanceTypes(instanceTypes.subList(from, to))
+                .nextToken(to < instanceTypes.size() ? String.valueOf(to) : null)
+                .build();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+}
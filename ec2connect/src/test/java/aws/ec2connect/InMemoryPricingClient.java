@@ -0,0 +1,52 @@
+package aws.ec2connect;
+
+import software.amazon.awssdk.services.pricing.PricingClient;
+import software.amazon.awssdk.services.pricing.model.Filter;
+import software.amazon.awssdk.services.pricing.model.GetProductsRequest;
+import software.amazon.awssdk.services.pricing.model.GetProductsResponse;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * PricingClient answering GetProducts with one price item per instance type. A request filtered on an
+ * instance type gets that type's item; any other request pages through all of them. Shared by the unit tests
+ * and the benchmark fixtures.
+ */
+public final class InMemoryPricingClient implements PricingClient {
+
+    private final List<String> instanceTypes;
+    private final Function<String, String> priceItem;
+
+    public InMemoryPricingClient(List<String> instanceTypes, Function<String, String> priceItem) {
+        this.instanceTypes = instanceTypes;
+        this.priceItem = priceItem;
+    }
+
+    @Override
+    public GetProductsResponse getProducts(GetProductsRequest request) {
+        String instanceType = request.filters().stream()
+                .filter(filter -> filter.field().equals("instanceType"))
+                .map(Filter::value)
+                .findFirst()
+                .orElse(null);
+        if (instanceType != null) {
+            return GetProductsResponse.builder().priceList(priceItem.apply(instanceType)).build();
+        }
+        int from = request.nextToken() == null ? 0 : Integer.parseInt(request.nextToken());
+        int to = Math.min(from + request.maxResults(), instanceTypes.size());
+        return GetProductsResponse.builder()
+                .priceList(instanceTypes.subList(from, to).stream().map(priceItem).toList())
+                .nextToken(to < instanceTypes.size() ? String.valueOf(to) : null)
+                .build();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,118 @@
+package aws.ec2connect.events;
+
+import aws.ec2connect.InMemoryEc2Client;
+import aws.ec2connect.service.InventorySnapshotService;
+import aws.ec2connect.service.InventorySnapshotService.StateChanges;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.ec2.model.Instance;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InstanceEventIngesterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private InventorySnapshotService inventorySnapshotService;
+    private Instant sweptAt;
+
+    @BeforeEach
+    void setUp() {
+        inventorySnapshotService = new InventorySnapshotService(new InMemoryEc2Client(List.of(
+                Instance.builder().instanceId("i-1").state(s -> s.name("running")).build(),
+                Instance.builder().instanceId("i-2").state(s -> s.name("running")).build())),
+                Duration.ofMinutes(2), true, Duration.ofMinutes(15));
+        sweptAt = inventorySnapshotService.refresh().refreshedAt();
+    }
+
+    @Test
+    void appliesOnlyTheNewestEventPerInstanceInABatch() {
+        InstanceEventIngester ingester = ingester(inventorySnapshotService, 5);
+
+        StateChanges changes = ingester.apply(List.of(
+                message("i-1", "stopped", sweptAt.plusSeconds(30)),
+                message("i-1", "stopping", sweptAt.plusSeconds(10)),
+                message("i-2", "stopping", sweptAt.plusSeconds(10))));
+
+        assertEquals(new StateChanges(2, 0, 0, 0), changes);
+        assertEquals("stopped", state("i-1"));
+        assertEquals("stopping", state("i-2"));
+        assertEquals(1, ingester.stats().superseded());
+    }
+
+    @Test
+    void dropsRedeliveredAndDelayedEvents() {
+        InstanceEventIngester ingester = ingester(inventorySnapshotService, 5);
+        ingester.apply(List.of(message("i-1", "stopped", sweptAt.plusSeconds(30))));
+
+        StateChanges changes = ingester.apply(List.of(
+                message("i-1", "stopped", sweptAt.plusSeconds(30)),
+                message("i-1", "running", sweptAt.plusSeconds(20)),
+                message("i-2", "stopped", sweptAt.minusSeconds(60))));
+
+        assertEquals(new StateChanges(0, 0, 0, 2), changes);
+        assertEquals("stopped", state("i-1"));
+        assertEquals("running", state("i-2"));
+        assertEquals(2, ingester.stats().stale());
+    }
+
+    @Test
+    void unwrapsSnsNotificationsAndIgnoresOtherEvents() throws Exception {
+        InstanceEventIngester ingester = ingester(inventorySnapshotService, 5);
+        ObjectNode notification = objectMapper.createObjectNode()
+                .put("Type", "Notification")
+                .put("Message", message("i-1", "stopping", sweptAt.plusSeconds(5)).body());
+        ObjectNode other = objectMapper.createObjectNode().put("detail-type", "AWS API Call via CloudTrail");
+
+        StateChanges changes = ingester.apply(List.of(
+                new InstanceEventSource.Message(objectMapper.writeValueAsString(notification), null),
+                new InstanceEventSource.Message(objectMapper.writeValueAsString(other), null),
+                new InstanceEventSource.Message("not json", null)));
+
+        assertEquals(new StateChanges(1, 0, 0, 0), changes);
+        assertEquals("stopping", state("i-1"));
+        assertEquals(2, ingester.stats().ignored());
+    }
+
+    @Test
+    void givesUpOnABatchAfterMaxAttempts() throws InterruptedException {
+        InventorySnapshotService failing = new InventorySnapshotService(new InMemoryEc2Client(List.of()),
+                Duration.ofMinutes(2), true, Duration.ofMinutes(15)) {
+            @Override
+            public StateChanges applyStateChanges(Collection<InstanceStateEvent> events) {
+                throw new IllegalStateException("snapshot unavailable");
+            }
+        };
+        InstanceEventIngester ingester = ingester(failing, 1);
+
+        ingester.applyWithRetries(List.of(message("i-1", "stopped", sweptAt.plusSeconds(5)),
+                message("i-2", "stopped", sweptAt.plusSeconds(5))));
+
+        assertEquals(1, ingester.stats().failures());
+        assertEquals(2, ingester.stats().dropped());
+    }
+
+    private InstanceEventIngester ingester(InventorySnapshotService service, int maxAttempts) {
+        return new InstanceEventIngester(new InMemoryInstanceEventSource(), service, objectMapper,
+                100, Duration.ofSeconds(1), maxAttempts);
+    }
+
+    private String state(String instanceId) {
+        return inventorySnapshotService.current().instances().get(instanceId).state().nameAsString();
+    }
+
+    private InstanceEventSource.Message message(String instanceId, String state, Instant time) {
+        ObjectNode event = objectMapper.createObjectNode()
+                .put("id", instanceId + "-" + time.toEpochMilli())
+                .put("detail-type", InstanceStateEvent.DETAIL_TYPE)
+                .put("time", time.toString());
+        event.putObject("detail").put("instance-id", instanceId).put("state", state);
+        return new InstanceEventSource.Message(event.toString(), null);
+    }
+}
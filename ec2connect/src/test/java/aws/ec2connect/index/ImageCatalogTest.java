@@ -0,0 +1,48 @@
+package aws.ec2connect.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ImageCatalogTest {
+
+    private final ImageCatalog catalog = ImageCatalog.EMPTY.withSource("amazon", images(25), Instant.EPOCH);
+
+    @Test
+    void pagesNewestFirst() {
+        ImageCatalog.Page last = catalog.query(null, null, null, false, ImageCatalog.Sort.NEWEST, 2, 10);
+
+        assertEquals(25, last.total());
+        assertEquals(List.of("ami-04", "ami-03", "ami-02", "ami-01", "ami-00"), imageIds(last));
+    }
+
+    @Test
+    void pagesFarPastTheEndAreEmpty() {
+        // 3000000 * 1000 overflows an int
+        ImageCatalog.Page page = catalog.query(null, null, null, false, ImageCatalog.Sort.NEWEST, 3_000_000, 1000);
+        ImageCatalog.Page maxPage = catalog.query(null, null, null, false, ImageCatalog.Sort.NEWEST,
+                Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+        assertEquals(List.of(), page.images());
+        assertEquals(25, page.total());
+        assertEquals(List.of(), maxPage.images());
+    }
+
+    private static List<ImageCatalog.ImageEntry> images(int count) {
+        List<ImageCatalog.ImageEntry> images = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String name = String.format("al2023-ami-2024%02d01-x86_64", i);
+            images.add(new ImageCatalog.ImageEntry("amazon", String.format("ami-%02d", i), name, null, "x86_64",
+                    "137112412989", String.format("2024-01-%02dT00:00:00.000Z", i + 1), ImageCatalog.family(name)));
+        }
+        return images;
+    }
+
+    private static List<String> imageIds(ImageCatalog.Page page) {
+        return page.images().stream().map(ImageCatalog.ImageEntry::imageId).toList();
+    }
+}
@@ -0,0 +1,82 @@
+package aws.ec2connect.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InstanceTypeIndexTest {
+
+    private static final List<String> NAMES = List.of("t3.micro", "t3.small", "t3a.micro", "m5.large", "m5.xlarge",
+            "m5d.large", "c6g.medium", "C6G.Large", "R7iz.metal-16xl", "x2iedn.24xlarge", "T4G.nano");
+
+    private final InstanceTypeIndex index = build(NAMES);
+
+    @Test
+    void findsPrefixesIgnoringCase() {
+        assertEquals(List.of("t3.micro", "t3.small", "t3a.micro"), names(index.searchPrefix("t3")));
+        assertEquals(List.of("t3.micro", "t3.small", "t3a.micro"), names(index.searchPrefix("T3")));
+        assertEquals(List.of("C6G.Large", "c6g.medium"), names(index.searchPrefix("c6g.")));
+        assertEquals(List.of("R7iz.metal-16xl"), names(index.searchPrefix("r7")));
+        assertEquals(List.of("T4G.nano"), names(index.searchPrefix("t4g")));
+        assertEquals(List.of(), names(index.searchPrefix("z")));
+        assertEquals(NAMES.size(), index.searchPrefix("").length);
+    }
+
+    @Test
+    void findsShortAndLongSubstringsIgnoringCase() {
+        assertEquals(List.of("C6G.Large", "m5.large", "m5d.large"), names(index.searchSubstring(".LARGE")));
+        assertEquals(List.of("m5.xlarge", "R7iz.metal-16xl", "x2iedn.24xlarge"), names(index.searchSubstring("xl")));
+        assertEquals(List.of("R7iz.metal-16xl"), names(index.searchSubstring("IZ")));
+        assertEquals(List.of("t3a.micro"), names(index.searchSubstring("3a.")));
+        assertEquals(List.of(), names(index.searchSubstring("nanos")));
+        assertEquals(NAMES.size(), index.searchSubstring("").length);
+    }
+
+    @Test
+    void searchesMatchABruteForceScan() {
+        Random random = new Random(3);
+        String[] families = {"t3", "T3a", "m5", "M5d", "c6g", "C7gn", "r6i", "x2idn", "P4d"};
+        String[] sizes = {"nano", "micro", "Small", "large", "xlarge", "2XLarge", "metal"};
+        InstanceTypeIndex.Builder builder = InstanceTypeIndex.builder();
+        for (String family : families) {
+            for (String size : sizes) {
+                builder.add(family + "." + size, random.nextInt(64) + 1, random.nextInt(1 << 18));
+            }
+        }
+        InstanceTypeIndex large = builder.build();
+        List<String> all = names(large, large.searchSubstring(""));
+        assertEquals(all.stream().sorted(String.CASE_INSENSITIVE_ORDER).toList(), all);
+
+        for (String query : List.of("t", "T3", "c7", "m5d.", "x2IDN.m", "r6i.2x", "p4d.xlarge", "q")) {
+            String lower = query.toLowerCase(Locale.ROOT);
+            assertEquals(all.stream().filter(n -> n.toLowerCase(Locale.ROOT).startsWith(lower)).toList(),
+                    names(large, large.searchPrefix(query)), query);
+        }
+        for (String query : List.of("a", "Ar", "rge", "xlarg", ".M", "3a.s", "6i.2xl", "zz")) {
+            String lower = query.toLowerCase(Locale.ROOT);
+            assertEquals(all.stream().filter(n -> n.toLowerCase(Locale.ROOT).contains(lower)).toList(),
+                    names(large, large.searchSubstring(query)), query);
+        }
+    }
+
+    private static InstanceTypeIndex build(List<String> names) {
+        InstanceTypeIndex.Builder builder = InstanceTypeIndex.builder();
+        for (String name : names) {
+            builder.add(name, 2, 4096);
+        }
+        return builder.build();
+    }
+
+    private List<String> names(int[] ordinals) {
+        return names(index, ordinals);
+    }
+
+    private static List<String> names(InstanceTypeIndex index, int[] ordinals) {
+        return Arrays.stream(ordinals).mapToObj(index::name).toList();
+    }
+}
@@ -0,0 +1,140 @@
+package aws.ec2connect.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SecurityGroupIndexTest {
+
+    @Test
+    void findsRulesCoveringAndOverlappingARange() {
+        SecurityGroupIndex index = SecurityGroupIndex.builder()
+                .addGroup("sg-1", "world", "vpc-1")
+                .addRule("tcp", 22, 22, "0.0.0.0/0")
+                .addGroup("sg-2", "office", "vpc-1")
+                .addRule("tcp", 22, 22, "10.0.0.0/8")
+                .addGroup("sg-3", "subnet", "vpc-1")
+                .addRule("tcp", 22, 22, "10.1.2.0/24")
+                .addGroup("sg-4", "elsewhere", "vpc-1")
+                .addRule("tcp", 22, 22, "192.168.0.0/16")
+                .build(Instant.EPOCH);
+
+        assertEquals(List.of("sg-1", "sg-2"), groupIds(index.findCovering("10.1.0.0/16", 22, "tcp")));
+        assertEquals(List.of("sg-1", "sg-2", "sg-3"), groupIds(index.findOverlapping("10.1.0.0/16", 22, "tcp")));
+        assertEquals(List.of("sg-1", "sg-2", "sg-3"), groupIds(index.findReachable("10.1.2.3", 22, "tcp")));
+        assertEquals(List.of("sg-1"), groupIds(index.findReachable("8.8.8.8", 22, "tcp")));
+    }
+
+    @Test
+    void keepsIpv4AndIpv6RangesApart() {
+        SecurityGroupIndex index = SecurityGroupIndex.builder()
+                .addGroup("sg-1", "v4", "vpc-1")
+                .addRule("-1", null, null, "0.0.0.0/0")
+                .addGroup("sg-2", "v6", "vpc-1")
+                .addRule("-1", null, null, "::/0")
+                .addGroup("sg-3", "v6 block", "vpc-1")
+                .addRule("tcp", 443, 443, "2600:1f18:abcd::/48")
+                .build(Instant.EPOCH);
+
+        assertEquals(List.of("sg-2", "sg-3"), groupIds(index.findReachable("2600:1f18:abcd:1::10", 443, null)));
+        assertEquals(List.of("sg-2"), groupIds(index.findReachable("2600:1f18:abce::1", 443, null)));
+        assertEquals(List.of("sg-1"), groupIds(index.findReachable("10.0.0.1", 443, null)));
+    }
+
+    @Test
+    void portStabbingMatchesABruteForceScan() {
+        Random random = new Random(7);
+        SecurityGroupIndex.Builder builder = SecurityGroupIndex.builder();
+        List<int[]> ranges = new ArrayList<>();
+        for (int g = 0; g < 200; g++) {
+            builder.addGroup("sg-" + g, "group-" + g, "vpc-1");
+            int from = random.nextInt(1000);
+            int to = from + random.nextInt(100);
+            builder.addRule("tcp", from, to, "10.0.0.0/8");
+            ranges.add(new int[]{from, to});
+        }
+        SecurityGroupIndex index = builder.build(Instant.EPOCH);
+
+        for (int port = 0; port < 1200; port++) {
+            List<String> expected = new ArrayList<>();
+            for (int g = 0; g < ranges.size(); g++) {
+                if (ranges.get(g)[0] <= port && port <= ranges.get(g)[1]) {
+                    expected.add("sg-" + g);
+                }
+            }
+            assertEquals(expected, groupIds(index.findByPort(port, "tcp")), "port " + port);
+        }
+    }
+
+    @Test
+    void allPortRulesMatchEveryPortButIcmpMatchesNone() {
+        SecurityGroupIndex index = SecurityGroupIndex.builder()
+                .addGroup("sg-1", "all traffic", "vpc-1")
+                .addRule("-1", null, null, "10.0.0.0/8")
+                .addGroup("sg-2", "all tcp", "vpc-1")
+                .addRule("6", -1, -1, "10.0.0.0/8")
+                .addGroup("sg-3", "ping", "vpc-1")
+                .addRule("icmp", 8, -1, "10.0.0.0/8")
+                .build(Instant.EPOCH);
+
+        assertEquals(List.of("sg-1", "sg-2"), groupIds(index.findByPort(8, null)));
+        assertEquals(List.of("sg-1", "sg-2"), groupIds(index.findByPort(65535, "tcp")));
+        assertEquals(List.of("sg-1"), groupIds(index.findByPort(53, "udp")));
+    }
+
+    @Test
+    void protocolAllMatchesRulesOfEveryProtocol() {
+        SecurityGroupIndex index = SecurityGroupIndex.builder()
+                .addGroup("sg-1", "all traffic", "vpc-1")
+                .addRule("-1", null, null, "0.0.0.0/0")
+                .addGroup("sg-2", "dns", "vpc-1")
+                .addRule("udp", 53, 53, "0.0.0.0/0")
+                .addGroup("sg-3", "ping", "vpc-1")
+                .addRule("icmp", 8, -1, "0.0.0.0/0")
+                .build(Instant.EPOCH);
+
+        assertEquals(List.of("sg-1", "sg-2", "sg-3"),
+                groupIds(index.findCovering("10.0.0.0/8", null, SecurityGroupIndex.normalizeProtocol("all"))));
+        assertEquals(List.of("sg-1", "sg-3"), groupIds(index.findCovering("10.0.0.0/8", null, "icmp")));
+    }
+
+    @Test
+    void rejectsHostNamesAndMalformedLiterals() {
+        SecurityGroupIndex index = SecurityGroupIndex.EMPTY;
+
+        for (String cidr : List.of("evil.com:80", "example.com", "cafe.bad:1", "10.0.0.256/8", "10.0.0/8",
+                "10.0.0.0/33", "1:2:3:4:5:6:7:8:9", "1::2::3", ":1:2:3:4:5:6:7", "fe80::1%eth0", "1.2.3.4::",
+                "2600::/129")) {
+            assertThrows(IllegalArgumentException.class, () -> index.findCovering(cidr, null, null), cidr);
+        }
+        assertThrows(IllegalArgumentException.class, () -> index.findReachable("10.0.0.0/8", 22, "tcp"));
+    }
+
+    @Test
+    void skipsUnparseableRulesAndKeepsIpv4MappedRanges() {
+        SecurityGroupIndex index = SecurityGroupIndex.builder()
+                .addGroup("sg-1", "mapped", "vpc-1")
+                .addRule("tcp", 80, 80, "::ffff:0:0/96")
+                .addRule("tcp", 80, 80, "not-a-cidr")
+                .addGroup("sg-2", "plain", "vpc-1")
+                .addRule("tcp", 80, 80, "10.0.0.0/8")
+                .build(Instant.EPOCH);
+
+        assertEquals(2, index.ruleCount());
+        assertEquals(1, index.stats().skippedRules());
+        assertEquals(List.of("sg-1"), groupIds(index.findReachable("::ffff:10.1.2.3", 80, "tcp")));
+        assertEquals(List.of("sg-2"), groupIds(index.findReachable("10.1.2.3", 80, "tcp")));
+        assertTrue(index.findReachable("::ffff:10.1.2.3", 81, "tcp").isEmpty());
+    }
+
+    private static List<String> groupIds(List<SecurityGroupIndex.Match> matches) {
+        return matches.stream().map(SecurityGroupIndex.Match::groupId).toList();
+    }
+}
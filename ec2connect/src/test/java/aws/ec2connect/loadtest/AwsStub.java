@@ -0,0 +1,380 @@
+package aws.ec2connect.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for the EC2 and CloudWatch query APIs and the Pricing JSON API, serving a synthetic fleet.
+ * Every client in the app can share its endpoint through ec2connect.aws.endpoint-override: EC2 requests are
+ * recognised by their API version, Pricing requests by their X-Amz-Target header.
+ * <p>
+ * Each response is delayed by the configured latency plus up to the same amount of jitter, list calls are
+ * paged at most {@code pageSize} items at a time, and {@code throttleRate} of the calls are answered with
+ * the service's throttling error instead.
+ */
+final class AwsStub implements AutoCloseable {
+
+    static final String[] FAMILIES = {"t3", "t3a", "t4g", "m5", "m5a", "m6i", "m6g", "m7i", "m7g", "c5", "c6i",
+            "c6g", "c7i", "c7g", "r5", "r6i", "r6g", "r7i", "i4i", "g5"};
+    static final String[] SIZES = {"nano", "micro", "small", "medium", "large", "xlarge", "2xlarge", "4xlarge",
+            "8xlarge", "12xlarge", "16xlarge", "24xlarge", "metal"};
+
+    private static final String EC2_NAMESPACE = "http://ec2.amazonaws.com/doc/2016-11-15/";
+    private static final String CLOUDWATCH_NAMESPACE = "http://monitoring.amazonaws.com/doc/2010-08-01/";
+    private static final String[] STATES = {"running", "running", "running", "stopped"};
+
+    private final int fleetSize;
+    private final int pageSize;
+    private final Duration latency;
+    private final double throttleRate;
+    private final HttpServer server;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> throttled = new ConcurrentHashMap<>();
+
+    AwsStub(int fleetSize, int pageSize, Duration latency, double throttleRate) throws IOException {
+        this.fleetSize = fleetSize;
+        this.pageSize = pageSize;
+        this.latency = latency;
+        this.throttleRate = throttleRate;
+        // Without TCP_NODELAY small responses can wait on delayed ACKs and add ~40 ms per call
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+    }
+
+    String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    static String instanceId(int ordinal) {
+        return String.format("i-%017x", ordinal);
+    }
+
+    /** Calls received per action since the last reset, throttled ones included. */
+    Map<String, Long> calls() {
+        return snapshot(calls);
+    }
+
+    Map<String, Long> throttled() {
+        return snapshot(throttled);
+    }
+
+    void reset() {
+        calls.clear();
+        throttled.clear();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            String target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+            Response response;
+            if (target != null) {
+                String action = target.substring(target.indexOf('.') + 1);
+                response = respond("pricing:" + action, () -> pricing(action, objectMapper.readTree(body)),
+                        () -> new Response(400, "application/x-amz-json-1.1",
+                                "{\"__type\":\"ThrottlingException\",\"Message\":\"Rate exceeded\"}"));
+            } else {
+                Map<String, String> parameters = parseForm(body);
+                String action = parameters.getOrDefault("Action", "Unknown");
+                if ("2016-11-15".equals(parameters.get("Version"))) {
+                    response = respond("ec2:" + action, () -> ec2(action, parameters),
+                            () -> new Response(503, "text/xml", "<Response><Errors><Error><Code>RequestLimitExceeded</Code>"
+                                    + "<Message>Request limit exceeded.</Message></Error></Errors><RequestID>stub</RequestID></Response>"));
+                } else {
+                    response = respond("monitoring:" + action, () -> cloudWatch(action, parameters),
+                            () -> new Response(400, "text/xml", "<ErrorResponse xmlns=\"" + CLOUDWATCH_NAMESPACE + "\"><Error>"
+                                    + "<Type>Sender</Type><Code>Throttling</Code><Message>Rate exceeded</Message></Error>"
+                                    + "<RequestId>stub</RequestId></ErrorResponse>"));
+                }
+            }
+            byte[] bytes = response.body().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", response.contentType());
+            exchange.sendResponseHeaders(response.status(), bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private Response respond(String action, ResponseSupplier success, ResponseSupplier throttling) throws Exception {
+        calls.computeIfAbsent(action, name -> new LongAdder()).increment();
+        if (!latency.isZero()) {
+            long millis = latency.toMillis();
+            Thread.sleep(millis + ThreadLocalRandom.current().nextLong(millis + 1));
+        }
+        if (throttleRate > 0 && ThreadLocalRandom.current().nextDouble() < throttleRate) {
+            throttled.computeIfAbsent(action, name -> new LongAdder()).increment();
+            return throttling.get();
+        }
+        return success.get();
+    }
+
+    private Response ec2(String action, Map<String, String> parameters) {
+        StringBuilder xml = new StringBuilder(1024);
+        switch (action) {
+            case "DescribeInstances" -> {
+                int from = offset(parameters.get("NextToken"));
+                int to = Math.min(from + limit(parameters.get("MaxResults")), fleetSize);
+                xml.append("<reservationSet>");
+                for (int i = from; i < to; i++) {
+                    xml.append("<item><reservationId>r-").append(instanceId(i).substring(2))
+                            .append("</reservationId><instancesSet>");
+                    appendInstance(xml, i);
+                    xml.append("</instancesSet></item>");
+                }
+                xml.append("</reservationSet>");
+                appendNextToken(xml, "nextToken", to, fleetSize);
+            }
+            case "DescribeInstanceTypes" -> {
+                int total = FAMILIES.length * SIZES.length;
+                int from = offset(parameters.get("NextToken"));
+                int to = Math.min(from + limit(parameters.get("MaxResults")), total);
+                xml.append("<instanceTypeSet>");
+                for (int i = from; i < to; i++) {
+                    int vCpus = Math.max(1, 1 << Math.max(0, i % SIZES.length - 3));
+                    xml.append("<item><instanceType>").append(instanceType(i)).append("</instanceType>")
+                            .append("<vCpuInfo><defaultVCpus>").append(vCpus).append("</defaultVCpus></vCpuInfo>")
+                            .append("<memoryInfo><sizeInMiB>").append(vCpus * 4096).append("</sizeInMiB></memoryInfo></item>");
+                }
+                xml.append("</instanceTypeSet>");
+                appendNextToken(xml, "nextToken", to, total);
+            }
+            case "DescribeSecurityGroups" -> {
+                xml.append("<securityGroupInfo>");
+                for (int i = 0; i < 50; i++) {
+                    xml.append("<item><ownerId>123456789012</ownerId><groupId>").append(String.format("sg-%08x", i))
+                            .append("</groupId><groupName>app-").append(i).append("</groupName>")
+                            .append("<groupDescription>stub</groupDescription><vpcId>vpc-00000001</vpcId><ipPermissions>")
+                            .append("<item><ipProtocol>tcp</ipProtocol><fromPort>22</fromPort><toPort>22</toPort>")
+                            .append("<ipRanges><item><cidrIp>10.0.0.0/8</cidrIp></item></ipRanges></item>")
+                            .append("<item><ipProtocol>tcp</ipProtocol><fromPort>443</fromPort><toPort>443</toPort>")
+                            .append("<ipRanges><item><cidrIp>0.0.0.0/0</cidrIp></item></ipRanges></item>")
+                            .append("</ipPermissions><ipPermissionsEgress/></item>");
+                }
+                xml.append("</securityGroupInfo>");
+            }
+            case "DescribeImages" -> {
+                xml.append("<imagesSet>");
+                for (int i = 0; i < 5; i++) {
+                    xml.append("<item><imageId>").append(String.format("ami-%017x", i)).append("</imageId>")
+                            .append("<name>RHEL-9.").append(i).append("_HVM-x86_64</name><imageState>available</imageState>")
+                            .append("<architecture>x86_64</architecture><creationDate>2025-0").append(i + 1)
+                            .append("-01T00:00:00.000Z</creationDate><platformDetails>Red Hat Enterprise Linux</platformDetails>")
+                            .append("<imageOwnerId>309956199498</imageOwnerId></item>");
+                }
+                xml.append("</imagesSet>");
+            }
+            case "StartInstances", "StopInstances" -> {
+                String state = action.equals("StartInstances") ? "pending" : "stopping";
+                xml.append("<instancesSet>");
+                for (int n = 1; parameters.containsKey("InstanceId." + n); n++) {
+                    xml.append("<item><instanceId>").append(parameters.get("InstanceId." + n)).append("</instanceId>")
+                            .append("<currentState><code>0</code><name>").append(state).append("</name></currentState>")
+                            .append("<previousState><code>16</code><name>running</name></previousState></item>");
+                }
+                xml.append("</instancesSet>");
+            }
+            default -> {
+            }
+        }
+        return new Response(200, "text/xml", "<" + action + "Response xmlns=\"" + EC2_NAMESPACE + "\">"
+                + "<requestId>stub</requestId>" + xml + "</" + action + "Response>");
+    }
+
+    private void appendInstance(StringBuilder xml, int ordinal) {
+        Random random = new Random(ordinal);
+        String privateIp = "10." + (ordinal >> 16 & 255) + "." + (ordinal >> 8 & 255) + "." + (ordinal & 255);
+        String state = STATES[random.nextInt(STATES.length)];
+        xml.append("<item><instanceId>").append(instanceId(ordinal)).append("</instanceId>")
+                .append("<imageId>").append(String.format("ami-%017x", random.nextInt(64))).append("</imageId>")
+                .append("<instanceState><code>").append(state.equals("running") ? 16 : 80).append("</code><name>")
+                .append(state).append("</name></instanceState>")
+                .append("<privateIpAddress>").append(privateIp).append("</privateIpAddress>");
+        if (state.equals("running") && random.nextBoolean()) {
+            xml.append("<ipAddress>54.").append(random.nextInt(256)).append('.').append(random.nextInt(256))
+                    .append('.').append(random.nextInt(256)).append("</ipAddress>");
+        }
+        xml.append("<instanceType>").append(instanceType(random.nextInt(FAMILIES.length) * SIZES.length + 4 + random.nextInt(4)))
+                .append("</instanceType><placement><availabilityZone>us-east-1").append((char) ('a' + random.nextInt(6)))
+                .append("</availabilityZone><tenancy>default</tenancy></placement>")
+                .append("<vpcId>").append(String.format("vpc-%08x", random.nextInt(8))).append("</vpcId>")
+                .append("<subnetId>").append(String.format("subnet-%08x", random.nextInt(32))).append("</subnetId>")
+                .append("<platformDetails>").append(random.nextInt(10) == 0 ? "Windows" : "Linux/UNIX").append("</platformDetails>")
+                .append("<launchTime>2025-01-01T00:00:00.000Z</launchTime>")
+                .append("<groupSet><item><groupId>").append(String.format("sg-%08x", random.nextInt(50)))
+                .append("</groupId><groupName>app</groupName></item></groupSet>")
+                .append("<tagSet><item><key>Name</key><value>node-").append(ordinal).append("</value></item>")
+                .append("<item><key>team</key><value>team-").append(random.nextInt(20)).append("</value></item></tagSet>")
+                .append("</item>");
+    }
+
+    private Response cloudWatch(String action, Map<String, String> parameters) {
+        StringBuilder xml = new StringBuilder(1024);
+        switch (action) {
+            case "DescribeAlarms" -> {
+                // One CPU alarm per instance; incremental syncs ask for alarms by name
+                List<Integer> ordinals = new ArrayList<>();
+                int to = fleetSize;
+                if (parameters.containsKey("AlarmNames.member.1")) {
+                    for (int n = 1; parameters.containsKey("AlarmNames.member." + n); n++) {
+                        String name = parameters.get("AlarmNames.member." + n);
+                        ordinals.add(Integer.parseInt(name.substring(2, name.indexOf('-', 2)), 16));
+                    }
+                } else {
+                    int from = offset(parameters.get("NextToken"));
+                    to = Math.min(from + limit(parameters.get("MaxRecords")), fleetSize);
+                    for (int i = from; i < to; i++) {
+                        ordinals.add(i);
+                    }
+                }
+                xml.append("<MetricAlarms>");
+                for (int i : ordinals) {
+                    xml.append("<member><AlarmName>").append(instanceId(i)).append("-CPUUtilization</AlarmName>")
+                            .append("<StateValue>").append(i % 25 == 0 ? "ALARM" : "OK").append("</StateValue>")
+                            .append("<StateUpdatedTimestamp>2025-04-01T00:00:00.000Z</StateUpdatedTimestamp>")
+                            .append("<Namespace>AWS/EC2</Namespace><MetricName>CPUUtilization</MetricName>")
+                            .append("<Dimensions><member><Name>InstanceId</Name><Value>").append(instanceId(i))
+                            .append("</Value></member></Dimensions><Threshold>80.0</Threshold></member>");
+                }
+                xml.append("</MetricAlarms>");
+                if (!parameters.containsKey("AlarmNames.member.1")) {
+                    appendNextToken(xml, "NextToken", to, fleetSize);
+                }
+            }
+            case "GetMetricData" -> {
+                Instant end = Instant.parse(parameters.get("EndTime")).truncatedTo(ChronoUnit.MINUTES);
+                xml.append("<MetricDataResults>");
+                for (int n = 1; parameters.containsKey("MetricDataQueries.member." + n + ".Id"); n++) {
+                    xml.append("<member><Id>").append(parameters.get("MetricDataQueries.member." + n + ".Id"))
+                            .append("</Id><Label>stub</Label><StatusCode>Complete</StatusCode><Timestamps>");
+                    for (int point = 0; point < 12; point++) {
+                        xml.append("<member>").append(end.minusSeconds(300L * point)).append("</member>");
+                    }
+                    xml.append("</Timestamps><Values>");
+                    for (int point = 0; point < 12; point++) {
+                        xml.append("<member>").append(ThreadLocalRandom.current().nextInt(100)).append("</member>");
+                    }
+                    xml.append("</Values></member>");
+                }
+                xml.append("</MetricDataResults><Messages/>");
+            }
+            default -> {
+            }
+        }
+        return new Response(200, "text/xml", "<" + action + "Response xmlns=\"" + CLOUDWATCH_NAMESPACE + "\"><"
+                + action + "Result>" + xml + "</" + action + "Result><ResponseMetadata><RequestId>stub</RequestId>"
+                + "</ResponseMetadata></" + action + "Response>");
+    }
+
+    private Response pricing(String action, JsonNode request) throws IOException {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("FormatVersion", "aws_v1");
+        if (action.equals("GetProducts")) {
+            String instanceType = null;
+            for (JsonNode filter : request.path("Filters")) {
+                if (filter.path("Field").asText().equals("instanceType")) {
+                    instanceType = filter.path("Value").asText();
+                }
+            }
+            List<String> priceList = new ArrayList<>();
+            int total = FAMILIES.length * SIZES.length;
+            if (instanceType != null) {
+                priceList.add(priceItem(instanceType));
+            } else {
+                int from = offset(request.path("NextToken").asText(null));
+                int to = Math.min(from + limit(request.path("MaxResults").asText(null)), total);
+                for (int i = from; i < to; i++) {
+                    priceList.add(priceItem(instanceType(i)));
+                }
+                if (to < total) {
+                    response.put("NextToken", String.valueOf(to));
+                }
+            }
+            response.put("PriceList", priceList);
+        }
+        return new Response(200, "application/x-amz-json-1.1", objectMapper.writeValueAsString(response));
+    }
+
+    private String priceItem(String instanceType) throws IOException {
+        double price = Math.abs(instanceType.hashCode() % 5000) / 1000.0;
+        Map<String, Object> pricePerUnit = Map.of("USD", String.format(Locale.ROOT, "%.10f", price));
+        return objectMapper.writeValueAsString(Map.of(
+                "product", Map.of("productFamily", "Compute Instance",
+                        "attributes", Map.of("instanceType", instanceType, "location", "US East (N. Virginia)",
+                                "operatingSystem", "Linux", "tenancy", "Shared")),
+                "terms", Map.of("OnDemand", Map.of("STUB.JRTCKXETXF", Map.of(
+                        "priceDimensions", Map.of("STUB.JRTCKXETXF.6YS6EN2CT7", Map.of(
+                                "unit", "Hrs", "pricePerUnit", pricePerUnit)))))));
+    }
+
+    private static String instanceType(int ordinal) {
+        return FAMILIES[ordinal / SIZES.length % FAMILIES.length] + "." + SIZES[ordinal % SIZES.length];
+    }
+
+    private int offset(String nextToken) {
+        return nextToken == null || nextToken.isEmpty() ? 0 : Integer.parseInt(nextToken);
+    }
+
+    private int limit(String maxResults) {
+        return maxResults == null || maxResults.isEmpty() ? pageSize : Math.min(pageSize, Integer.parseInt(maxResults));
+    }
+
+    private static void appendNextToken(StringBuilder xml, String element, int to, int total) {
+        if (to < total) {
+            xml.append('<').append(element).append('>').append(to).append("</").append(element).append('>');
+        }
+    }
+
+    private static Map<String, String> parseForm(String body) {
+        Map<String, String> parameters = new HashMap<>();
+        for (String parameter : body.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(parameter.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counters) {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((name, count) -> snapshot.put(name, count.sum()));
+        return snapshot;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private record Response(int status, String contentType, String body) {
+    }
+
+    @FunctionalInterface
+    private interface ResponseSupplier {
+        Response get() throws Exception;
+    }
+}
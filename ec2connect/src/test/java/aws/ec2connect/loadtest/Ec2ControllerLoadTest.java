@@ -0,0 +1,203 @@
+package aws.ec2connect.loadtest;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Drives the REST endpoints at a fixed request rate with every AWS client pointed at {@link AwsStub}, then
+ * prints latency percentiles, error rates and AWS calls per request for each endpoint. Not part of the normal build:
+ * <pre>
+ * mvn test -Dtest=Ec2ControllerLoadTest -Dec2connect.loadtest=true \
+ *     -Dloadtest.rps=200 -Dloadtest.duration=PT60S -Dloadtest.fleet-size=10000 \
+ *     -Dloadtest.aws-latency=PT0.02S -Dloadtest.throttle-rate=0.05
+ * </pre>
+ * Requests are sent on an open-loop schedule and latency is measured from the time a request was due,
+ * so a server that falls behind shows up in the percentiles instead of lowering the request rate.
+ * AWS calls per request come from the X-Aws-Calls response header; the stub's own counts are printed too
+ * and also include background refreshes.
+ */
+@EnabledIfSystemProperty(named = "ec2connect.loadtest", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class Ec2ControllerLoadTest {
+
+    private static final int FLEET_SIZE = Integer.getInteger("loadtest.fleet-size", 5000);
+    private static final int RPS = Integer.getInteger("loadtest.rps", 100);
+    private static final Duration DURATION = Duration.parse(System.getProperty("loadtest.duration", "PT30S"));
+    private static final Duration WARMUP = Duration.parse(System.getProperty("loadtest.warmup", "PT10S"));
+
+    private static final AwsStub stub = startStub();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void awsEndpoint(DynamicPropertyRegistry registry) {
+        registry.add("ec2connect.aws.endpoint-override", stub::endpoint);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @Test
+    void driveEndpoints() throws InterruptedException {
+        List<String> paths = paths();
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        System.out.printf("warm-up: %s at %d req/s%n", WARMUP, RPS);
+        run(httpClient, paths, WARMUP);
+        stub.reset();
+
+        System.out.printf("load: %s at %d req/s against a fleet of %d instances%n", DURATION, RPS, FLEET_SIZE);
+        Map<String, EndpointStats> stats = run(httpClient, paths, DURATION);
+        report(stats);
+        System.out.println("AWS calls received by the stub: " + stub.calls());
+        System.out.println("AWS calls throttled by the stub: " + stub.throttled());
+    }
+
+    private Map<String, EndpointStats> run(HttpClient httpClient, List<String> paths, Duration duration)
+            throws InterruptedException {
+        Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / RPS;
+        long requests = duration.toNanos() / intervalNanos;
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < requests; i++) {
+                long due = start + i * intervalNanos;
+                LockSupport.parkNanos(due - System.nanoTime());
+                String path = paths.get((int) (i % paths.size()));
+                executor.execute(() -> send(httpClient, path, due, stats.computeIfAbsent(path, EndpointStats::new)));
+            }
+            executor.shutdown();
+            executor.awaitTermination(duration.toSeconds() + 60, TimeUnit.SECONDS);
+        }
+        return stats;
+    }
+
+    private void send(HttpClient httpClient, String path, long due, EndpointStats stats) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            long awsCalls = response.headers().firstValueAsLong("X-Aws-Calls").orElse(0);
+            stats.record(System.nanoTime() - due, response.statusCode() >= 400, awsCalls);
+        } catch (IOException e) {
+            stats.record(System.nanoTime() - due, true, 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Default mix: every read endpoint once per round; loadtest.paths replaces it
+    private static List<String> paths() {
+        String configured = System.getProperty("loadtest.paths");
+        if (configured != null && !configured.isBlank()) {
+            return Arrays.stream(configured.split(",")).map(String::trim).toList();
+        }
+        String someInstances = IntStream.range(0, 20)
+                .mapToObj(i -> AwsStub.instanceId(i * (FLEET_SIZE / 20)))
+                .collect(Collectors.joining(","));
+        return List.of(
+                "/ec2",
+                "/ec2",
+                "/ec2?fields=instanceId,state,instanceType",
+                "/ec2/" + AwsStub.instanceId(FLEET_SIZE / 2),
+                "/ec2/sc",
+                "/ec2/types/m5",
+                "/ec2/imagesRH",
+                "/ec2/alarms?instanceIds=" + someInstances,
+                "/ec2/metrics?instanceIds=" + someInstances);
+    }
+
+    private static void report(Map<String, EndpointStats> stats) {
+        System.out.printf("%-50s %8s %7s %9s %9s %9s %9s %10s%n",
+                "endpoint", "requests", "errors", "p50 ms", "p90 ms", "p99 ms", "max ms", "aws/req");
+        EndpointStats total = new EndpointStats("total");
+        for (EndpointStats endpoint : new TreeMap<>(stats).values()) {
+            endpoint.print();
+            total.addAll(endpoint);
+        }
+        total.print();
+    }
+
+    private static AwsStub startStub() {
+        try {
+            return new AwsStub(FLEET_SIZE,
+                    Integer.getInteger("loadtest.page-size", 1000),
+                    Duration.parse(System.getProperty("loadtest.aws-latency", "PT0.01S")),
+                    Double.parseDouble(System.getProperty("loadtest.throttle-rate", "0")));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class EndpointStats {
+
+        private final String path;
+        private final List<Long> latencies = new ArrayList<>();
+        private long errors;
+        private long awsCalls;
+
+        EndpointStats(String path) {
+            this.path = path;
+        }
+
+        synchronized void record(long latencyNanos, boolean error, long calls) {
+            latencies.add(latencyNanos);
+            if (error) {
+                errors++;
+            }
+            awsCalls += calls;
+        }
+
+        synchronized void addAll(EndpointStats other) {
+            latencies.addAll(other.latencies);
+            errors += other.errors;
+            awsCalls += other.awsCalls;
+        }
+
+        synchronized void print() {
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            int count = sorted.length;
+            System.out.printf("%-50s %8d %6.2f%% %9.1f %9.1f %9.1f %9.1f %10.2f%n",
+                    path.length() > 50 ? path.substring(0, 47) + "..." : path, count,
+                    count == 0 ? 0.0 : 100.0 * errors / count,
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    percentile(sorted, 1.0), count == 0 ? 0.0 : (double) awsCalls / count);
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
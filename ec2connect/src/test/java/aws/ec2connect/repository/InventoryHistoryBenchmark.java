@@ -0,0 +1,90 @@
+package aws.ec2connect.repository;
+
+import aws.ec2connect.dto.HistoryEntry;
+import aws.ec2connect.dto.HistoryEntry.Kind;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures batched write throughput and indexed query latency of {@link InventoryHistoryRepository}
+ * against the MySQL container from docker-compose.yml (published on port 3307). Not part of the normal build:
+ * <pre>
+ * docker compose -f src/main/resources/docker-compose.yml up -d
+ * mvn test -Dtest=InventoryHistoryBenchmark -Dec2connect.history.benchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "ec2connect.history.benchmark", matches = "true")
+class InventoryHistoryBenchmark {
+
+    private static final int INSTANCES = 10_000;
+    private static final int CYCLES = 10;
+    private static final int QUERIES = 1_000;
+
+    @Test
+    void writeAndQuery() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("ec2connect.history.benchmark.url",
+                        "jdbc:mysql://localhost:3307/ec2instance?rewriteBatchedStatements=true"),
+                System.getProperty("ec2connect.history.benchmark.user", "sergiu"),
+                System.getProperty("ec2connect.history.benchmark.password", "secret"));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        InventoryHistoryRepository repository = new InventoryHistoryRepository(jdbcTemplate, 500);
+        repository.latestHashes();
+        jdbcTemplate.execute("TRUNCATE TABLE inventory_history");
+
+        Instant start = Instant.now().minusSeconds(CYCLES * 300L);
+        long writeNanos = 0;
+        for (int cycle = 0; cycle < CYCLES; cycle++) {
+            List<HistoryEntry> rows = new ArrayList<>(INSTANCES);
+            Instant observedAt = start.plusSeconds(cycle * 300L);
+            for (int i = 0; i < INSTANCES; i++) {
+                String instanceId = String.format("i-%017x", i);
+                String payload = "{\"instanceId\":\"" + instanceId + "\",\"state\":\""
+                        + (cycle % 2 == 0 ? "running" : "stopped") + "\",\"instanceType\":\"t3.micro\"}";
+                rows.add(new HistoryEntry(Kind.INSTANCE, instanceId, instanceId, observedAt, false,
+                        String.format("%064x", cycle * INSTANCES + i), payload));
+            }
+            long begin = System.nanoTime();
+            repository.insertAll(rows);
+            writeNanos += System.nanoTime() - begin;
+        }
+        double rowsPerSecond = (double) INSTANCES * CYCLES / (writeNanos / 1e9);
+        System.out.printf("write: %d rows in %.1f s, %.0f rows/s%n", INSTANCES * CYCLES, writeNanos / 1e9, rowsPerSecond);
+
+        long[] instanceQueries = new long[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            String instanceId = String.format("i-%017x", ThreadLocalRandom.current().nextInt(INSTANCES));
+            long begin = System.nanoTime();
+            repository.findByInstance(instanceId, Instant.EPOCH, Instant.now(), 100);
+            instanceQueries[q] = System.nanoTime() - begin;
+        }
+        report("instance history", instanceQueries);
+
+        long[] changeQueries = new long[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            Instant since = start.plusSeconds(ThreadLocalRandom.current().nextInt(CYCLES) * 300L);
+            long begin = System.nanoTime();
+            repository.findChangedSince(since, Kind.INSTANCE, 1000);
+            changeQueries[q] = System.nanoTime() - begin;
+        }
+        report("changes since", changeQueries);
+
+        long begin = System.nanoTime();
+        int latest = repository.latest(Kind.INSTANCE).size();
+        System.out.printf("latest per resource: %d rows in %.1f ms%n", latest, (System.nanoTime() - begin) / 1e6);
+    }
+
+    private static void report(String name, long[] nanos) {
+        Arrays.sort(nanos);
+        System.out.printf("%s: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", name,
+                nanos[nanos.length / 2] / 1e6, nanos[(int) (nanos.length * 0.99)] / 1e6, nanos[nanos.length - 1] / 1e6);
+    }
+}
@@ -0,0 +1,121 @@
+package aws.ec2connect.service;
+
+import aws.ec2connect.index.AlarmIndex;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.cloudwatch.model.AlarmHistoryItem;
+import software.amazon.awssdk.services.cloudwatch.model.DescribeAlarmHistoryRequest;
+import software.amazon.awssdk.services.cloudwatch.model.DescribeAlarmHistoryResponse;
+import software.amazon.awssdk.services.cloudwatch.model.DescribeAlarmsRequest;
+import software.amazon.awssdk.services.cloudwatch.model.DescribeAlarmsResponse;
+import software.amazon.awssdk.services.cloudwatch.model.MetricAlarm;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlarmIndexServiceTest {
+
+    // DescribeAlarms returns at most this many records per page
+    private static final int PAGE_SIZE = 50;
+
+    private final Map<String, MetricAlarm> alarms = new TreeMap<>();
+    private final List<String> changedNames = new ArrayList<>();
+    private int describeAlarmsCalls;
+
+    @Test
+    void incrementalSyncFollowsEveryPageOfAChunk() {
+        for (int i = 0; i < 80; i++) {
+            alarms.put(name(i), alarm(i, "OK"));
+        }
+        AlarmIndexService service = new AlarmIndexService(cloudWatchClient());
+        service.fullSync();
+
+        for (int i = 0; i < 80; i++) {
+            alarms.put(name(i), alarm(i, "ALARM"));
+            changedNames.add(name(i));
+        }
+        changedNames.add("deleted-alarm");
+        describeAlarmsCalls = 0;
+        AlarmIndex index = service.incrementalSync();
+
+        assertEquals(2, describeAlarmsCalls);
+        assertEquals(80, index.all().size());
+        assertTrue(index.all().stream().allMatch(alarm -> alarm.state().equals("ALARM")));
+        assertTrue(index.contains(name(79)));
+        assertFalse(index.contains("deleted-alarm"));
+    }
+
+    @Test
+    void incrementalSyncRemovesAlarmsThatNoLongerExist() {
+        alarms.put(name(1), alarm(1, "OK"));
+        alarms.put(name(2), alarm(2, "OK"));
+        AlarmIndexService service = new AlarmIndexService(cloudWatchClient());
+        service.fullSync();
+
+        alarms.remove(name(2));
+        changedNames.add(name(2));
+        AlarmIndex index = service.incrementalSync();
+
+        assertTrue(index.contains(name(1)));
+        assertFalse(index.contains(name(2)));
+    }
+
+    private static String name(int i) {
+        return String.format("cpu-high-i-%04d", i);
+    }
+
+    private static MetricAlarm alarm(int i, String state) {
+        return MetricAlarm.builder()
+                .alarmName(name(i))
+                .stateValue(state)
+                .namespace("AWS/EC2")
+                .metricName("CPUUtilization")
+                .dimensions(d -> d.name("InstanceId").value(String.format("i-%04d", i)))
+                .stateUpdatedTimestamp(Instant.EPOCH)
+                .build();
+    }
+
+    private CloudWatchClient cloudWatchClient() {
+        return new CloudWatchClient() {
+            @Override
+            public DescribeAlarmsResponse describeAlarms(DescribeAlarmsRequest request) {
+                describeAlarmsCalls++;
+                List<MetricAlarm> matching = request.alarmNames().isEmpty()
+                        ? List.copyOf(alarms.values())
+                        : request.alarmNames().stream().filter(alarms::containsKey).sorted().map(alarms::get).toList();
+                int from = request.nextToken() == null ? 0 : Integer.parseInt(request.nextToken());
+                int pageSize = Math.min(PAGE_SIZE, request.maxRecords() == null ? PAGE_SIZE : request.maxRecords());
+                int to = Math.min(from + pageSize, matching.size());
+                return DescribeAlarmsResponse.builder()
+                        .metricAlarms(matching.subList(from, to))
+                        .nextToken(to < matching.size() ? String.valueOf(to) : null)
+                        .build();
+            }
+
+            @Override
+            public DescribeAlarmHistoryResponse describeAlarmHistory(DescribeAlarmHistoryRequest request) {
+                return DescribeAlarmHistoryResponse.builder()
+                        .alarmHistoryItems(changedNames.stream()
+                                .map(name -> AlarmHistoryItem.builder().alarmName(name).build())
+                                .toList())
+                        .build();
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
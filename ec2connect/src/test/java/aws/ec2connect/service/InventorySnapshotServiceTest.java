@@ -0,0 +1,139 @@
+package aws.ec2connect.service;
+
+import aws.ec2connect.InMemoryEc2Client;
+import aws.ec2connect.events.InstanceStateEvent;
+import aws.ec2connect.service.InventorySnapshotService.InventorySnapshot;
+import aws.ec2connect.service.InventorySnapshotService.StateChanges;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.ec2.model.Instance;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class InventorySnapshotServiceTest {
+
+    private final List<Instance> fleet = new ArrayList<>();
+    private InventorySnapshotService service;
+
+    @BeforeEach
+    void setUp() {
+        fleet.add(instance("i-1", "running"));
+        fleet.add(instance("i-2", "running"));
+        service = new InventorySnapshotService(new InMemoryEc2Client(fleet), Duration.ofMinutes(2), true, Duration.ofMinutes(15));
+    }
+
+    @Test
+    void appliesEventsNewerThanTheSweep() {
+        InventorySnapshot swept = service.refresh();
+
+        StateChanges changes = service.applyStateChanges(List.of(event("i-1", "stopping", swept.refreshedAt().plusSeconds(1))));
+
+        assertEquals(new StateChanges(1, 0, 0, 0), changes);
+        assertEquals(swept.version() + 1, service.current().version());
+        assertEquals("stopping", state("i-1"));
+    }
+
+    @Test
+    void skipsEventsTheSweepAlreadyReflects() {
+        InventorySnapshot swept = service.refresh();
+
+        StateChanges changes = service.applyStateChanges(List.of(
+                event("i-1", "stopped", swept.refreshedAt().minusSeconds(10)),
+                event("i-2", "pending", swept.refreshedAt().minusSeconds(60))));
+
+        assertEquals(new StateChanges(0, 0, 0, 2), changes);
+        assertEquals(swept.version(), service.current().version());
+        assertEquals("running", state("i-1"));
+        assertEquals("running", state("i-2"));
+    }
+
+    @Test
+    void appliesEventsFromTheSecondTheSweepStarted() {
+        InventorySnapshot swept = service.refresh();
+        // EventBridge times carry whole seconds, so a change just after the sweep began can look older than it
+        Instant sameSecond = swept.refreshedAt().truncatedTo(ChronoUnit.SECONDS);
+
+        StateChanges changes = service.applyStateChanges(List.of(
+                event("i-1", "stopping", sameSecond),
+                event("i-2", "stopping", sameSecond.minusSeconds(1))));
+
+        assertEquals(new StateChanges(2, 0, 0, 0), changes);
+        assertEquals("stopping", state("i-1"));
+        assertEquals("stopping", state("i-2"));
+    }
+
+    @Test
+    void neverMovesAnInstanceBackToAnOlderEvent() {
+        Instant sweptAt = service.refresh().refreshedAt();
+        service.applyStateChanges(List.of(event("i-1", "stopped", sweptAt.plusSeconds(20))));
+
+        StateChanges late = service.applyStateChanges(List.of(event("i-1", "stopping", sweptAt.plusSeconds(10))));
+        StateChanges duplicate = service.applyStateChanges(List.of(event("i-1", "stopped", sweptAt.plusSeconds(20))));
+
+        assertEquals(new StateChanges(0, 0, 0, 1), late);
+        assertEquals(new StateChanges(0, 0, 0, 1), duplicate);
+        assertEquals("stopped", state("i-1"));
+    }
+
+    @Test
+    void sweepReplacesEventStatesAndResetsOrdering() {
+        Instant firstSweep = service.refresh().refreshedAt();
+        service.applyStateChanges(List.of(event("i-1", "stopped", firstSweep.plusSeconds(5))));
+
+        fleet.set(0, instance("i-1", "pending"));
+        Instant secondSweep = service.refresh().refreshedAt();
+
+        assertEquals("pending", state("i-1"));
+        assertEquals(new StateChanges(0, 0, 0, 1),
+                service.applyStateChanges(List.of(event("i-1", "running", secondSweep.minusSeconds(10)))));
+        assertEquals(new StateChanges(1, 0, 0, 0),
+                service.applyStateChanges(List.of(event("i-1", "running", secondSweep.plusMillis(1)))));
+    }
+
+    @Test
+    void eTagsDifferBetweenServiceInstances() {
+        List<Instance> otherFleet = new ArrayList<>(List.of(instance("i-7", "stopped")));
+        InventorySnapshotService restarted = new InventorySnapshotService(new InMemoryEc2Client(otherFleet),
+                Duration.ofMinutes(2), true, Duration.ofMinutes(15));
+
+        InventorySnapshot first = service.refresh();
+        InventorySnapshot second = restarted.refresh();
+
+        assertEquals(first.version(), second.version());
+        assertNotEquals(first.eTag(), second.eTag());
+        assertEquals(first.eTag(), service.refresh().eTag());
+    }
+
+    @Test
+    void countsUnknownAndUnchangedInstances() {
+        Instant sweptAt = service.refresh().refreshedAt();
+
+        StateChanges changes = service.applyStateChanges(List.of(
+                event("i-2", "running", sweptAt.plusSeconds(1)),
+                event("i-9", "running", sweptAt.plusSeconds(1))));
+
+        assertEquals(new StateChanges(0, 1, 1, 0), changes);
+    }
+
+    private String state(String instanceId) {
+        return service.current().instances().get(instanceId).state().nameAsString();
+    }
+
+    static InstanceStateEvent event(String instanceId, String state, Instant time) {
+        return new InstanceStateEvent(instanceId + "-" + time.toEpochMilli(), instanceId, state, time);
+    }
+
+    static Instance instance(String instanceId, String state) {
+        return Instance.builder()
+                .instanceId(instanceId)
+                .state(s -> s.name(state))
+                .build();
+    }
+}
@@ -0,0 +1,139 @@
+package aws.ec2connect.service;
+
+import aws.ec2connect.InMemoryPricingClient;
+import aws.ec2connect.index.PriceMatrix;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceListLoaderTest {
+
+    static final String VIRGINIA = "US East (N. Virginia)";
+    static final String IRELAND = "EU (Ireland)";
+
+    // Products are listed out of dimension-name order, two SKUs map to the same m5.large cell, and the
+    // Reserved terms ahead of OnDemand must be skipped
+    private static final String OFFER_FILE = """
+            {
+              "formatVersion": "v1.0",
+              "offerCode": "AmazonEC2",
+              "products": {
+                "M5LINUX": {"sku": "M5LINUX", "productFamily": "Compute Instance", "attributes": {
+                  "instanceType": "m5.large", "location": "US East (N. Virginia)", "operatingSystem": "Linux",
+                  "tenancy": "Shared", "capacitystatus": "Used", "preInstalledSw": "NA",
+                  "licenseModel": "No License required"}},
+                "M5RESERVED": {"sku": "M5RESERVED", "productFamily": "Compute Instance", "attributes": {
+                  "instanceType": "m5.large", "location": "US East (N. Virginia)", "operatingSystem": "Linux",
+                  "tenancy": "Shared", "capacitystatus": "UnusedCapacityReservation", "preInstalledSw": "NA"}},
+                "M5SQL": {"sku": "M5SQL", "productFamily": "Compute Instance", "attributes": {
+                  "instanceType": "m5.large", "location": "US East (N. Virginia)", "operatingSystem": "Linux",
+                  "tenancy": "Shared", "capacitystatus": "Used", "preInstalledSw": "SQL Web"}},
+                "M5BYOL": {"sku": "M5BYOL", "productFamily": "Compute Instance", "attributes": {
+                  "instanceType": "m5.large", "location": "US East (N. Virginia)", "operatingSystem": "Windows",
+                  "tenancy": "Shared", "capacitystatus": "Used", "preInstalledSw": "NA",
+                  "licenseModel": "Bring your own license"}},
+                "M5HOST": {"sku": "M5HOST", "productFamily": "Dedicated Host", "attributes": {
+                  "instanceType": "m5", "location": "US East (N. Virginia)", "operatingSystem": "Linux",
+                  "tenancy": "Host"}},
+                "C5DEDICATED": {"sku": "C5DEDICATED", "productFamily": "Compute Instance", "attributes": {
+                  "instanceType": "c5.large", "location": "US East (N. Virginia)", "operatingSystem": "Linux",
+                  "tenancy": "Dedicated", "capacitystatus": "Used", "preInstalledSw": "NA"}},
+                "A1RHEL": {"sku": "A1RHEL", "productFamily": "Compute Instance", "attributes": {
+                  "instanceType": "a1.medium", "location": "EU (Ireland)", "operatingSystem": "RHEL",
+                  "tenancy": "Shared", "capacitystatus": "Used", "preInstalledSw": "NA"}},
+                "M5LINUX2": {"sku": "M5LINUX2", "productFamily": "Compute Instance", "attributes": {
+                  "instanceType": "m5.large", "location": "US East (N. Virginia)", "operatingSystem": "Linux",
+                  "tenancy": "Shared", "capacitystatus": "Used", "preInstalledSw": "NA"}}
+              },
+              "terms": {
+                "Reserved": {
+                  "M5LINUX": {"M5LINUX.1YR": {"priceDimensions": {"M5LINUX.1YR.H": {"pricePerUnit": {"USD": "0.0600000000"}}}}}
+                },
+                "OnDemand": {
+                  "M5LINUX": {"M5LINUX.OD": {"priceDimensions": {"M5LINUX.OD.H": {"unit": "Hrs", "appliesTo": [],
+                    "pricePerUnit": {"USD": "0.0960000000"}}}}},
+                  "M5RESERVED": {"M5RESERVED.OD": {"priceDimensions": {"M5RESERVED.OD.H": {"pricePerUnit": {"USD": "0.0100000000"}}}}},
+                  "M5SQL": {"M5SQL.OD": {"priceDimensions": {"M5SQL.OD.H": {"pricePerUnit": {"USD": "0.3400000000"}}}}},
+                  "M5BYOL": {"M5BYOL.OD": {"priceDimensions": {"M5BYOL.OD.H": {"pricePerUnit": {"USD": "0.0960000000"}}}}},
+                  "M5HOST": {"M5HOST.OD": {"priceDimensions": {"M5HOST.OD.H": {"pricePerUnit": {"USD": "5.0000000000"}}}}},
+                  "M5LINUX2": {"M5LINUX2.OD": {"priceDimensions": {"M5LINUX2.OD.H": {"pricePerUnit": {"USD": "0.5000000000"}}}}},
+                  "C5DEDICATED": {"C5DEDICATED.OD": {"priceDimensions": {"C5DEDICATED.OD.H": {"pricePerUnit": {"USD": "0.0935000000"}}}}},
+                  "A1RHEL": {"A1RHEL.OD": {"priceDimensions": {
+                    "A1RHEL.OD.H": {"pricePerUnit": {"USD": "0.0855000000"}},
+                    "A1RHEL.OD.X": {"pricePerUnit": {"USD": "9.9900000000"}}}}},
+                  "NOPRODUCT": {"NOPRODUCT.OD": {"priceDimensions": {"NOPRODUCT.OD.H": {"pricePerUnit": {"USD": "1.0000000000"}}}}}
+                }
+              }
+            }
+            """;
+
+    @Test
+    void offerFileKeepsOnlySharedCapacityComputeInstances() throws IOException {
+        PriceMatrix matrix = loader(List.of()).loadOfferFile(
+                new ByteArrayInputStream(OFFER_FILE.getBytes(StandardCharsets.UTF_8)), "test");
+
+        assertEquals(3, matrix.stats().prices());
+        assertEquals(0.096f, matrix.price("m5.large", VIRGINIA, "Linux", "Shared"));
+        assertEquals(0.0935f, matrix.price("c5.large", VIRGINIA, "Linux", "Dedicated"));
+        assertEquals(0.0855f, matrix.price("a1.medium", IRELAND, "RHEL", "Shared"));
+        assertTrue(Float.isNaN(matrix.price("m5.large", VIRGINIA, "Windows", "Shared")));
+        assertTrue(Float.isNaN(matrix.price("m5", VIRGINIA, "Linux", "Host")));
+    }
+
+    @Test
+    void remapsPackedKeysToSortedDimensions() throws IOException {
+        PriceMatrix matrix = loader(List.of()).loadOfferFile(
+                new ByteArrayInputStream(OFFER_FILE.getBytes(StandardCharsets.UTF_8)), "test");
+
+        // Every other combination of the kept dimension names is an empty cell
+        assertEquals(3 * 2 * 2 * 2, Math.round(matrix.stats().prices() / matrix.stats().fillRatio()));
+        assertTrue(Float.isNaN(matrix.price("m5.large", IRELAND, "Linux", "Shared")));
+        assertTrue(Float.isNaN(matrix.price("c5.large", VIRGINIA, "Linux", "Shared")));
+        assertTrue(Float.isNaN(matrix.price("a1.medium", IRELAND, "Linux", "Shared")));
+        assertTrue(Float.isNaN(matrix.price("t3.micro", VIRGINIA, "Linux", "Shared")));
+    }
+
+    @Test
+    void getProductsPagesKeepTheFirstPricePerCombination() throws IOException {
+        Map<String, String> items = Map.of(
+                "m5.large", priceItem("m5.large", VIRGINIA, "Used", "0.0960000000"),
+                "m5.large-reserved", priceItem("m5.large", VIRGINIA, "UnusedCapacityReservation", "0.0100000000"),
+                "m5.large-again", priceItem("m5.large", VIRGINIA, "Used", "0.5000000000"),
+                "t3.micro", priceItem("t3.micro", VIRGINIA, "Used", "0.0104000000"));
+        PriceListLoader loader = loader(List.of("m5.large", "m5.large-reserved", "m5.large-again", "t3.micro"), items);
+
+        PriceMatrix matrix = loader.loadFromGetProducts(List.of(VIRGINIA));
+
+        assertEquals(2, matrix.stats().prices());
+        assertEquals(0.096f, matrix.price("m5.large", VIRGINIA, "Linux", "Shared"));
+        assertEquals(0.0104f, matrix.price("t3.micro", VIRGINIA, "Linux", "Shared"));
+    }
+
+    static String priceItem(String instanceType, String location, String capacityStatus, String usd) {
+        return """
+                {"product": {"productFamily": "Compute Instance", "attributes": {"instanceType": "%s",
+                  "location": "%s", "operatingSystem": "Linux", "tenancy": "Shared", "capacitystatus": "%s",
+                  "preInstalledSw": "NA"}, "sku": "SKU"},
+                 "serviceCode": "AmazonEC2",
+                 "terms": {"OnDemand": {"SKU.OD": {"priceDimensions": {"SKU.OD.H": {"unit": "Hrs",
+                   "pricePerUnit": {"USD": "%s"}}}}}}}
+                """.formatted(instanceType, location, capacityStatus, usd);
+    }
+
+    private static PriceListLoader loader(List<String> keys, Map<String, String> items) {
+        return new PriceListLoader(new InMemoryPricingClient(keys, items::get), false,
+                PriceListLoader.SOURCE_GET_PRODUCTS, "", VIRGINIA, Duration.ofSeconds(10), Duration.ofMinutes(10));
+    }
+
+    private static PriceListLoader loader(List<String> keys) {
+        return loader(keys, Map.of());
+    }
+}
@@ -0,0 +1,51 @@
+package aws.ec2connect.service;
+
+import aws.ec2connect.InMemoryPricingClient;
+import aws.ec2connect.cache.PriceCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import software.amazon.awssdk.services.pricing.PricingAsyncClient;
+import software.amazon.awssdk.services.pricing.PricingClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static aws.ec2connect.service.PriceListLoaderTest.VIRGINIA;
+import static aws.ec2connect.service.PriceListLoaderTest.priceItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PricingServiceTest {
+
+    private static final Map<String, String> ITEMS = Map.of(
+            "m5.large", priceItem("m5.large", VIRGINIA, "Used", "0.0960000000"),
+            "t3.nano", priceItem("t3.nano", VIRGINIA, "Used", "0.0052000000"),
+            "m7i.48xlarge", priceItem("m7i.48xlarge", VIRGINIA, "Used", "9.6768000000"),
+            "free.tier", priceItem("free.tier", VIRGINIA, "Used", "0.0000000000"));
+
+    @Test
+    void formatsPricesAlikeWhicheverSourceAnswers() throws IOException {
+        PricingClient pricingClient = new InMemoryPricingClient(List.copyOf(ITEMS.keySet()), ITEMS::get);
+        PriceListLoader withMatrix = new PriceListLoader(pricingClient, true, PriceListLoader.SOURCE_GET_PRODUCTS, "",
+                VIRGINIA, Duration.ofSeconds(10), Duration.ofMinutes(10));
+        withMatrix.refresh();
+        PricingService fromMatrix = pricingService(pricingClient, withMatrix);
+        PricingService fromGetProducts = pricingService(pricingClient, new PriceListLoader(pricingClient, false,
+                PriceListLoader.SOURCE_GET_PRODUCTS, "", VIRGINIA, Duration.ofSeconds(10), Duration.ofMinutes(10)));
+
+        for (String instanceType : ITEMS.keySet()) {
+            assertEquals(fromGetProducts.getPriceForInstanceType(instanceType, VIRGINIA),
+                    fromMatrix.getPriceForInstanceType(instanceType, VIRGINIA), instanceType);
+        }
+        assertEquals("$0.096", fromGetProducts.getPriceForInstanceType("m5.large", VIRGINIA));
+        assertEquals("$9.6768", fromMatrix.getPriceForInstanceType("m7i.48xlarge", VIRGINIA));
+        assertEquals("$0", fromMatrix.getPriceForInstanceType("free.tier", VIRGINIA));
+    }
+
+    private static PricingService pricingService(PricingClient pricingClient, PriceListLoader priceListLoader) {
+        return new PricingService(pricingClient,
+                new DefaultListableBeanFactory().getBeanProvider(PricingAsyncClient.class),
+                new PriceCache(64, Duration.ofHours(12), Duration.ofHours(1)), priceListLoader, false, VIRGINIA);
+    }
+}
@@ -0,0 +1,29 @@
+package aws.ec2connect.web;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZstdCompressionFilterTest {
+
+    @Test
+    void acceptsZstdWithAPositiveQValue() {
+        assertTrue(ZstdCompressionFilter.acceptsZstd("gzip, zstd"));
+        assertTrue(ZstdCompressionFilter.acceptsZstd("br;q=1.0, ZSTD;q=0.5"));
+        assertTrue(ZstdCompressionFilter.acceptsZstd("zstd; Q=0.001"));
+        assertTrue(ZstdCompressionFilter.acceptsZstd("zstd;q=1"));
+    }
+
+    @Test
+    void rejectsMissingZeroAndMalformedQValues() {
+        assertFalse(ZstdCompressionFilter.acceptsZstd(null));
+        assertFalse(ZstdCompressionFilter.acceptsZstd("gzip, br"));
+        assertFalse(ZstdCompressionFilter.acceptsZstd("zstd;q=0"));
+        assertFalse(ZstdCompressionFilter.acceptsZstd("zstd;q=0.000"));
+        assertFalse(ZstdCompressionFilter.acceptsZstd("zstd;q=abc"));
+        assertFalse(ZstdCompressionFilter.acceptsZstd("zstd;q="));
+        assertFalse(ZstdCompressionFilter.acceptsZstd("zstd;q=1.5"));
+        assertFalse(ZstdCompressionFilter.acceptsZstd("zstd;q=NaN"));
+    }
+}